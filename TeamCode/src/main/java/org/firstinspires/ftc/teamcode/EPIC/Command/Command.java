@@ -0,0 +1,21 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+/**
+ * One piece of robot behaviour run by the CommandScheduler.
+ * None of these methods may block: do a little work and return, the scheduler calls
+ * execute() again next cycle until isFinished() says we are done.
+ */
+public interface Command {
+    // called once, the cycle the command starts
+    default void initialize() {
+    }
+
+    // called every cycle while the command is running
+    void execute();
+
+    boolean isFinished();
+
+    // called once when the command finishes or is cancelled
+    default void end(boolean interrupted) {
+    }
+}
@@ -0,0 +1,95 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.HardwareSnapshot;
+
+import java.util.ArrayList;
+
+/**
+ * Cooperative scheduler for Commands and Subsystems.
+ * Call run() once per loop: it does the single bulk read for the cycle, updates every
+ * subsystem, then steps every scheduled command once. Nothing in here waits, so the drive,
+ * a lift and vision can all make progress in the same loop.
+ *
+ *     while (opModeIsActive() && scheduler.isScheduled(auto)) {
+ *         scheduler.run();
+ *     }
+ */
+public class CommandScheduler {
+    private final HardwareSnapshot snapshot;
+    private final ArrayList<Subsystem> subsystems = new ArrayList<>();
+    private final ArrayList<Command> scheduled = new ArrayList<>();
+    private final ArrayList<Command> toStart = new ArrayList<>();
+
+    public CommandScheduler(HardwareSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public void register(Subsystem subsystem) {
+        subsystems.add(subsystem);
+    }
+
+    // the command starts (initialize) at the beginning of the next run()
+    public void schedule(Command command) {
+        if (!scheduled.contains(command) && !toStart.contains(command)) {
+            toStart.add(command);
+        }
+    }
+
+    public boolean isScheduled(Command command) {
+        return scheduled.contains(command) || toStart.contains(command);
+    }
+
+    public void cancel(Command command) {
+        if (scheduled.remove(command)) {
+            command.end(true);
+        }
+        toStart.remove(command);
+    }
+
+    public void cancelAll() {
+        for (int i = 0; i < scheduled.size(); i++) {
+            scheduled.get(i).end(true);
+        }
+        scheduled.clear();
+        toStart.clear();
+    }
+
+    public EncoderFrame run() {
+        EncoderFrame frame = read();
+        step(frame);
+        return frame;
+    }
+
+    // run() in two halves, for a loop that times the bulk read apart from the rest
+    public EncoderFrame read() {
+        return snapshot.read();
+    }
+
+    public void step(EncoderFrame frame) {
+        for (int i = 0; i < subsystems.size(); i++) {
+            subsystems.get(i).periodic(frame);
+        }
+
+        for (int i = 0; i < toStart.size(); i++) {
+            Command command = toStart.get(i);
+            command.initialize();
+            scheduled.add(command);
+        }
+        toStart.clear();
+
+        // walk backwards so finished commands can be removed in place
+        for (int i = scheduled.size() - 1; i >= 0; i--) {
+            Command command = scheduled.get(i);
+            command.execute();
+            if (command.isFinished()) {
+                scheduled.remove(i);
+                command.end(false);
+            }
+        }
+    }
+
+    public int scheduledCount() {
+        return scheduled.size() + toStart.size();
+    }
+}
@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+/**
+ * Mecanum_Wheels.encoderDrive as a command: same targets, same RUN_TO_POSITION move and
+ * same timeout, but it returns every cycle instead of spinning until the wheels stop.
+ * Targets are taken from the frame the scheduler read this cycle, so starting costs no extra reads.
+ */
+public class EncoderDriveCommand implements Command {
+    private final Mecanum_Wheels wheels;
+    private final double speed;
+    private final int frontLeftTicks;
+    private final int backLeftTicks;
+    private final int frontRightTicks;
+    private final int backRightTicks;
+    private final double timeoutS;
+    private final Clock clock;
+
+    private long startNanos;
+    private boolean justStarted;
+
+    public EncoderDriveCommand(Mecanum_Wheels wheels, double speed,
+                               double frontLeftInches, double backLeftInches, double frontRightInches,
+                               double backRightInches, double timeoutS) {
+        this(wheels, speed, (int) (frontLeftInches * wheels.ticksPerInch()), (int) (backLeftInches * wheels.ticksPerInch()),
+                (int) (frontRightInches * wheels.ticksPerInch()), (int) (backRightInches * wheels.ticksPerInch()), timeoutS);
+    }
+
+    public EncoderDriveCommand(Mecanum_Wheels wheels, double speed,
+                               int frontLeftTicks, int backLeftTicks, int frontRightTicks,
+                               int backRightTicks, double timeoutS) {
+        this(wheels, speed, frontLeftTicks, backLeftTicks, frontRightTicks, backRightTicks, timeoutS, Clock.SYSTEM);
+    }
+
+    public EncoderDriveCommand(Mecanum_Wheels wheels, double speed,
+                               int frontLeftTicks, int backLeftTicks, int frontRightTicks,
+                               int backRightTicks, double timeoutS, Clock clock) {
+        this.wheels = wheels;
+        this.speed = speed;
+        this.frontLeftTicks = frontLeftTicks;
+        this.backLeftTicks = backLeftTicks;
+        this.frontRightTicks = frontRightTicks;
+        this.backRightTicks = backRightTicks;
+        this.timeoutS = timeoutS;
+        this.clock = clock;
+    }
+
+    @Override
+    public void initialize() {
+        wheels.startEncoderDriveTicks(speed, frontLeftTicks, backLeftTicks, frontRightTicks, backRightTicks,
+                wheels.snapshot.latest());
+        startNanos = clock.nanoTime();
+        justStarted = true;
+    }
+
+    @Override
+    public void execute() {
+        // the hub runs RUN_TO_POSITION itself, nothing to do here
+    }
+
+    @Override
+    public boolean isFinished() {
+        // this cycle's bulk data was read before the new targets went out, so isBusy() can't be trusted yet
+        if (justStarted) {
+            justStarted = false;
+            return false;
+        }
+        return (clock.nanoTime() - startNanos) * 1e-9 >= timeoutS || !wheels.encoderDriveBusy();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        wheels.stopEncoderDrive();
+    }
+}
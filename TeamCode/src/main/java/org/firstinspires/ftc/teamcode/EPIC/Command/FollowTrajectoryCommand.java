@@ -0,0 +1,54 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.firstinspires.ftc.teamcode.EPIC.Localization.VisionFusion;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.Trajectory;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.TrajectoryFollower;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+/**
+ * Drives a precomputed Trajectory with the wheels' TrajectoryFollower, using the pose the
+ * wheels' periodic() updated this cycle with any AprilTag correction (wheels.fusion) applied. Ends once the robot has settled on the last point,
+ * or settleTimeout seconds after the trajectory's planned end.
+ */
+public class FollowTrajectoryCommand implements Command {
+    private final Mecanum_Wheels wheels;
+    private final Trajectory trajectory;
+    private final Clock clock;
+    public double settleTimeout = 0.5;
+
+    private long startNanos;
+    private double t;
+
+    public FollowTrajectoryCommand(Mecanum_Wheels wheels, Trajectory trajectory, Clock clock) {
+        this.wheels = wheels;
+        this.trajectory = trajectory;
+        this.clock = clock;
+    }
+
+    @Override
+    public void initialize() {
+        wheels.follower.follow(trajectory);
+        startNanos = clock.nanoTime();
+        t = 0;
+    }
+
+    @Override
+    public void execute() {
+        t = (clock.nanoTime() - startNanos) * 1e-9;
+        TrajectoryFollower follower = wheels.follower;
+        VisionFusion fused = wheels.fusion;
+        follower.update(t, fused.x(), fused.y(), fused.heading(), wheels.followerPowers);
+        wheels.setWheelPowers(wheels.followerPowers);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return wheels.follower.isFinished(t) || t > trajectory.duration() + settleTimeout;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        wheels.stop();
+    }
+}
@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+/**
+ * Runs all of its commands at the same time and finishes when every one of them has finished.
+ */
+public class ParallelCommandGroup implements Command {
+    private final Command[] commands;
+    private final boolean[] running;
+
+    public ParallelCommandGroup(Command... commands) {
+        this.commands = commands;
+        this.running = new boolean[commands.length];
+    }
+
+    @Override
+    public void initialize() {
+        for (int i = 0; i < commands.length; i++) {
+            commands[i].initialize();
+            running[i] = true;
+        }
+    }
+
+    @Override
+    public void execute() {
+        for (int i = 0; i < commands.length; i++) {
+            if (!running[i]) {
+                continue;
+            }
+            commands[i].execute();
+            if (commands[i].isFinished()) {
+                commands[i].end(false);
+                running[i] = false;
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        for (boolean r : running) {
+            if (r) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        for (int i = 0; i < commands.length; i++) {
+            if (running[i]) {
+                commands[i].end(true);
+                running[i] = false;
+            }
+        }
+    }
+}
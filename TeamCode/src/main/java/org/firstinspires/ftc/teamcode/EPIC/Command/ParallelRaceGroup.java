@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+/**
+ * Runs all of its commands at the same time and finishes as soon as any one of them finishes.
+ * The others are ended as interrupted. Handy for "drive until the sensor sees it".
+ */
+public class ParallelRaceGroup implements Command {
+    private final Command[] commands;
+    // which commands reported finished in execute(); isFinished() isn't asked again in end()
+    private final boolean[] done;
+    private boolean finished = false;
+
+    public ParallelRaceGroup(Command... commands) {
+        this.commands = commands;
+        this.done = new boolean[commands.length];
+    }
+
+    @Override
+    public void initialize() {
+        finished = false;
+        for (int i = 0; i < commands.length; i++) {
+            commands[i].initialize();
+            done[i] = false;
+        }
+    }
+
+    @Override
+    public void execute() {
+        for (int i = 0; i < commands.length; i++) {
+            commands[i].execute();
+            if (commands[i].isFinished()) {
+                done[i] = true;
+                finished = true;
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        for (int i = 0; i < commands.length; i++) {
+            commands[i].end(interrupted || !done[i]);
+        }
+    }
+}
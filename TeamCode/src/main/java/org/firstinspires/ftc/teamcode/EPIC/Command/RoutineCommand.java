@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.CompiledRoutine;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+/**
+ * Runs a CompiledRoutine one segment after another. All the segment commands are created
+ * here, at init, so starting a segment during the match is just initialize().
+ */
+public class RoutineCommand extends SequentialCommandGroup {
+    public RoutineCommand(CompiledRoutine routine, Mecanum_Wheels wheels, Clock clock) {
+        super(commands(routine, wheels, clock));
+    }
+
+    private static Command[] commands(CompiledRoutine routine, Mecanum_Wheels wheels, Clock clock) {
+        Command[] commands = new Command[routine.size()];
+        for (int i = 0; i < commands.length; i++) {
+            switch (routine.type(i)) {
+                case CompiledRoutine.WAIT:
+                    commands[i] = new WaitCommand(routine.timeout(i), clock);
+                    break;
+                case CompiledRoutine.FOLLOW:
+                    FollowTrajectoryCommand follow = new FollowTrajectoryCommand(wheels, routine.trajectory(i), clock);
+                    follow.settleTimeout = routine.timeout(i) - routine.trajectory(i).duration();
+                    commands[i] = follow;
+                    break;
+                case CompiledRoutine.ENCODER:
+                    commands[i] = new EncoderDriveCommand(wheels, routine.speed(i),
+                            routine.ticks(i, 0), routine.ticks(i, 1), routine.ticks(i, 2), routine.ticks(i, 3),
+                            routine.timeout(i), clock);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown segment type " + routine.type(i));
+            }
+        }
+        return commands;
+    }
+}
@@ -0,0 +1,51 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+/**
+ * Runs its commands one after another. The next command starts in the same cycle the
+ * previous one finishes, so there is no dead cycle between segments.
+ */
+public class SequentialCommandGroup implements Command {
+    private final Command[] commands;
+    private int current = -1;
+
+    public SequentialCommandGroup(Command... commands) {
+        this.commands = commands;
+    }
+
+    @Override
+    public void initialize() {
+        current = 0;
+        if (commands.length > 0) {
+            commands[0].initialize();
+        }
+    }
+
+    @Override
+    public void execute() {
+        while (current < commands.length) {
+            Command command = commands[current];
+            command.execute();
+            if (!command.isFinished()) {
+                return;
+            }
+            command.end(false);
+            current++;
+            if (current < commands.length) {
+                commands[current].initialize();
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return current >= commands.length;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (interrupted && current >= 0 && current < commands.length) {
+            commands[current].end(true);
+        }
+        current = -1;
+    }
+}
@@ -0,0 +1,12 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+
+/**
+ * A mechanism that needs to be updated every cycle whether or not a command is using it
+ * (a lift holding position, a sensor being polled). The scheduler calls periodic() once per
+ * cycle with that cycle's encoder frame, before any commands run.
+ */
+public interface Subsystem {
+    void periodic(EncoderFrame frame);
+}
@@ -0,0 +1,35 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+/**
+ * Non-blocking replacement for sleep() between autonomous steps.
+ */
+public class WaitCommand implements Command {
+    private final double seconds;
+    private final Clock clock;
+    private long startNanos;
+
+    public WaitCommand(double seconds) {
+        this(seconds, Clock.SYSTEM);
+    }
+
+    public WaitCommand(double seconds, Clock clock) {
+        this.seconds = seconds;
+        this.clock = clock;
+    }
+
+    @Override
+    public void initialize() {
+        startNanos = clock.nanoTime();
+    }
+
+    @Override
+    public void execute() {
+    }
+
+    @Override
+    public boolean isFinished() {
+        return (clock.nanoTime() - startNanos) * 1e-9 >= seconds;
+    }
+}
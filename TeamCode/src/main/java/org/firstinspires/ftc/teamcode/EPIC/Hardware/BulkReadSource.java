@@ -0,0 +1,20 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+/**
+ * Where HardwareSnapshot gets its encoder data from.
+ * On the robot this is LynxBulkReadSource, off the robot it is FakeBulkReadSource.
+ * Channels are numbered in the order the motors were handed to the source.
+ */
+public interface BulkReadSource {
+    // put every hub into MANUAL bulk caching, called once at init
+    void enableManualCaching();
+
+    // throw away last cycle's bulk data so the next read fetches fresh data
+    void clearBulkCache();
+
+    int channelCount();
+
+    int getCurrentPosition(int channel);
+
+    double getVelocity(int channel);
+}
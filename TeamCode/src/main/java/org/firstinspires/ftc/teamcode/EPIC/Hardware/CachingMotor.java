@@ -0,0 +1,109 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+/**
+ * Wraps a DcMotorEx and only sends a command to the hub when it would change something.
+ * setPower/setVelocity are dropped when within epsilon of the last value sent, setMode and
+ * setTargetPosition are dropped when they match the last value sent. Every dropped write is
+ * one less Lynx command in the control loop.
+ *
+ * If something writes to the motor without going through this wrapper, call invalidate().
+ */
+public class CachingMotor {
+    public final DcMotorEx motor;
+
+    // smallest power change worth sending, 0 sends every change
+    public double powerEpsilon;
+    // smallest velocity change (ticks/s) worth sending
+    public double velocityEpsilon;
+
+    public long issuedWrites = 0;
+    public long suppressedWrites = 0;
+
+    private double lastPower = Double.NaN;
+    private double lastVelocity = Double.NaN;
+    private DcMotor.RunMode lastMode = null;
+    private int lastTarget = 0;
+    private boolean targetValid = false;
+
+    public CachingMotor(DcMotorEx motor) {
+        this(motor, 0.005, 1.0);
+    }
+
+    public CachingMotor(DcMotorEx motor, double powerEpsilon, double velocityEpsilon) {
+        this.motor = motor;
+        this.powerEpsilon = powerEpsilon;
+        this.velocityEpsilon = velocityEpsilon;
+    }
+
+    public void setPower(double power) {
+        // a stop command always goes out, even if we are only a hair above zero
+        boolean stopping = power == 0 && lastPower != 0;
+        if (!stopping && Math.abs(power - lastPower) <= powerEpsilon) {
+            suppressedWrites++;
+            return;
+        }
+        motor.setPower(power);
+        lastPower = power;
+        lastVelocity = Double.NaN;
+        issuedWrites++;
+    }
+
+    public void setVelocity(double ticksPerSecond) {
+        boolean stopping = ticksPerSecond == 0 && lastVelocity != 0;
+        if (!stopping && Math.abs(ticksPerSecond - lastVelocity) <= velocityEpsilon) {
+            suppressedWrites++;
+            return;
+        }
+        motor.setVelocity(ticksPerSecond);
+        lastVelocity = ticksPerSecond;
+        lastPower = Double.NaN;
+        issuedWrites++;
+    }
+
+    public void setMode(DcMotor.RunMode mode) {
+        // STOP_AND_RESET_ENCODER is an action, not a state, so it is never skipped
+        if (mode == lastMode && mode != DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            suppressedWrites++;
+            return;
+        }
+        motor.setMode(mode);
+        lastMode = mode;
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            // resetting stops the motor on the hub side
+            lastPower = 0;
+            lastVelocity = 0;
+        }
+        issuedWrites++;
+    }
+
+    public void setTargetPosition(int target) {
+        if (targetValid && target == lastTarget) {
+            suppressedWrites++;
+            return;
+        }
+        motor.setTargetPosition(target);
+        lastTarget = target;
+        targetValid = true;
+        issuedWrites++;
+    }
+
+    public DcMotor.RunMode getMode() {
+        return lastMode != null ? lastMode : motor.getMode();
+    }
+
+    // forget everything we sent, the next write of each kind always goes out
+    public void invalidate() {
+        lastPower = Double.NaN;
+        lastVelocity = Double.NaN;
+        lastMode = null;
+        targetValid = false;
+    }
+
+    public void resetCounts() {
+        issuedWrites = 0;
+        suppressedWrites = 0;
+    }
+}
@@ -0,0 +1,263 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells game pieces apart by color with one table lookup per reading.
+ *
+ *     File file = new File(AppUtil.FIRST_FOLDER, ColorClassifier.FILE_NAME);
+ *     ColorClassifier colors = ColorClassifier.load(file, 32);
+ *     ColorClassifier.Debouncer piece = new ColorClassifier.Debouncer(2, 5);
+ *     ...
+ *     int seen = piece.update(colors.classify(sensor.getNormalizedColors()));
+ *     if (seen != ColorClassifier.NONE) { stop the intake, colors.label(seen) says which }
+ *
+ * All the math happens once at init. Each class is modelled from calibration samples (see
+ * ColorCalibration) as a Gaussian on chromaticity (r/sum, g/sum) and log brightness, so the
+ * same piece a little nearer or further still matches. Every cell of a bins^3 table over
+ * normalized red, green and blue is then labelled with the closest class, or NONE if no
+ * class is within acceptDistance (a chi-square value for 3 degrees of freedom). classify()
+ * just quantizes each channel (a small table of its own) and indexes the big one, no HSV and
+ * no floating-point model.
+ * Alpha (the clear channel) isn't used, it mostly repeats the brightness of the other three.
+ *
+ * The calibration file has one sample per line, "label,red,green,blue,alpha", as written by
+ * ColorCalibration; samples labelled "none" (an empty intake) train NONE itself.
+ */
+public class ColorClassifier {
+    // in AppUtil.FIRST_FOLDER, resolved where it's opened like DriveGains.FILE_NAME
+    public static final String FILE_NAME = "color_samples.csv";
+    public static final int NONE = 0;
+    public static final String NONE_LABEL = "none";
+
+    // resolution of the channel quantizer
+    private static final int STEPS = 4096;
+    // smallest spread allowed per feature, so a very tight cluster still matches its neighbors
+    private static final double[] MIN_SIGMA = {0.01, 0.01, 0.1};
+
+    public final String[] labels;
+    public final int bins;
+    // the table covers 0..maxValue on each channel, anything brighter lands in the top cell
+    public final double maxValue;
+    public final long buildNanos;
+
+    private final byte[] table;
+    // channel value in STEPS of maxValue to table cell
+    private final byte[] cells;
+    private final double scale;
+
+    private ColorClassifier(String[] labels, int bins, double maxValue, byte[] table, byte[] cells, long buildNanos) {
+        this.labels = labels;
+        this.bins = bins;
+        this.maxValue = maxValue;
+        this.table = table;
+        this.cells = cells;
+        this.scale = STEPS / maxValue;
+        this.buildNanos = buildNanos;
+    }
+
+    public int classify(NormalizedRGBA colors) {
+        return classify(colors.red, colors.green, colors.blue);
+    }
+
+    public int classify(double red, double green, double blue) {
+        return table[(cell(red) * bins + cell(green)) * bins + cell(blue)];
+    }
+
+    // table cell of one channel, package private for the tests
+    int cell(double value) {
+        int step = (int) (value * scale);
+        return cells[step < 0 ? 0 : step > STEPS ? STEPS : step];
+    }
+
+    public String label(int classIndex) {
+        return labels[classIndex];
+    }
+
+    public int classCount() {
+        return labels.length;
+    }
+
+    // reads the samples in file and builds the table; a missing file gives a table of NONE
+    public static ColorClassifier load(File file, int bins) throws IOException {
+        List<String> sampleLabels = new ArrayList<>();
+        List<double[]> samples = new ArrayList<>();
+        if (file.exists()) {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split(",");
+                    sampleLabels.add(fields[0].trim());
+                    samples.add(new double[] {Double.parseDouble(fields[1]), Double.parseDouble(fields[2]),
+                            Double.parseDouble(fields[3])});
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return build(sampleLabels, samples, bins, 11.34);
+    }
+
+    // samples are {red, green, blue} normalized readings, one label each
+    public static ColorClassifier build(List<String> sampleLabels, List<double[]> samples, int bins,
+                                       double acceptDistance) {
+        if (bins > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("at most " + Byte.MAX_VALUE + " bins");
+        }
+        long start = System.nanoTime();
+        List<String> labels = new ArrayList<>();
+        labels.add(NONE_LABEL);
+        int[] classOf = new int[samples.size()];
+        double brightest = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            String label = sampleLabels.get(i);
+            int index = labels.indexOf(label);
+            if (index < 0) {
+                labels.add(label);
+                index = labels.size() - 1;
+            }
+            classOf[i] = index;
+            double[] sample = samples.get(i);
+            brightest = Math.max(brightest, Math.max(sample[0], Math.max(sample[1], sample[2])));
+        }
+        int classes = labels.size();
+
+        // mean and spread of each feature per class
+        double[][] mean = new double[classes][3];
+        double[][] sigma = new double[classes][3];
+        int[] count = new int[classes];
+        double[] f = new double[3];
+        for (int i = 0; i < samples.size(); i++) {
+            double[] sample = samples.get(i);
+            if (features(sample[0], sample[1], sample[2], f)) {
+                int c = classOf[i];
+                count[c]++;
+                for (int k = 0; k < 3; k++) {
+                    mean[c][k] += f[k];
+                    sigma[c][k] += f[k] * f[k];
+                }
+            }
+        }
+        for (int c = 0; c < classes; c++) {
+            for (int k = 0; k < 3; k++) {
+                if (count[c] > 0) {
+                    mean[c][k] /= count[c];
+                    double variance = sigma[c][k] / count[c] - mean[c][k] * mean[c][k];
+                    sigma[c][k] = Math.max(Math.sqrt(Math.max(variance, 0)), MIN_SIGMA[k]);
+                }
+            }
+        }
+
+        // cells are on a square-root scale, narrow near black where a small change in one
+        // channel is a big change in color, wide near the top
+        double maxValue = Math.min(1.0, Math.max(brightest * 1.25, 1e-3));
+        byte[] cells = new byte[STEPS + 1];
+        for (int step = 0; step <= STEPS; step++) {
+            cells[step] = (byte) Math.min(bins - 1, (int) (Math.sqrt((double) step / STEPS) * bins));
+        }
+        double[] center = new double[bins];
+        for (int i = 0; i < bins; i++) {
+            double edge = (i + 0.5) / bins;
+            center[i] = maxValue * edge * edge;
+        }
+        byte[] table = new byte[bins * bins * bins];
+        int cell = 0;
+        for (int r = 0; r < bins; r++) {
+            for (int g = 0; g < bins; g++) {
+                for (int b = 0; b < bins; b++) {
+                    int best = NONE;
+                    if (features(center[r], center[g], center[b], f)) {
+                        double bestDistance = acceptDistance;
+                        for (int c = 0; c < classes; c++) {
+                            if (count[c] == 0) {
+                                continue;
+                            }
+                            double distance = 0;
+                            for (int k = 0; k < 3; k++) {
+                                double z = (f[k] - mean[c][k]) / sigma[c][k];
+                                distance += z * z;
+                            }
+                            if (distance < bestDistance) {
+                                bestDistance = distance;
+                                best = c;
+                            }
+                        }
+                    }
+                    table[cell++] = (byte) best;
+                }
+            }
+        }
+        return new ColorClassifier(labels.toArray(new String[0]), bins, maxValue, table, cells,
+                System.nanoTime() - start);
+    }
+
+    // chromaticity and log brightness, false for a reading too dark to say anything
+    private static boolean features(double red, double green, double blue, double[] out) {
+        double sum = red + green + blue;
+        if (sum < 1e-6) {
+            return false;
+        }
+        out[0] = red / sum;
+        out[1] = green / sum;
+        out[2] = Math.log(sum);
+        return true;
+    }
+
+    /**
+     * Turns raw classifications into a steady one: a new class has to be seen enterReads times
+     * in a row before it is reported, and NONE exitReads times, so a piece is caught quickly
+     * but a glint or a gap between readings doesn't drop it.
+     */
+    public static class Debouncer {
+        private final int enterReads;
+        private final int exitReads;
+        private int stable = NONE;
+        private int pending = NONE;
+        private int count = 0;
+
+        public Debouncer(int enterReads, int exitReads) {
+            this.enterReads = enterReads;
+            this.exitReads = exitReads;
+        }
+
+        public int update(int raw) {
+            if (raw == stable) {
+                count = 0;
+                return stable;
+            }
+            if (raw == pending) {
+                count++;
+            } else {
+                pending = raw;
+                count = 1;
+            }
+            if (count >= (raw == NONE ? exitReads : enterReads)) {
+                stable = raw;
+                count = 0;
+            }
+            return stable;
+        }
+
+        public int stable() {
+            return stable;
+        }
+
+        public void reset() {
+            stable = NONE;
+            pending = NONE;
+            count = 0;
+        }
+    }
+}
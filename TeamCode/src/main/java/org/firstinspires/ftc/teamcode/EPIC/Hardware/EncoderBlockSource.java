@@ -0,0 +1,19 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+
+/**
+ * Where DeadWheelOdometry gets its encoder data from.
+ * On the robot this is OctoQuadBlockSource, off the robot it is FakeOctoQuad.
+ * Channels are the OctoQuad's 0-7; velocities are counts per velocity sample interval, the
+ * way the OctoQuad reports them.
+ */
+public interface EncoderBlockSource {
+    // count direction and velocity sample interval of one channel, called once at init
+    void configureChannel(int channel, boolean reversed, int velocityIntervalMs);
+
+    void resetPositions();
+
+    // every channel's position and velocity in one read
+    void read(OctoQuad.EncoderDataBlock block);
+}
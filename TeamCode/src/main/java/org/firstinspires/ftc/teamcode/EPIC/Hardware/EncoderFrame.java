@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+/**
+ * One control cycle's worth of drive encoder data, read once by HardwareSnapshot.
+ * HardwareSnapshot reuses its frames so the control loop allocates nothing: a frame holds
+ * this cycle's numbers until the read after next. Don't write to it, and copy out anything
+ * that has to outlive that.
+ */
+public final class EncoderFrame {
+    public static final int FRONT_LEFT = 0;
+    public static final int FRONT_RIGHT = 1;
+    public static final int BACK_LEFT = 2;
+    public static final int BACK_RIGHT = 3;
+    public static final int WHEELS = 4;
+
+    public long cycle;
+    public long timestampNanos;
+
+    public int frontLeftPosition;
+    public int frontRightPosition;
+    public int backLeftPosition;
+    public int backRightPosition;
+
+    // ticks per second
+    public double frontLeftVelocity;
+    public double frontRightVelocity;
+    public double backLeftVelocity;
+    public double backRightVelocity;
+
+    // HardwareSnapshot fills its frames in place
+    void set(long cycle, long timestampNanos,
+             int frontLeftPosition, int frontRightPosition, int backLeftPosition, int backRightPosition,
+             double frontLeftVelocity, double frontRightVelocity, double backLeftVelocity, double backRightVelocity) {
+        this.cycle = cycle;
+        this.timestampNanos = timestampNanos;
+        this.frontLeftPosition = frontLeftPosition;
+        this.frontRightPosition = frontRightPosition;
+        this.backLeftPosition = backLeftPosition;
+        this.backRightPosition = backRightPosition;
+        this.frontLeftVelocity = frontLeftVelocity;
+        this.frontRightVelocity = frontRightVelocity;
+        this.backLeftVelocity = backLeftVelocity;
+        this.backRightVelocity = backRightVelocity;
+    }
+
+    public int position(int wheel) {
+        switch (wheel) {
+            case FRONT_LEFT: return frontLeftPosition;
+            case FRONT_RIGHT: return frontRightPosition;
+            case BACK_LEFT: return backLeftPosition;
+            case BACK_RIGHT: return backRightPosition;
+            default: throw new IllegalArgumentException("no wheel " + wheel);
+        }
+    }
+
+    public double velocity(int wheel) {
+        switch (wheel) {
+            case FRONT_LEFT: return frontLeftVelocity;
+            case FRONT_RIGHT: return frontRightVelocity;
+            case BACK_LEFT: return backLeftVelocity;
+            case BACK_RIGHT: return backRightVelocity;
+            default: throw new IllegalArgumentException("no wheel " + wheel);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+/**
+ * Reads every drive encoder once per control cycle.
+ * Call read() at the top of each loop iteration; it clears the bulk cache, does the one bulk
+ * read for the cycle and returns the EncoderFrame. Everything else in the cycle (drive code,
+ * telemetry) should use latest() instead of going back to the motors.
+ * The two frames are allocated once and used in turn, so a read allocates nothing and last
+ * cycle's frame is still intact while this cycle's is filled in.
+ * Channels 0..3 of the source must be front left, front right, back left, back right.
+ * Frames are stamped with the given clock, a FakeClock when replaying off the robot.
+ */
+public class HardwareSnapshot {
+    private final BulkReadSource source;
+    private final Clock clock;
+    private final EncoderFrame[] frames = {new EncoderFrame(), new EncoderFrame()};
+    private long cycle = 0;
+    private EncoderFrame latest;
+
+    public HardwareSnapshot(BulkReadSource source) {
+        this(source, Clock.SYSTEM);
+    }
+
+    public HardwareSnapshot(BulkReadSource source, Clock clock) {
+        if (source.channelCount() < EncoderFrame.WHEELS) {
+            throw new IllegalArgumentException("HardwareSnapshot needs " + EncoderFrame.WHEELS + " drive channels");
+        }
+        this.source = source;
+        this.clock = clock;
+        source.enableManualCaching();
+        latest = frames[0];
+        latest.timestampNanos = clock.nanoTime();
+    }
+
+    public EncoderFrame read() {
+        source.clearBulkCache();
+        cycle++;
+        EncoderFrame frame = frames[(int) (cycle & 1)];
+        frame.set(cycle, clock.nanoTime(),
+                source.getCurrentPosition(EncoderFrame.FRONT_LEFT),
+                source.getCurrentPosition(EncoderFrame.FRONT_RIGHT),
+                source.getCurrentPosition(EncoderFrame.BACK_LEFT),
+                source.getCurrentPosition(EncoderFrame.BACK_RIGHT),
+                source.getVelocity(EncoderFrame.FRONT_LEFT),
+                source.getVelocity(EncoderFrame.FRONT_RIGHT),
+                source.getVelocity(EncoderFrame.BACK_LEFT),
+                source.getVelocity(EncoderFrame.BACK_RIGHT));
+        latest = frame;
+        return frame;
+    }
+
+    // last frame read this cycle, no hardware access
+    public EncoderFrame latest() {
+        return latest;
+    }
+
+    public long cycles() {
+        return cycle;
+    }
+}
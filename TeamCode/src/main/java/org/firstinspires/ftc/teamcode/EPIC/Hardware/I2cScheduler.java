@@ -0,0 +1,217 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.EPIC.Command.Subsystem;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads I2C sensor reads over control cycles so they never cost more than a fixed slice
+ * of any one cycle.
+ *
+ *     I2cScheduler i2c = new I2cScheduler(2.0, Clock.SYSTEM);
+ *     final ColorSensor color = hardwareMap.get(ColorSensor.class, "color");
+ *     int colorDevice = i2c.addDevice("color", 20, 1, 3, new I2cScheduler.Poll() {
+ *         @Override
+ *         public void read(double[] values) {
+ *             values[0] = color.red();
+ *             values[1] = color.green();
+ *             values[2] = color.blue();
+ *         }
+ *     });
+ *     scheduler.register(i2c);
+ *     ...
+ *     if (i2c.ageNanos(colorDevice, now) < 100_000_000L) { ... i2c.value(colorDevice, 0) ... }
+ *
+ * Every device has a rate it wants to be read at, a priority (higher goes first) and a poll
+ * that does the actual reads and stores the results. Each cycle the devices that are due are
+ * read in order of priority, then of how late they are, until the next read would push the
+ * cycle's I2C time past budgetMs; the rest wait for a later cycle. How long a read will take
+ * is estimated from that device's recent reads. A device more than starvationPeriods late
+ * goes ahead of the priorities, and the first due device is always read even if it alone is
+ * over budget, so nothing is starved forever.
+ *
+ * Everything happens on the control loop thread (periodic() or run()), so the cached values
+ * need no locking. A hub has one I2C bus per port but runs one command at a time, so one
+ * scheduler per hub is the natural budget. The IMU is read by ImuSampler on its own thread
+ * and isn't counted here.
+ */
+public class I2cScheduler implements Subsystem {
+    public interface Poll {
+        // read the sensor and store the results in values; runs on the control loop thread
+        void read(double[] values);
+    }
+
+    // assumed cost of a device that hasn't been read yet
+    public double initialCostMs = 2.0;
+    public double starvationPeriods = 3;
+    // weight of the newest read in the cost estimate
+    public double costSmoothing = 0.2;
+
+    private final long budgetNanos;
+    private final Clock clock;
+    private final List<Device> devices = new ArrayList<>();
+    private int[] order = new int[0];
+
+    // I2C time spent by the last run(), and the most any run() has spent
+    public long lastCycleNanos = 0;
+    public long worstCycleNanos = 0;
+
+    private static class Device {
+        final String name;
+        final long periodNanos;
+        final int priority;
+        final double[] values;
+        final Poll poll;
+        final LatencyHistogram latency = new LatencyHistogram();
+        double estimateNanos;
+        long readNanos;
+        // the run() time it was last read in; rates are kept against this, not the end of
+        // the read, so a device read late in one cycle isn't pushed back a whole cycle
+        long runNanos;
+        boolean read = false;
+        long reads = 0;
+        // cycles it was due but didn't fit
+        long deferred = 0;
+        // sort key for the current cycle
+        double lateness;
+        boolean starving;
+
+        Device(String name, double hz, int priority, int valueCount, Poll poll) {
+            this.name = name;
+            this.periodNanos = (long) (1e9 / hz);
+            this.priority = priority;
+            this.values = new double[valueCount];
+            this.poll = poll;
+        }
+    }
+
+    public I2cScheduler(double budgetMs, Clock clock) {
+        this.budgetNanos = (long) (budgetMs * 1e6);
+        this.clock = clock;
+    }
+
+    public int addDevice(String name, double hz, int priority, int valueCount, Poll poll) {
+        Device device = new Device(name, hz, priority, valueCount, poll);
+        device.estimateNanos = initialCostMs * 1e6;
+        devices.add(device);
+        order = new int[devices.size()];
+        return devices.size() - 1;
+    }
+
+    @Override
+    public void periodic(EncoderFrame frame) {
+        run(frame.timestampNanos);
+    }
+
+    // reads whichever due devices fit in the budget this cycle
+    public void run(long nowNanos) {
+        int due = 0;
+        for (int i = 0; i < devices.size(); i++) {
+            Device device = devices.get(i);
+            if (!device.read) {
+                device.lateness = Double.MAX_VALUE;
+            } else {
+                long since = nowNanos - device.runNanos;
+                if (since < device.periodNanos) {
+                    continue;
+                }
+                device.lateness = (double) since / device.periodNanos;
+            }
+            device.starving = device.lateness > starvationPeriods;
+            // insertion sort, there are only ever a handful of devices
+            int j = due++;
+            while (j > 0 && goesFirst(device, devices.get(order[j - 1]))) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+
+        long spent = 0;
+        int readCount = 0;
+        for (int k = 0; k < due; k++) {
+            Device device = devices.get(order[k]);
+            if (readCount > 0 && spent + device.estimateNanos > budgetNanos) {
+                device.deferred++;
+                continue;
+            }
+            long start = clock.nanoTime();
+            device.poll.read(device.values);
+            long end = clock.nanoTime();
+            long took = end - start;
+
+            device.latency.record(took);
+            device.estimateNanos = device.reads == 0 ? took
+                    : device.estimateNanos + costSmoothing * (took - device.estimateNanos);
+            device.readNanos = end;
+            device.runNanos = nowNanos;
+            device.read = true;
+            device.reads++;
+            spent += took;
+            readCount++;
+        }
+        lastCycleNanos = spent;
+        if (spent > worstCycleNanos) {
+            worstCycleNanos = spent;
+        }
+    }
+
+    private static boolean goesFirst(Device a, Device b) {
+        if (a.starving != b.starving) {
+            return a.starving;
+        }
+        if (a.priority != b.priority) {
+            return a.priority > b.priority;
+        }
+        return a.lateness > b.lateness;
+    }
+
+    public boolean hasValue(int device) {
+        return devices.get(device).read;
+    }
+
+    public double value(int device, int index) {
+        return devices.get(device).values[index];
+    }
+
+    // the device's cached values, read only
+    public double[] values(int device) {
+        return devices.get(device).values;
+    }
+
+    // how old the cached values are, Long.MAX_VALUE before the first read
+    public long ageNanos(int device, long nowNanos) {
+        Device d = devices.get(device);
+        return d.read ? nowNanos - d.readNanos : Long.MAX_VALUE;
+    }
+
+    public LatencyHistogram latency(int device) {
+        return devices.get(device).latency;
+    }
+
+    public long reads(int device) {
+        return devices.get(device).reads;
+    }
+
+    public long deferred(int device) {
+        return devices.get(device).deferred;
+    }
+
+    // times shown in milliseconds
+    public void report(Telemetry telemetry) {
+        long now = clock.nanoTime();
+        telemetry.addData("i2c", "last %.2f worst %.2f / %.2f ms", lastCycleNanos / 1e6, worstCycleNanos / 1e6,
+                budgetNanos / 1e6);
+        for (int i = 0; i < devices.size(); i++) {
+            Device device = devices.get(i);
+            telemetry.addData(device.name, "%d reads %d deferred age %.0f  p50 %.2f p99 %.2f max %.2f ms",
+                    device.reads, device.deferred, device.read ? (now - device.readNanos) / 1e6 : -1.0,
+                    device.latency.percentile(50) / 1e6, device.latency.percentile(99) / 1e6,
+                    device.latency.max() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.ControlLoopExecutor;
+
+/**
+ * Reads the IMU on its own thread so the control loop never waits on I2C.
+ *
+ * A yaw read plus a rate read is a few milliseconds of I2C on a hub. The sampler does them on a
+ * ControlLoopExecutor at its own rate and publishes each sample through a seqlock: the writer
+ * bumps sequence to odd, writes the fields, bumps it to even; a reader copies the fields
+ * between two reads of sequence and tries again if they differ or are odd. Nobody ever
+ * blocks, a read is a handful of volatile loads, and a reader never sees yaw from one sample
+ * with the time of another. There is one writer (the sampler thread), any number of readers.
+ *
+ * The IMU wraps yaw to +-pi; heading is the same angle unwrapped, so it keeps counting past a
+ * full turn and differences of it never jump by 2 pi. Both are CCW radians, rate is rad/s.
+ * Sample times are the middle of the read, on the sampler's clock.
+ *
+ * The hub runs one command at a time, so a bulk read issued during an IMU read still waits
+ * for it; keep the rate no higher than the heading is actually needed.
+ */
+public class ImuSampler implements ControlLoopExecutor.Task {
+    // caller-owned copy of one sample, filled by read() so the loop doesn't allocate
+    public static class Sample {
+        public long nanos;
+        public double yaw;
+        public double heading;
+        public double rate;
+        // how many samples had been published when this one was, 0 means none yet
+        public long count;
+    }
+
+    private final IMU imu;
+    private final Clock clock;
+    private final ControlLoopExecutor executor;
+
+    private volatile long sequence = 0;
+    private volatile long sampleNanos;
+    private volatile double sampleYaw;
+    private volatile double sampleHeading = Double.NaN;
+    private volatile double sampleRate;
+    private volatile long count = 0;
+
+    // only touched by the writer
+    private double lastYaw;
+
+    // read latency of the last and the slowest IMU read, for telemetry
+    public volatile long lastReadNanos = 0;
+    public volatile long worstReadNanos = 0;
+
+    public ImuSampler(IMU imu, double hz, Clock clock) {
+        this.imu = imu;
+        this.clock = clock;
+        executor = new ControlLoopExecutor("imu", hz, clock, this);
+    }
+
+    public void start() {
+        executor.start();
+    }
+
+    public void stop() {
+        executor.stop();
+    }
+
+    // set if the sampler thread died, usually an IMU that stopped answering
+    public Throwable failure() {
+        return executor.failure;
+    }
+
+    // one IMU read; runs on the sampler thread, or on the caller's when there is no thread (replay)
+    @Override
+    public void step(long nowNanos) {
+        long start = clock.nanoTime();
+        double yaw = imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+        double rate = imu.getRobotAngularVelocity(AngleUnit.RADIANS).zRotationRate;
+        long end = clock.nanoTime();
+        publish(start + (end - start) / 2, yaw, rate);
+
+        long readNanos = end - start;
+        lastReadNanos = readNanos;
+        if (readNanos > worstReadNanos) {
+            worstReadNanos = readNanos;
+        }
+    }
+
+    // writer side, only ever called from one thread
+    void publish(long nanos, double yaw, double rate) {
+        double heading = count == 0 ? yaw : sampleHeading + wrap(yaw - lastYaw);
+        lastYaw = yaw;
+
+        long s = sequence;
+        sequence = s + 1;
+        sampleNanos = nanos;
+        sampleYaw = yaw;
+        sampleHeading = heading;
+        sampleRate = rate;
+        count = count + 1;
+        sequence = s + 2;
+    }
+
+    // copies the newest sample into out, returns false (and leaves out alone) if there is none yet
+    public boolean read(Sample out) {
+        while (true) {
+            long before = sequence;
+            if ((before & 1) == 0) {
+                long nanos = sampleNanos;
+                double yaw = sampleYaw;
+                double heading = sampleHeading;
+                double rate = sampleRate;
+                long n = count;
+                if (sequence == before) {
+                    if (n == 0) {
+                        return false;
+                    }
+                    out.nanos = nanos;
+                    out.yaw = yaw;
+                    out.heading = heading;
+                    out.rate = rate;
+                    out.count = n;
+                    return true;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    // newest unwrapped heading, NaN until the first sample; a single field, no retry needed
+    public double heading() {
+        return sampleHeading;
+    }
+
+    public long samples() {
+        return count;
+    }
+
+    private static double wrap(double angle) {
+        while (angle > Math.PI) {
+            angle -= 2 * Math.PI;
+        }
+        while (angle <= -Math.PI) {
+            angle += 2 * Math.PI;
+        }
+        return angle;
+    }
+}
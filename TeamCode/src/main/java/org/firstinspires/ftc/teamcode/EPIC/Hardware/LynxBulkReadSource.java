@@ -0,0 +1,50 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+import java.util.List;
+
+/**
+ * BulkReadSource backed by the real Control/Expansion hubs.
+ * With the hubs in MANUAL mode the first motor read after clearBulkCache() does one bulk read
+ * per hub, and every other position/velocity/isBusy read that cycle is served from the cache.
+ */
+public class LynxBulkReadSource implements BulkReadSource {
+    private final List<LynxModule> hubs;
+    private final DcMotorEx[] motors;
+
+    public LynxBulkReadSource(List<LynxModule> hubs, DcMotorEx... motors) {
+        this.hubs = hubs;
+        this.motors = motors;
+    }
+
+    @Override
+    public void enableManualCaching() {
+        for (LynxModule hub : hubs) {
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+        }
+    }
+
+    @Override
+    public void clearBulkCache() {
+        for (LynxModule hub : hubs) {
+            hub.clearBulkCache();
+        }
+    }
+
+    @Override
+    public int channelCount() {
+        return motors.length;
+    }
+
+    @Override
+    public int getCurrentPosition(int channel) {
+        return motors[channel].getCurrentPosition();
+    }
+
+    @Override
+    public double getVelocity(int channel) {
+        return motors[channel].getVelocity();
+    }
+}
@@ -0,0 +1,33 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+
+/**
+ * EncoderBlockSource backed by a real OctoQuad.
+ * read() is readAllEncoderData: all eight positions and velocities in a single I2C block
+ * read, about the cost of one hub encoder read.
+ */
+public class OctoQuadBlockSource implements EncoderBlockSource {
+    private final OctoQuad octoquad;
+
+    public OctoQuadBlockSource(OctoQuad octoquad) {
+        this.octoquad = octoquad;
+    }
+
+    @Override
+    public void configureChannel(int channel, boolean reversed, int velocityIntervalMs) {
+        octoquad.setSingleEncoderDirection(channel,
+                reversed ? OctoQuad.EncoderDirection.REVERSE : OctoQuad.EncoderDirection.FORWARD);
+        octoquad.setSingleVelocitySampleInterval(channel, velocityIntervalMs);
+    }
+
+    @Override
+    public void resetPositions() {
+        octoquad.resetAllPositions();
+    }
+
+    @Override
+    public void read(OctoQuad.EncoderDataBlock block) {
+        octoquad.readAllEncoderData(block);
+    }
+}
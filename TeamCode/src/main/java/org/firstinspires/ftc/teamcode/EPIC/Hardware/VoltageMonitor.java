@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import java.util.List;
+
+/**
+ * Battery voltage for feedforward compensation, read at a low rate.
+ * A voltage read is its own Lynx command and the battery changes over seconds, not
+ * milliseconds, so update() only goes to the hub every readPeriodNanos and everything else
+ * uses the cached value. With several hubs the lowest reading wins, zero readings (a hub that
+ * isn't answering) are ignored.
+ *
+ * compensation() is nominal / actual: multiply a power that was tuned at nominalVoltage by it
+ * and the motor sees the same voltage on a tired battery as on a full one.
+ */
+public class VoltageMonitor {
+    public double nominalVoltage = 12.0;
+    // below this the reading is a brownout or a bad sensor, don't compensate past it
+    public double minVoltage = 8.0;
+
+    private final List<VoltageSensor> sensors;
+    private final long readPeriodNanos;
+    private long lastReadNanos;
+    private boolean read = false;
+    private double voltage;
+
+    public long reads = 0;
+
+    public VoltageMonitor(List<VoltageSensor> sensors, double readHz) {
+        this.sensors = sensors;
+        this.readPeriodNanos = (long) (1e9 / readHz);
+        voltage = nominalVoltage;
+    }
+
+    // reads the hubs if the cached value is older than the read period
+    public void update(long nowNanos) {
+        if (read && nowNanos - lastReadNanos < readPeriodNanos) {
+            return;
+        }
+        double lowest = Double.MAX_VALUE;
+        for (VoltageSensor sensor : sensors) {
+            double reading = sensor.getVoltage();
+            if (reading > 0) {
+                lowest = Math.min(lowest, reading);
+            }
+        }
+        if (lowest != Double.MAX_VALUE) {
+            voltage = lowest;
+        }
+        lastReadNanos = nowNanos;
+        read = true;
+        reads++;
+    }
+
+    public double voltage() {
+        return voltage;
+    }
+
+    public double compensation() {
+        return nominalVoltage / Math.max(voltage, minVoltage);
+    }
+}
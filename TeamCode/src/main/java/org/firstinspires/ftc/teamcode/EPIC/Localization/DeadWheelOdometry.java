@@ -0,0 +1,216 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+
+import org.firstinspires.ftc.teamcode.EPIC.Command.Subsystem;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderBlockSource;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+
+/**
+ * Tracks the robot's field position from three dead-wheel pods on an OctoQuad.
+ *
+ * Dead wheels don't slip the way driven mecanum wheels do, and the OctoQuad hands over all
+ * eight channels (position and on-chip velocity) in one I2C block read, so a cycle costs
+ * one read instead of a hub encoder read per pod. Register it with the CommandScheduler and
+ * it reads the block once per cycle in periodic().
+ *
+ * Each pod sits at (x, y) inches in the robot frame and counts along angle (radians CCW
+ * from forward: 0 for the left/right pods, pi/2 for the strafe pod). A robot move
+ * (dx, dy, dTheta) turns a pod by dx cos(angle) + dy sin(angle) + dTheta * lever, where
+ * lever = x sin(angle) - y cos(angle). With three pods that is a 3x3 system, inverted once
+ * whenever the geometry changes, so offsets of any pod from the center are handled exactly.
+ * The move is integrated along an arc like PoseEstimator does.
+ *
+ * The OctoQuad's velocities give vx/vy/omega directly, and also guard the positions: a pod
+ * whose count moved more than glitchInches away from what its velocity allows (a corrupt
+ * block, the chip resetting) is replaced by velocity * dt for that cycle and counted in glitches.
+ *
+ * Track width calibration: beginCalibration(), spin in place some whole number of turns,
+ * then finishCalibration(radians turned). Every pod's lever is measured as its distance
+ * over the angle, and the pod is moved along its lever direction to match, which fixes the
+ * track width and the strafe pod's offset together. More turns average out more error.
+ */
+public class DeadWheelOdometry implements Subsystem {
+    public static final int PODS = 3;
+
+    public static class Pod {
+        public final int channel;
+        public double x;
+        public double y;
+        public final double angle;
+        public final boolean reversed;
+
+        public Pod(int channel, double x, double y, double angle, boolean reversed) {
+            this.channel = channel;
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+            this.reversed = reversed;
+        }
+
+        double lever() {
+            return x * Math.sin(angle) - y * Math.cos(angle);
+        }
+    }
+
+    public final Pod[] pods;
+    public final double ticksPerInch;
+    public int velocityIntervalMs = 20;
+    public double glitchInches = 1.5;
+
+    public double x = 0;
+    public double y = 0;
+    public double heading = 0;
+
+    // robot-relative velocity from the OctoQuad, inches/s and rad/s
+    public double vx = 0;
+    public double vy = 0;
+    public double omega = 0;
+
+    public long reads = 0;
+    public long glitches = 0;
+
+    private final EncoderBlockSource source;
+    private final OctoQuad.EncoderDataBlock block = new OctoQuad.EncoderDataBlock();
+    // robot move (dx, dy, dTheta) from the three pod distances
+    private final double[][] inverse = new double[3][3];
+    private final int[] lastTicks = new int[PODS];
+    private final int[] calibrationTicks = new int[PODS];
+    private final double[] podInches = new double[PODS];
+    private final double[] podSpeeds = new double[PODS];
+    private final double[] twist = new double[3];
+    private final double[] fieldMove = new double[2];
+    private boolean initialized = false;
+    private long lastNanos;
+
+    // pods in the order left, right, strafe
+    public DeadWheelOdometry(EncoderBlockSource source, double ticksPerInch, Pod left, Pod right, Pod strafe) {
+        this.source = source;
+        this.ticksPerInch = ticksPerInch;
+        pods = new Pod[] {left, right, strafe};
+        updateGeometry();
+    }
+
+    // the usual layout: forward pods trackWidth apart either side of center, strafe pod
+    // strafeOffset inches ahead of center, on channels 0, 1, 2
+    public static DeadWheelOdometry threePod(EncoderBlockSource source, double ticksPerInch, double trackWidth,
+                                             double strafeOffset) {
+        return new DeadWheelOdometry(source, ticksPerInch,
+                new Pod(0, 0, trackWidth / 2, 0, false),
+                new Pod(1, 0, -trackWidth / 2, 0, false),
+                new Pod(2, strafeOffset, 0, Math.PI / 2, false));
+    }
+
+    // sets directions and velocity intervals on the chip and zeroes the counts
+    public void initialize() {
+        for (Pod pod : pods) {
+            source.configureChannel(pod.channel, pod.reversed, velocityIntervalMs);
+        }
+        source.resetPositions();
+        initialized = false;
+    }
+
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+    }
+
+    public double trackWidth() {
+        return Math.abs(pods[0].y - pods[1].y);
+    }
+
+    @Override
+    public void periodic(EncoderFrame frame) {
+        update(frame.timestampNanos);
+    }
+
+    // one block read, then integrate the move since the last one
+    public void update(long nowNanos) {
+        source.read(block);
+        reads++;
+        if (!initialized) {
+            for (int i = 0; i < PODS; i++) {
+                lastTicks[i] = block.positions[pods[i].channel];
+            }
+            lastNanos = nowNanos;
+            initialized = true;
+            return;
+        }
+
+        double dt = (nowNanos - lastNanos) * 1e-9;
+        lastNanos = nowNanos;
+        double countsPerSecond = 1000.0 / velocityIntervalMs;
+        for (int i = 0; i < PODS; i++) {
+            int ticks = block.positions[pods[i].channel];
+            double inches = (ticks - lastTicks[i]) / ticksPerInch;
+            double speed = block.velocities[pods[i].channel] * countsPerSecond / ticksPerInch;
+            if (dt > 0 && Math.abs(inches - speed * dt) > glitchInches) {
+                inches = speed * dt;
+                glitches++;
+            }
+            lastTicks[i] = ticks;
+            podInches[i] = inches;
+            podSpeeds[i] = speed;
+        }
+
+        solve(podInches, twist);
+        PoseEstimator.arc(heading, twist[0], twist[1], twist[2], fieldMove);
+        x += fieldMove[0];
+        y += fieldMove[1];
+        heading = PoseEstimator.angleWrap(heading + twist[2]);
+
+        solve(podSpeeds, twist);
+        vx = twist[0];
+        vy = twist[1];
+        omega = twist[2];
+    }
+
+    public void beginCalibration() {
+        System.arraycopy(lastTicks, 0, calibrationTicks, 0, PODS);
+    }
+
+    // radiansTurned is CCW, measured some other way (IMU, counting turns against a tile line)
+    public void finishCalibration(double radiansTurned) {
+        for (int i = 0; i < PODS; i++) {
+            Pod pod = pods[i];
+            double measured = (lastTicks[i] - calibrationTicks[i]) / ticksPerInch / radiansTurned;
+            double shift = measured - pod.lever();
+            pod.x += shift * Math.sin(pod.angle);
+            pod.y -= shift * Math.cos(pod.angle);
+        }
+        updateGeometry();
+    }
+
+    // call after changing pod positions by hand
+    public void updateGeometry() {
+        double[][] m = new double[3][3];
+        for (int i = 0; i < PODS; i++) {
+            m[i][0] = Math.cos(pods[i].angle);
+            m[i][1] = Math.sin(pods[i].angle);
+            m[i][2] = pods[i].lever();
+        }
+        double det = m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+        if (Math.abs(det) < 1e-9) {
+            throw new IllegalArgumentException("pod layout can't tell every direction of motion apart");
+        }
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                // inverse = adjugate / det, adjugate[r][c] is the cofactor of m[c][r]
+                int r1 = (c + 1) % 3;
+                int r2 = (c + 2) % 3;
+                int c1 = (r + 1) % 3;
+                int c2 = (r + 2) % 3;
+                inverse[r][c] = (m[r1][c1] * m[r2][c2] - m[r1][c2] * m[r2][c1]) / det;
+            }
+        }
+    }
+
+    private void solve(double[] pod, double[] out) {
+        for (int r = 0; r < 3; r++) {
+            out[r] = inverse[r][0] * pod[0] + inverse[r][1] * pod[1] + inverse[r][2] * pod[2];
+        }
+    }
+}
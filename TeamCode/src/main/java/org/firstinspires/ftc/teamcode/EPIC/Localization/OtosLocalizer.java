@@ -0,0 +1,93 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.EPIC.Command.Subsystem;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+
+/**
+ * Runs PoseFusion every cycle on the drive encoders and the SparkFun OTOS.
+ *
+ * Register it with the CommandScheduler after Mecanum_Wheels, so the encoder pose has already
+ * been updated from this cycle's bulk read. Every cycle predicts and takes the encoder
+ * velocity; the OTOS (one getPosVelAcc burst read, a millisecond or so of I2C) is read at
+ * otosHz. Its velocity is in its field frame and is turned into the robot frame first.
+ *
+ * initialize() sets inches and radians on the OTOS, its mounting offset, and puts it and the
+ * filter at the encoder pose, so all three share one field frame.
+ */
+public class OtosLocalizer implements Subsystem {
+    public final PoseFusion fusion = new PoseFusion();
+
+    // where the OTOS sits on the robot, inches and radians, see SensorSparkFunOTOS
+    public double offsetX = 0;
+    public double offsetY = 0;
+    public double offsetHeading = 0;
+    public double linearScalar = 1.0;
+    public double angularScalar = 1.0;
+
+    private final SparkFunOTOS otos;
+    private final PoseEstimator encoders;
+    private final long otosPeriodNanos;
+    private final SparkFunOTOS.Pose2D position = new SparkFunOTOS.Pose2D();
+    private final SparkFunOTOS.Pose2D velocity = new SparkFunOTOS.Pose2D();
+    private final SparkFunOTOS.Pose2D acceleration = new SparkFunOTOS.Pose2D();
+    private long lastNanos;
+    private long lastOtosNanos;
+    private boolean started = false;
+
+    public long otosReads = 0;
+
+    public OtosLocalizer(SparkFunOTOS otos, PoseEstimator encoders, double otosHz) {
+        this.otos = otos;
+        this.encoders = encoders;
+        this.otosPeriodNanos = (long) (1e9 / otosHz);
+    }
+
+    // call during init with the robot still; calibrateImu takes the OTOS a moment
+    public void initialize() {
+        otos.setLinearUnit(DistanceUnit.INCH);
+        otos.setAngularUnit(AngleUnit.RADIANS);
+        otos.setOffset(new SparkFunOTOS.Pose2D(offsetX, offsetY, offsetHeading));
+        otos.setLinearScalar(linearScalar);
+        otos.setAngularScalar(angularScalar);
+        otos.calibrateImu();
+        otos.resetTracking();
+        setPose(encoders.x, encoders.y, encoders.heading);
+    }
+
+    public void setPose(double x, double y, double heading) {
+        otos.setPosition(new SparkFunOTOS.Pose2D(x, y, heading));
+        fusion.setPose(x, y, heading, 0.5, 0.02);
+        started = false;
+    }
+
+    @Override
+    public void periodic(EncoderFrame frame) {
+        update(frame.timestampNanos);
+    }
+
+    public void update(long nowNanos) {
+        if (!started) {
+            lastNanos = nowNanos;
+            lastOtosNanos = nowNanos - otosPeriodNanos;
+            started = true;
+        }
+        fusion.predict((nowNanos - lastNanos) * 1e-9);
+        lastNanos = nowNanos;
+        fusion.updateEncoders(encoders.vx, encoders.vy, encoders.omega);
+
+        if (nowNanos - lastOtosNanos >= otosPeriodNanos) {
+            otos.getPosVelAcc(position, velocity, acceleration);
+            otosReads++;
+            lastOtosNanos = nowNanos;
+            fusion.updateOtosPose(position.x, position.y, position.h);
+            double cos = Math.cos(position.h);
+            double sin = Math.sin(position.h);
+            fusion.updateOtosVelocity(velocity.x * cos + velocity.y * sin, -velocity.x * sin + velocity.y * cos,
+                    velocity.h);
+        }
+    }
+}
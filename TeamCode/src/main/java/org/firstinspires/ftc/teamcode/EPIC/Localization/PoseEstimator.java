@@ -0,0 +1,140 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+
+/**
+ * Tracks the robot's field position from the four drive encoders.
+ *
+ * Each update takes the encoder change since the last one, turns it into a robot-relative
+ * move with MecanumKinematics.forward, and integrates it along a constant-curvature arc
+ * (the pose exponential) so driving and turning at the same time doesn't drift the way
+ * straight-line integration does. If an IMU heading is given it replaces the heading change
+ * from the wheels, which slip when turning.
+ *
+ * It only uses numbers that were already read this cycle (an EncoderFrame), so it never
+ * talks to the hub. x/y are in inches, heading is counter-clockwise radians.
+ */
+public class PoseEstimator {
+    private final MecanumKinematics kinematics;
+    private final double ticksPerInch;
+
+    public double x = 0;
+    public double y = 0;
+    public double heading = 0;
+
+    // robot-relative velocity from the last update, inches/s and rad/s
+    public double vx = 0;
+    public double vy = 0;
+    public double omega = 0;
+
+    private final int[] lastTicks = new int[EncoderFrame.WHEELS];
+    private final double[] wheelInches = new double[EncoderFrame.WHEELS];
+    private final double[] twist = new double[3];
+    private final double[] fieldMove = new double[2];
+    private boolean initialized = false;
+    private long lastNanos;
+    private double lastImuHeading;
+
+    public PoseEstimator(MecanumKinematics kinematics, double ticksPerInch) {
+        this.kinematics = kinematics;
+        this.ticksPerInch = ticksPerInch;
+    }
+
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        initialized = false;
+    }
+
+    public void update(EncoderFrame frame) {
+        update(frame.frontLeftPosition, frame.frontRightPosition, frame.backLeftPosition, frame.backRightPosition,
+                frame.timestampNanos, Double.NaN);
+    }
+
+    public void update(EncoderFrame frame, double imuHeading) {
+        update(frame.frontLeftPosition, frame.frontRightPosition, frame.backLeftPosition, frame.backRightPosition,
+                frame.timestampNanos, imuHeading);
+    }
+
+    // imuHeading is CCW radians, NaN to use the wheels for heading as well
+    public void update(int frontLeft, int frontRight, int backLeft, int backRight, long nanos, double imuHeading) {
+        if (!initialized) {
+            lastTicks[EncoderFrame.FRONT_LEFT] = frontLeft;
+            lastTicks[EncoderFrame.FRONT_RIGHT] = frontRight;
+            lastTicks[EncoderFrame.BACK_LEFT] = backLeft;
+            lastTicks[EncoderFrame.BACK_RIGHT] = backRight;
+            lastNanos = nanos;
+            lastImuHeading = imuHeading;
+            initialized = true;
+            return;
+        }
+
+        wheelInches[EncoderFrame.FRONT_LEFT] = (frontLeft - lastTicks[EncoderFrame.FRONT_LEFT]) / ticksPerInch;
+        wheelInches[EncoderFrame.FRONT_RIGHT] = (frontRight - lastTicks[EncoderFrame.FRONT_RIGHT]) / ticksPerInch;
+        wheelInches[EncoderFrame.BACK_LEFT] = (backLeft - lastTicks[EncoderFrame.BACK_LEFT]) / ticksPerInch;
+        wheelInches[EncoderFrame.BACK_RIGHT] = (backRight - lastTicks[EncoderFrame.BACK_RIGHT]) / ticksPerInch;
+        lastTicks[EncoderFrame.FRONT_LEFT] = frontLeft;
+        lastTicks[EncoderFrame.FRONT_RIGHT] = frontRight;
+        lastTicks[EncoderFrame.BACK_LEFT] = backLeft;
+        lastTicks[EncoderFrame.BACK_RIGHT] = backRight;
+
+        kinematics.forward(wheelInches, twist);
+        double dTheta = twist[MecanumKinematics.OMEGA];
+        if (!Double.isNaN(imuHeading) && !Double.isNaN(lastImuHeading)) {
+            dTheta = angleWrap(imuHeading - lastImuHeading);
+        }
+        lastImuHeading = imuHeading;
+
+        integrate(twist[MecanumKinematics.VX], twist[MecanumKinematics.VY], dTheta);
+
+        double dt = (nanos - lastNanos) * 1e-9;
+        lastNanos = nanos;
+        if (dt > 0) {
+            vx = twist[MecanumKinematics.VX] / dt;
+            vy = twist[MecanumKinematics.VY] / dt;
+            omega = dTheta / dt;
+        }
+    }
+
+    // moves the pose by a robot-relative twist along a constant-curvature arc
+    public void integrate(double dx, double dy, double dTheta) {
+        arc(heading, dx, dy, dTheta, fieldMove);
+        x += fieldMove[0];
+        y += fieldMove[1];
+        heading = angleWrap(heading + dTheta);
+    }
+
+    // field-frame x/y move, into out[0] and out[1], of a robot-relative twist (dx, dy, dTheta)
+    // started at heading and driven along a constant-curvature arc (the pose exponential)
+    public static void arc(double heading, double dx, double dy, double dTheta, double[] out) {
+        double s;
+        double c;
+        if (Math.abs(dTheta) < 1e-6) {
+            // Taylor series, sin(t)/t and (1-cos(t))/t blow up near zero
+            s = 1 - dTheta * dTheta / 6;
+            c = dTheta / 2;
+        } else {
+            s = Math.sin(dTheta) / dTheta;
+            c = (1 - Math.cos(dTheta)) / dTheta;
+        }
+        double forward = dx * s - dy * c;
+        double left = dx * c + dy * s;
+
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        out[0] = forward * cos - left * sin;
+        out[1] = forward * sin + left * cos;
+    }
+
+    public static double angleWrap(double radians) {
+        while (radians > Math.PI) {
+            radians -= 2 * Math.PI;
+        }
+        while (radians <= -Math.PI) {
+            radians += 2 * Math.PI;
+        }
+        return radians;
+    }
+}
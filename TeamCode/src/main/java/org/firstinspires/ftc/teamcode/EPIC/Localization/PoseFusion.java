@@ -0,0 +1,224 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.SmallMatrix;
+
+/**
+ * Extended Kalman filter that blends drive encoder odometry with the SparkFun OTOS.
+ *
+ * The two fail in different ways: the wheels lie when they slip, the OTOS lies over carpet
+ * seams and drifts slowly in position. The state is the field pose plus the robot-relative
+ * velocity, {x, y, heading, vx, vy, omega} in inches, radians and seconds. predict() moves it
+ * along an arc at the current velocity; the encoders measure the velocity, the OTOS measures
+ * both the pose and the velocity. Each measurement is gated: if it is further from the
+ * prediction than gate (a chi-square value for 3 degrees of freedom) it is thrown away and
+ * counted, which is what drops the wheels during a slip and the OTOS on a seam. After
+ * maxRejects in a row a sensor is believed anyway, in case it is the filter that is wrong.
+ *
+ * Everything is preallocated, an update allocates nothing. A measurement only touches three
+ * states, so the updates work on blocks of the covariance instead of multiplying by H.
+ */
+public class PoseFusion {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int HEADING = 2;
+    public static final int VX = 3;
+    public static final int VY = 4;
+    public static final int OMEGA = 5;
+    private static final int N = 6;
+
+    // process noise: how hard the robot can accelerate between updates, in/s^2 and rad/s^2
+    public double accelNoise = 80;
+    public double angularAccelNoise = 8;
+    // measurement noise, one standard deviation
+    public double encoderVelocityNoise = 4;
+    public double encoderOmegaNoise = 0.2;
+    public double otosPositionNoise = 0.5;
+    public double otosHeadingNoise = 0.02;
+    public double otosVelocityNoise = 3;
+    public double otosOmegaNoise = 0.1;
+    // 99.9% for 3 degrees of freedom
+    public double gate = 16.27;
+    public int maxRejects = 25;
+
+    public double x = 0;
+    public double y = 0;
+    public double heading = 0;
+    public double vx = 0;
+    public double vy = 0;
+    public double omega = 0;
+
+    public long encoderRejects = 0;
+    public long otosPoseRejects = 0;
+    public long otosVelocityRejects = 0;
+    // Mahalanobis distance squared of the last measurement, accepted or not
+    public double lastDistance = 0;
+
+    private final double[] state = new double[N];
+    private final double[] covariance = new double[N * N];
+    private final double[] jacobian = new double[N * N];
+    private final double[] scratch = new double[N * N];
+    private final double[] innovation = new double[3];
+    private final double[] s = new double[9];
+    private final double[] sInverse = new double[9];
+    private final double[] pht = new double[N * 3];
+    private final double[] gain = new double[N * 3];
+    private final double[] correction = new double[N * N];
+    private final double[] arc = new double[2];
+    private final double[] noise = new double[3];
+    private int encoderStreak = 0;
+    private int otosPoseStreak = 0;
+    private int otosVelocityStreak = 0;
+
+    public PoseFusion() {
+        setPose(0, 0, 0, 1, 0.1);
+    }
+
+    // starts over at a pose, with the given position (inches) and heading (radians) uncertainty
+    public void setPose(double x, double y, double heading, double positionSigma, double headingSigma) {
+        for (int i = 0; i < N; i++) {
+            state[i] = 0;
+        }
+        state[X] = x;
+        state[Y] = y;
+        state[HEADING] = heading;
+        SmallMatrix.identity(covariance, N);
+        covariance[X * N + X] = positionSigma * positionSigma;
+        covariance[Y * N + Y] = positionSigma * positionSigma;
+        covariance[HEADING * N + HEADING] = headingSigma * headingSigma;
+        publish();
+    }
+
+    public void predict(double dt) {
+        if (dt <= 0) {
+            return;
+        }
+        double h = state[HEADING];
+        double cos = Math.cos(h);
+        double sin = Math.sin(h);
+        double fx = state[VX];
+        double fy = state[VY];
+
+        // jacobian of the straight-line step, close enough to the arc's for a few milliseconds
+        SmallMatrix.identity(jacobian, N);
+        jacobian[X * N + HEADING] = (-fx * sin - fy * cos) * dt;
+        jacobian[X * N + VX] = cos * dt;
+        jacobian[X * N + VY] = -sin * dt;
+        jacobian[Y * N + HEADING] = (fx * cos - fy * sin) * dt;
+        jacobian[Y * N + VX] = sin * dt;
+        jacobian[Y * N + VY] = cos * dt;
+        jacobian[HEADING * N + OMEGA] = dt;
+
+        PoseEstimator.arc(h, fx * dt, fy * dt, state[OMEGA] * dt, arc);
+        state[X] += arc[0];
+        state[Y] += arc[1];
+        state[HEADING] = PoseEstimator.angleWrap(h + state[OMEGA] * dt);
+
+        // P = F P F^T + Q
+        SmallMatrix.multiply(jacobian, covariance, scratch, N, N, N);
+        SmallMatrix.multiplyTransposed(scratch, jacobian, covariance, N, N, N);
+        double dv = accelNoise * dt;
+        double dw = angularAccelNoise * dt;
+        covariance[VX * N + VX] += dv * dv;
+        covariance[VY * N + VY] += dv * dv;
+        covariance[OMEGA * N + OMEGA] += dw * dw;
+        publish();
+    }
+
+    // robot-relative velocity from the drive encoders, e.g. PoseEstimator's vx/vy/omega
+    public boolean updateEncoders(double vx, double vy, double omega) {
+        noise[0] = encoderVelocityNoise;
+        noise[1] = encoderVelocityNoise;
+        noise[2] = encoderOmegaNoise;
+        boolean accepted = update(VX, vx, vy, omega, noise, encoderStreak >= maxRejects);
+        encoderStreak = accepted ? 0 : encoderStreak + 1;
+        if (!accepted) {
+            encoderRejects++;
+        }
+        return accepted;
+    }
+
+    // OTOS position, in the same field frame as this filter
+    public boolean updateOtosPose(double x, double y, double heading) {
+        noise[0] = otosPositionNoise;
+        noise[1] = otosPositionNoise;
+        noise[2] = otosHeadingNoise;
+        boolean accepted = update(X, x, y, heading, noise, otosPoseStreak >= maxRejects);
+        otosPoseStreak = accepted ? 0 : otosPoseStreak + 1;
+        if (!accepted) {
+            otosPoseRejects++;
+        }
+        return accepted;
+    }
+
+    // OTOS velocity turned into the robot frame
+    public boolean updateOtosVelocity(double vx, double vy, double omega) {
+        noise[0] = otosVelocityNoise;
+        noise[1] = otosVelocityNoise;
+        noise[2] = otosOmegaNoise;
+        boolean accepted = update(VX, vx, vy, omega, noise, otosVelocityStreak >= maxRejects);
+        otosVelocityStreak = accepted ? 0 : otosVelocityStreak + 1;
+        if (!accepted) {
+            otosVelocityRejects++;
+        }
+        return accepted;
+    }
+
+    // measurement of the three states starting at first, i.e. H = [0 .. I .. 0]
+    private boolean update(int first, double z0, double z1, double z2, double[] sigma, boolean force) {
+        innovation[0] = z0 - state[first];
+        innovation[1] = z1 - state[first + 1];
+        innovation[2] = z2 - state[first + 2];
+        if (first == X) {
+            innovation[2] = PoseEstimator.angleWrap(innovation[2]);
+        }
+
+        // S = H P H^T + R, P H^T
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                s[r * 3 + c] = covariance[(first + r) * N + first + c];
+            }
+            s[r * 3 + r] += sigma[r] * sigma[r];
+        }
+        for (int r = 0; r < N; r++) {
+            for (int c = 0; c < 3; c++) {
+                pht[r * 3 + c] = covariance[r * N + first + c];
+            }
+        }
+        if (!SmallMatrix.invert3(s, sInverse)) {
+            return false;
+        }
+        lastDistance = SmallMatrix.quadratic(sInverse, innovation, 3);
+        if (lastDistance > gate && !force) {
+            return false;
+        }
+
+        // K = P H^T S^-1, x += K y, P -= K (P H^T)^T
+        SmallMatrix.multiply(pht, sInverse, gain, N, 3, 3);
+        for (int r = 0; r < N; r++) {
+            state[r] += gain[r * 3] * innovation[0] + gain[r * 3 + 1] * innovation[1]
+                    + gain[r * 3 + 2] * innovation[2];
+        }
+        state[HEADING] = PoseEstimator.angleWrap(state[HEADING]);
+        SmallMatrix.multiplyTransposed(gain, pht, correction, N, 3, N);
+        for (int i = 0; i < N * N; i++) {
+            covariance[i] -= correction[i];
+        }
+        SmallMatrix.symmetrize(covariance, N);
+        publish();
+        return true;
+    }
+
+    // standard deviation of one state
+    public double sigma(int index) {
+        return Math.sqrt(covariance[index * N + index]);
+    }
+
+    private void publish() {
+        x = state[X];
+        y = state[Y];
+        heading = state[HEADING];
+        vx = state[VX];
+        vy = state[VY];
+        omega = state[OMEGA];
+    }
+}
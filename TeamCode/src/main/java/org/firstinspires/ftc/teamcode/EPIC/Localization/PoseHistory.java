@@ -0,0 +1,96 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+/**
+ * Ring buffer of timestamped poses, one per control cycle, in primitive arrays.
+ * Times must be added in increasing order. lookup() finds the pose at any time still in the
+ * buffer with a binary search (O(log n)) and blends between the two nearest samples.
+ * Nothing allocates after construction; the oldest pose is overwritten when full.
+ */
+public class PoseHistory {
+    private final long[] times;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headings;
+    private final int mask;
+    private int start = 0;
+    private int count = 0;
+
+    // capacity is rounded up to a power of two
+    public PoseHistory(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        times = new long[size];
+        xs = new double[size];
+        ys = new double[size];
+        headings = new double[size];
+        mask = size - 1;
+    }
+
+    public void add(long nanos, double x, double y, double heading) {
+        if (count > 0 && nanos <= times[(start + count - 1) & mask]) {
+            return;
+        }
+        int slot;
+        if (count == times.length) {
+            slot = start;
+            start = (start + 1) & mask;
+        } else {
+            slot = (start + count) & mask;
+            count++;
+        }
+        times[slot] = nanos;
+        xs[slot] = x;
+        ys[slot] = y;
+        headings[slot] = heading;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long oldest() {
+        return times[start];
+    }
+
+    public long newest() {
+        return times[(start + count - 1) & mask];
+    }
+
+    public void clear() {
+        start = 0;
+        count = 0;
+    }
+
+    /**
+     * Writes {x, y, heading} at the given time into out. Returns false (and leaves out alone)
+     * if the time is outside what the buffer still holds.
+     */
+    public boolean lookup(long nanos, double[] out) {
+        if (count == 0 || nanos < oldest() || nanos > newest()) {
+            return false;
+        }
+        // last sample at or before nanos
+        int lo = 0;
+        int hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (times[(start + mid) & mask] <= nanos) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        int a = (start + lo) & mask;
+        if (lo == count - 1 || times[a] == nanos) {
+            out[0] = xs[a];
+            out[1] = ys[a];
+            out[2] = headings[a];
+            return true;
+        }
+        int b = (start + lo + 1) & mask;
+        double f = (double) (nanos - times[a]) / (times[b] - times[a]);
+        out[0] = xs[a] + (xs[b] - xs[a]) * f;
+        out[1] = ys[a] + (ys[b] - ys[a]) * f;
+        out[2] = PoseEstimator.angleWrap(headings[a] + PoseEstimator.angleWrap(headings[b] - headings[a]) * f);
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.robotcore.external.matrices.VectorF;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.teamcode.EPIC.Command.Subsystem;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.AprilTagPipeline;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.TagSnapshot;
+import org.firstinspires.ftc.vision.apriltag.AprilTagLibrary;
+import org.firstinspires.ftc.vision.apriltag.AprilTagMetadata;
+
+import java.util.Arrays;
+
+/**
+ * Hands every new AprilTagPipeline frame to VisionFusion as robot field poses.
+ *
+ * Register it with the CommandScheduler after Mecanum_Wheels, so this cycle's odometry is
+ * already in the fusion history and the commands that run next steer on the corrected pose.
+ * Each tag in the frame whose place on the field is known (addTags/addTag) gives one pose, stamped
+ * with the frame's capture time. Tags are looked up by id in arrays built at init, so a cycle
+ * allocates nothing.
+ *
+ * The tag field poses and the routine's start pose have to be in the same field frame, or
+ * every fix is off by the difference (and dropped by VisionFusion.maxPositionError).
+ */
+public class TagLocalizer implements Subsystem {
+    // where the camera sits on the robot, inches; it must face forward
+    public double cameraForward = 0;
+    public double cameraLeft = 0;
+    // detections less sure than this are ignored
+    public double minDecisionMargin = 0;
+
+    private final AprilTagPipeline pipeline;
+    private final VisionFusion fusion;
+    private final double[] robot = new double[3];
+
+    // field pose of each known tag, indexed by id
+    private boolean[] known = new boolean[0];
+    private double[] tagX = new double[0];
+    private double[] tagY = new double[0];
+    private double[] tagHeading = new double[0];
+
+    private long lastSequence = 0;
+    public long tagsSeen = 0;
+
+    public TagLocalizer(AprilTagPipeline pipeline, VisionFusion fusion) {
+        this.pipeline = pipeline;
+        this.fusion = fusion;
+    }
+
+    // tag center on the field in inches, and the direction its face points in degrees CCW
+    public void addTag(int id, double x, double y, double headingDegrees) {
+        if (id >= known.length) {
+            known = Arrays.copyOf(known, id + 1);
+            tagX = Arrays.copyOf(tagX, id + 1);
+            tagY = Arrays.copyOf(tagY, id + 1);
+            tagHeading = Arrays.copyOf(tagHeading, id + 1);
+        }
+        known[id] = true;
+        tagX[id] = x;
+        tagY[id] = y;
+        tagHeading[id] = Math.toRadians(headingDegrees);
+    }
+
+    // every tag in the library that stands upright somewhere on the field, normally
+    // AprilTagGameDatabase.getCurrentGameTagLibrary(), so the table follows the SDK's game.
+    // The SDK's tag frame has +y out of the printed face, so the face points along +y turned by
+    // fieldOrientation. Tags with no field pose (the sample tags sit at the origin unrotated) and
+    // tags lying flat are left out. Returns how many were added.
+    public int addTags(AprilTagLibrary library) {
+        int added = 0;
+        for (AprilTagMetadata tag : library.getAllTags()) {
+            Quaternion q = tag.fieldOrientation;
+            VectorF position = tag.fieldPosition;
+            if (q == null || position == null) {
+                continue;
+            }
+            double x = tag.distanceUnit.toInches(position.get(0));
+            double y = tag.distanceUnit.toInches(position.get(1));
+            double faceX = 2 * (q.x * q.y - q.w * q.z);
+            double faceY = 1 - 2 * (q.x * q.x + q.z * q.z);
+            boolean unplaced = x == 0 && y == 0 && faceX == 0 && faceY == 1;
+            if (unplaced || Math.hypot(faceX, faceY) < 0.5) {
+                continue;
+            }
+            addTag(tag.id, x, y, Math.toDegrees(Math.atan2(faceY, faceX)));
+            added++;
+        }
+        return added;
+    }
+
+    public boolean hasTag(int id) {
+        return id >= 0 && id < known.length && known[id];
+    }
+
+    @Override
+    public void periodic(EncoderFrame frame) {
+        update();
+    }
+
+    public void update() {
+        TagSnapshot snapshot = pipeline.latest();
+        if (snapshot.sequence == lastSequence) {
+            return;
+        }
+        lastSequence = snapshot.sequence;
+        for (int i = 0; i < snapshot.count(); i++) {
+            int id = snapshot.id(i);
+            if (id < 0 || id >= known.length || !known[id] || snapshot.decisionMargin(i) < minDecisionMargin) {
+                continue;
+            }
+            tagsSeen++;
+            VisionFusion.robotPoseFromTag(tagX[id], tagY[id], tagHeading[id], snapshot.x(i), snapshot.y(i),
+                    snapshot.yaw(i), cameraForward, cameraLeft, robot);
+            fusion.addVision(snapshot.frameNanos, robot[0], robot[1], robot[2]);
+        }
+    }
+}
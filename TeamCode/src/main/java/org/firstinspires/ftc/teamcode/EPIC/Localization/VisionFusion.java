@@ -0,0 +1,145 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+/**
+ * Blends late AprilTag fixes into wheel odometry without steering on stale data.
+ *
+ * Odometry poses go into a PoseHistory every cycle. A vision pose arrives 50-100 ms after its
+ * frame was captured, so it is compared with where odometry said we were at capture time, not
+ * now. A fraction of the difference (a complementary filter) is folded into a rigid transform
+ * from the odometry frame to the field frame. Applying that transform to the current odometry
+ * pose is the same as correcting the pose at capture time and replaying every wheel movement
+ * since, but costs one O(log n) lookup instead of a replay. Nothing allocates.
+ *
+ * Distances in inches, headings CCW radians.
+ */
+public class VisionFusion {
+    // share of each vision error that is applied, 0..1
+    public double positionGain = 0.3;
+    public double headingGain = 0.2;
+    // errors bigger than this are treated as bad detections and ignored
+    public double maxPositionError = 24;
+
+    private final PoseHistory history;
+    private final double[] atCapture = new double[3];
+
+    // odometry frame -> field frame
+    private double tx = 0;
+    private double ty = 0;
+    private double tHeading = 0;
+
+    private double odoX;
+    private double odoY;
+    private double odoHeading;
+
+    public long accepted = 0;
+    public long rejected = 0;
+
+    public VisionFusion(int historyCapacity) {
+        history = new PoseHistory(historyCapacity);
+    }
+
+    // call every cycle with the odometry pose, e.g. from PoseEstimator
+    public void addOdometry(long nanos, double x, double y, double heading) {
+        history.add(nanos, x, y, heading);
+        odoX = x;
+        odoY = y;
+        odoHeading = heading;
+    }
+
+    /**
+     * A field pose measured from a frame captured at captureNanos. Returns false if the frame is
+     * older than the history or the error is unbelievably large.
+     */
+    public boolean addVision(long captureNanos, double x, double y, double heading) {
+        if (!history.lookup(captureNanos, atCapture)) {
+            rejected++;
+            return false;
+        }
+        double cos = Math.cos(tHeading);
+        double sin = Math.sin(tHeading);
+        double ox = atCapture[0];
+        double oy = atCapture[1];
+        double fieldX = cos * ox - sin * oy + tx;
+        double fieldY = sin * ox + cos * oy + ty;
+        double fieldHeading = atCapture[2] + tHeading;
+
+        double ex = x - fieldX;
+        double ey = y - fieldY;
+        if (Math.hypot(ex, ey) > maxPositionError) {
+            rejected++;
+            return false;
+        }
+        double eh = PoseEstimator.angleWrap(heading - fieldHeading);
+
+        // move the transform so the capture-time pose lands on the corrected pose
+        double correctedX = fieldX + positionGain * ex;
+        double correctedY = fieldY + positionGain * ey;
+        tHeading = PoseEstimator.angleWrap(tHeading + headingGain * eh);
+        cos = Math.cos(tHeading);
+        sin = Math.sin(tHeading);
+        tx = correctedX - (cos * ox - sin * oy);
+        ty = correctedY - (sin * ox + cos * oy);
+        accepted++;
+        return true;
+    }
+
+    // forgets every correction and the history, for when the odometry pose is set by hand
+    public void reset() {
+        history.clear();
+        tx = 0;
+        ty = 0;
+        tHeading = 0;
+    }
+
+    // the odometry to field transform, so a flight log can carry it and a replay restore it
+    public double correctionX() {
+        return tx;
+    }
+
+    public double correctionY() {
+        return ty;
+    }
+
+    public double correctionHeading() {
+        return tHeading;
+    }
+
+    public void setCorrection(double x, double y, double heading) {
+        tx = x;
+        ty = y;
+        tHeading = heading;
+    }
+
+    // fused field pose right now
+    public double x() {
+        return Math.cos(tHeading) * odoX - Math.sin(tHeading) * odoY + tx;
+    }
+
+    public double y() {
+        return Math.sin(tHeading) * odoX + Math.cos(tHeading) * odoY + ty;
+    }
+
+    public double heading() {
+        return PoseEstimator.angleWrap(odoHeading + tHeading);
+    }
+
+    /**
+     * Robot field pose from one tag detection. tagX/tagY/tagHeading is where the tag is on the
+     * field and which way it faces; ftcX/ftcY/ftcYawDegrees are the detection's ftcPose values
+     * (camera frame: x right, y forward). The camera is cameraForward/cameraLeft inches from the
+     * robot center and faces forward. Writes {x, y, heading} into out.
+     */
+    public static void robotPoseFromTag(double tagX, double tagY, double tagHeading,
+                                        double ftcX, double ftcY, double ftcYawDegrees,
+                                        double cameraForward, double cameraLeft, double[] out) {
+        double heading = PoseEstimator.angleWrap(tagHeading - Math.PI - Math.toRadians(ftcYawDegrees));
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        // camera forward is (cos, sin), camera right is (sin, -cos)
+        double cameraX = tagX - ftcX * sin - ftcY * cos;
+        double cameraY = tagY + ftcX * cos - ftcY * sin;
+        out[0] = cameraX - (cameraForward * cos - cameraLeft * sin);
+        out[1] = cameraY - (cameraForward * sin + cameraLeft * cos);
+        out[2] = heading;
+    }
+}
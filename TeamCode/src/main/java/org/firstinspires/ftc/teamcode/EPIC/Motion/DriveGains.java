@@ -0,0 +1,148 @@
+package org.firstinspires.ftc.teamcode.EPIC.Motion;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * The drive's tunable numbers in one place, so they can come from a file instead of being
+ * edited in code. GainTuner (in the unit test sources) writes the file on a laptop; push it to
+ * the Control Hub with
+ *     adb push drive_gains.properties /sdcard/FIRST/
+ * and the op modes pick it up at init:
+ *     DriveGains gains = new DriveGains(wheels);
+ *     gains.load(new File(AppUtil.FIRST_FOLDER, DriveGains.FILE_NAME));
+ *     gains.apply(wheels);
+ * which is what loadInto() does. Keys missing from the file keep the value the wheels already had,
+ * so a file only needs the gains that were actually tuned.
+ */
+public class DriveGains {
+    public static final String FILE_NAME = "drive_gains.properties";
+
+    // trajectory follower, x and y share the translation gains
+    public double translationP;
+    public double translationD;
+    public double headingP;
+    public double headingD;
+    public double kS;
+    public double kV;
+    public double kA;
+
+    // encoder drive
+    public double leftErrorAdjustment;
+    public double rightErrorAdjustment;
+    public int velocity;
+
+    public DriveGains(Mecanum_Wheels wheels) {
+        translationP = wheels.follower.xController.kP;
+        translationD = wheels.follower.xController.kD;
+        headingP = wheels.follower.headingController.kP;
+        headingD = wheels.follower.headingController.kD;
+        kS = wheels.follower.kS;
+        kV = wheels.follower.kV;
+        kA = wheels.follower.kA;
+        leftErrorAdjustment = wheels.leftErrorAdjustment;
+        rightErrorAdjustment = wheels.rightErrorAdjustment;
+        velocity = wheels.velocity;
+    }
+
+    public void apply(Mecanum_Wheels wheels) {
+        wheels.follower.xController.kP = translationP;
+        wheels.follower.yController.kP = translationP;
+        wheels.follower.xController.kD = translationD;
+        wheels.follower.yController.kD = translationD;
+        wheels.follower.headingController.kP = headingP;
+        wheels.follower.headingController.kD = headingD;
+        wheels.follower.kS = kS;
+        wheels.follower.kV = kV;
+        wheels.follower.kA = kA;
+        wheels.leftErrorAdjustment = leftErrorAdjustment;
+        wheels.rightErrorAdjustment = rightErrorAdjustment;
+        wheels.velocity = velocity;
+    }
+
+    // FILE_NAME in the FIRST folder into the wheels if it's there, with a telemetry line either
+    // way it goes wrong
+    public static void loadInto(Mecanum_Wheels wheels, Telemetry telemetry) {
+        DriveGains gains = new DriveGains(wheels);
+        try {
+            if (gains.load(new File(AppUtil.FIRST_FOLDER, FILE_NAME))) {
+                gains.apply(wheels);
+                telemetry.addData("gains", gains.toString());
+            }
+        } catch (IOException | NumberFormatException e) {
+            telemetry.addData("gains", "not loaded: %s", e.getMessage());
+        }
+    }
+
+    // returns false and changes nothing if there is no file
+    public boolean load(File file) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        translationP = get(properties, "translationP", translationP);
+        translationD = get(properties, "translationD", translationD);
+        headingP = get(properties, "headingP", headingP);
+        headingD = get(properties, "headingD", headingD);
+        kS = get(properties, "kS", kS);
+        kV = get(properties, "kV", kV);
+        kA = get(properties, "kA", kA);
+        leftErrorAdjustment = get(properties, "leftErrorAdjustment", leftErrorAdjustment);
+        rightErrorAdjustment = get(properties, "rightErrorAdjustment", rightErrorAdjustment);
+        velocity = (int) get(properties, "velocity", velocity);
+        return true;
+    }
+
+    private static double get(Properties properties, String key, double fallback) {
+        String value = properties.getProperty(key);
+        return value == null ? fallback : Double.parseDouble(value.trim());
+    }
+
+    // writes only the given keys, or every gain when there are none
+    public void save(File file, String comment, String... keys) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("translationP", Double.toString(translationP));
+        properties.setProperty("translationD", Double.toString(translationD));
+        properties.setProperty("headingP", Double.toString(headingP));
+        properties.setProperty("headingD", Double.toString(headingD));
+        properties.setProperty("kS", Double.toString(kS));
+        properties.setProperty("kV", Double.toString(kV));
+        properties.setProperty("kA", Double.toString(kA));
+        properties.setProperty("leftErrorAdjustment", Double.toString(leftErrorAdjustment));
+        properties.setProperty("rightErrorAdjustment", Double.toString(rightErrorAdjustment));
+        properties.setProperty("velocity", Integer.toString(velocity));
+        if (keys.length > 0) {
+            Properties some = new Properties();
+            for (String key : keys) {
+                some.setProperty(key, properties.getProperty(key));
+            }
+            properties = some;
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, comment);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("translation P %.3f D %.3f, heading P %.3f D %.3f, kS %.4f kV %.5f kA %.5f",
+                translationP, translationD, headingP, headingD, kS, kV, kA);
+    }
+}
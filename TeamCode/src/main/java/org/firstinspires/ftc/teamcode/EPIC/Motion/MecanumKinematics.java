@@ -0,0 +1,101 @@
+package org.firstinspires.ftc.teamcode.EPIC.Motion;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+
+/**
+ * Mecanum drive kinematics on plain double arrays, nothing in here allocates.
+ *
+ * Robot frame: x forward, y to the left, heading counter-clockwise positive (radians).
+ * Wheel arrays are indexed like EncoderFrame: FRONT_LEFT, FRONT_RIGHT, BACK_LEFT, BACK_RIGHT.
+ * Chassis arrays are {vx, vy, omega}.
+ *
+ * leverArm is (track width + wheel base) / 2 in the same distance unit as the speeds. With a
+ * leverArm of 1 and unitless stick values this gives the same mix the TeleOp has always used.
+ */
+public class MecanumKinematics {
+    public static final int VX = 0;
+    public static final int VY = 1;
+    public static final int OMEGA = 2;
+
+    private static final int FL = EncoderFrame.FRONT_LEFT;
+    private static final int FR = EncoderFrame.FRONT_RIGHT;
+    private static final int BL = EncoderFrame.BACK_LEFT;
+    private static final int BR = EncoderFrame.BACK_RIGHT;
+
+    public double leverArm;
+
+    public MecanumKinematics(double leverArm) {
+        this.leverArm = leverArm;
+    }
+
+    public static MecanumKinematics fromGeometry(double trackWidth, double wheelBase) {
+        return new MecanumKinematics((trackWidth + wheelBase) / 2);
+    }
+
+    // chassis speeds to wheel surface speeds
+    public void inverse(double vx, double vy, double omega, double[] wheels) {
+        double turn = leverArm * omega;
+        wheels[FL] = vx - vy - turn;
+        wheels[FR] = vx + vy + turn;
+        wheels[BL] = vx + vy - turn;
+        wheels[BR] = vx - vy + turn;
+    }
+
+    // wheel surface speeds (or distances) to chassis speeds (or displacement), least squares
+    public void forward(double[] wheels, double[] chassis) {
+        forward(wheels[FL], wheels[FR], wheels[BL], wheels[BR], chassis);
+    }
+
+    public void forward(double fl, double fr, double bl, double br, double[] chassis) {
+        chassis[VX] = (fl + fr + bl + br) / 4;
+        chassis[VY] = (-fl + fr + bl - br) / 4;
+        chassis[OMEGA] = (-fl + fr - bl + br) / (4 * leverArm);
+    }
+
+    /**
+     * Scales all wheels down together so none is above max. Clipping each wheel on its own (what
+     * the SDK does to powers above 1) changes the direction the robot goes; this keeps it.
+     * Returns the scale that was applied.
+     */
+    public static double desaturate(double[] wheels, double max) {
+        double largest = 0;
+        for (int i = 0; i < wheels.length; i++) {
+            double a = Math.abs(wheels[i]);
+            if (a > largest) {
+                largest = a;
+            }
+        }
+        if (largest <= max) {
+            return 1.0;
+        }
+        double scale = max / largest;
+        for (int i = 0; i < wheels.length; i++) {
+            wheels[i] *= scale;
+        }
+        return scale;
+    }
+
+    /**
+     * Turns a field-relative velocity into a robot-relative one, given the robot heading
+     * (counter-clockwise from the field x axis, radians, e.g. IMU yaw). Writes {vx, vy} into out.
+     */
+    public static void fieldToRobot(double vxField, double vyField, double heading, double[] out) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        out[VX] = vxField * cos + vyField * sin;
+        out[VY] = -vxField * sin + vyField * cos;
+    }
+
+    /**
+     * Per-wheel feedforward: kS * sign(v) + kV * v + kA * a for each wheel.
+     * kS/kV/kA are per wheel so one sticky gearbox can get its own numbers.
+     */
+    public static void feedforward(double[] velocity, double[] acceleration,
+                                   double[] kS, double[] kV, double[] kA, double[] out) {
+        for (int i = 0; i < out.length; i++) {
+            double v = velocity[i];
+            double s = v > 0 ? kS[i] : (v < 0 ? -kS[i] : 0);
+            out[i] = s + kV[i] * v + kA[i] * acceleration[i];
+        }
+    }
+}
@@ -1,20 +1,41 @@
 package org.firstinspires.ftc.teamcode.EPIC.Motion;
 
+import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
-
-public class Mecanum_Wheels {
+import org.firstinspires.ftc.teamcode.EPIC.Command.Subsystem;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.CachingMotor;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.ImuSampler;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.LynxBulkReadSource;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.VoltageMonitor;
+import org.firstinspires.ftc.teamcode.EPIC.Localization.PoseEstimator;
+import org.firstinspires.ftc.teamcode.EPIC.Localization.VisionFusion;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.TrajectoryFollower;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopTelemetry;
+
+import java.util.Arrays;
+
+public class Mecanum_Wheels implements Subsystem {
     //Configuration used: 6wheelConfig
     public DcMotorEx frontright;
     public DcMotorEx frontleft;
     public DcMotorEx backright;
     public DcMotorEx backleft;
+    //all power/mode/target writes go through these so unchanged values are never re-sent
+    public CachingMotor frontrightCache;
+    public CachingMotor frontleftCache;
+    public CachingMotor backrightCache;
+    public CachingMotor backleftCache;
     double backcorrection = 1.0;
 
     //public DcMotorEx xRail;
@@ -26,6 +47,10 @@ public class Mecanum_Wheels {
 
     public double mecanumWheelCircumference = 12; //inches
     public double omniWheelCircumference = 12; //inches
+    public double ticksPerRev = 537.7;
+    //wheel center to wheel center, used for odometry turning
+    public double trackWidth = 14; //inches, left to right
+    public double wheelBase = 12; //inches, front to back
 
 
 
@@ -37,23 +62,97 @@ public class Mecanum_Wheels {
 
     public Telemetry telemetry;
 
+    //lever arm of 1 keeps the stick mix unitless
+    public MecanumKinematics kinematics = new MecanumKinematics(1.0);
+    private final double[] wheelPowers = new double[4];
+    private final double[] fieldCentric = new double[3];
+
+    private LoopTelemetry driveTelemetry;
+    private int pathTargetLine;
+    private int pathPositionLine;
+
+    //targets of the current encoder drive, in ticks
+    public int frontLeftTarget;
+    public int frontRightTarget;
+    public int backLeftTarget;
+    public int backRightTarget;
+
+    //one bulk read per control cycle, see HardwareSnapshot
+    public HardwareSnapshot snapshot;
+
+    //real robot geometry in inches, for odometry and trajectories
+    public MecanumKinematics driveKinematics;
+
+    //field position from the drive encoders, updated by periodic()
+    public PoseEstimator pose;
+
+    //odometry history for folding in late AprilTag fixes, about a second at loop rate.
+    //fusion.x()/y()/heading() is the pose to steer on; it is the odometry pose until a TagLocalizer adds a fix
+    public VisionFusion fusion = new VisionFusion(256);
+
+    public TrajectoryFollower follower;
+    public final double[] followerPowers = new double[4];
+
+    //how wheel powers from move()/setWheelPowers() reach the motors:
+    //POWER sends them as they are in whatever run mode the motors are in,
+    //VOLTAGE_COMPENSATED runs open loop (RUN_WITHOUT_ENCODER) and scales them by nominal/battery voltage,
+    //VELOCITY treats them as a fraction of free speed and lets the hub hold that speed (setVelocity)
+    public enum DriveMode { POWER, VOLTAGE_COMPENSATED, VELOCITY }
+    private DriveMode driveMode = DriveMode.POWER;
+    private final double[] appliedPowers = new double[4];
+
+    //when set, move()/setWheelPowers() only work out the powers and flushWrites() sends them,
+    //so a profiled loop can time the math and the hub writes as separate stages. stop() always sends.
+    public boolean deferWrites = false;
+    private boolean writePending;
+
+    //slew limit and slip back-off on move()/setWheelPowers(), off when null
+    public TractionControl traction;
+
+    //heading from the IMU thread for odometry, wheels only when null
+    public ImuSampler imu;
+    //the IMU heading the last periodic() used, NaN without one
+    public double imuHeading = Double.NaN;
+
+    //battery voltage, read a few times a second from periodic() in VOLTAGE_COMPENSATED mode
+    public VoltageMonitor voltage;
+    public double maxTicksPerSecond = 312 / 60.0 * 537.7;
+
     public Mecanum_Wheels(HardwareMap hardwareMap) {
+        this(hardwareMap, Clock.SYSTEM);
+    }
+
+    //clock stamps the encoder frames, a FakeClock when replaying off the robot
+    public Mecanum_Wheels(HardwareMap hardwareMap, Clock clock) {
         frontright = hardwareMap.get(DcMotorEx.class,"frontright");
         frontleft = hardwareMap.get(DcMotorEx.class,"frontleft");
         backright = hardwareMap.get(DcMotorEx.class,"backright");
         backleft = hardwareMap.get(DcMotorEx.class,"backleft");
 
         //xRail = hardwareMap.get(DcMotorEx.class, "xRail");
+
+        frontrightCache = new CachingMotor(frontright);
+        frontleftCache = new CachingMotor(frontleft);
+        backrightCache = new CachingMotor(backright);
+        backleftCache = new CachingMotor(backleft);
+
+        driveKinematics = MecanumKinematics.fromGeometry(trackWidth, wheelBase);
+        pose = new PoseEstimator(driveKinematics, ticksPerInch());
+        follower = new TrajectoryFollower(driveKinematics);
+
+        snapshot = new HardwareSnapshot(new LynxBulkReadSource(hardwareMap.getAll(LynxModule.class),
+                frontleft, frontright, backleft, backright), clock);
+        voltage = new VoltageMonitor(hardwareMap.getAll(VoltageSensor.class), 4);
     }
 
     //initialize for TeleOp
     public void initialize() {
         double reset = 0;
-        frontright.setPower(reset);
+        frontrightCache.setPower(reset);
         //frontright.setDirection(DcMotorSimple.Direction.REVERSE);
-        frontleft.setPower(reset);
-        backleft.setPower(reset);
-        backright.setPower(reset);
+        frontleftCache.setPower(reset);
+        backleftCache.setPower(reset);
+        backrightCache.setPower(reset);
 
         backright.setDirection(DcMotorSimple.Direction.FORWARD);
         frontright.setDirection(DcMotorSimple.Direction.FORWARD);
@@ -70,20 +169,20 @@ public class Mecanum_Wheels {
         {
 
 
-            frontleft.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+            frontleftCache.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
 
-            backleft.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-            frontright.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+            backleftCache.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+            frontrightCache.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
 
-            backright.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+            backrightCache.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
 
 
-            frontleft.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            frontleftCache.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
 
-            backleft.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-            frontright.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            backleftCache.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            frontrightCache.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
 
-            backright.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            backrightCache.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         }
     }
 
@@ -91,80 +190,251 @@ public class Mecanum_Wheels {
     public void encoderDrive(double speed,
                              double frontLeftInches, double backLeftInches, double frontRightInches,
                              double backRightInches, double timeoutS) {
-        int new_frontLeftTarget;
-        int new_frontRightTarget;
-        int new_backLeftTarget;
-        int new_backRightTarget;
-        double ticksPerInchMecanum = (537.7 / mecanumWheelCircumference);
         // Ensure that the opmode is still active
         if (parent.opModeIsActive()) {
+            startEncoderDrive(speed, frontLeftInches, backLeftInches, frontRightInches, backRightInches,
+                    snapshot.read());
+
+            // reset the timeout time
+            runtime.reset();
 
-            // Determine new target position, and pass to motor controller
-            new_frontLeftTarget = frontleft.getCurrentPosition() + (int) (frontLeftInches * ticksPerInchMecanum);
-            new_frontRightTarget = frontright.getCurrentPosition() + (int) (frontRightInches * ticksPerInchMecanum);
+            // keep looping while we are still active, and there is time left, and both motors are running.
+            // isBusy() is answered from the bulk cache that snapshot.read() refreshes each pass.
+            if (driveTelemetry == null) {
+                driveTelemetry = new LoopTelemetry(telemetry, Clock.SYSTEM);
+                pathTargetLine = driveTelemetry.addLine("Path1", "Running to ", 4, 7);
+                pathPositionLine = driveTelemetry.addLine("Path2", "Running at ", 4, 7);
+            }
+            driveTelemetry.set(pathTargetLine, frontLeftTarget, frontRightTarget, backLeftTarget, backRightTarget);
 
-            new_backLeftTarget = backleft.getCurrentPosition() + (int) (backLeftInches * ticksPerInchMecanum);
-            new_backRightTarget = backright.getCurrentPosition() + (int) (backRightInches * ticksPerInchMecanum);
-            frontleft.setTargetPosition(new_frontLeftTarget);
-            frontright.setTargetPosition(new_frontRightTarget);
+            EncoderFrame frame = snapshot.read();
+            while (parent.opModeIsActive() &&
+                    (runtime.seconds() < timeoutS) &&
+                    encoderDriveBusy()) {
+                // Display it for the driver, only formatted when the Driver Station is due an update.
+                driveTelemetry.set(pathPositionLine,
+                        frame.frontLeftPosition,
+                        frame.frontRightPosition,
+
+                        frame.backLeftPosition,
+                        frame.backRightPosition);
+                driveTelemetry.update();
+                frame = snapshot.read();
+                periodic(frame);
+            }
+        }
+        stopEncoderDrive();
 
+        //  sleep(250);   // optional pause after each move
 
-            backleft.setTargetPosition(new_backLeftTarget);
-            backright.setTargetPosition(new_backRightTarget);
+    }
 
-            // Turn On RUN_TO_POSITION
-            frontleft.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-            frontright.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+    //first half of encoderDrive: set targets relative to frame and start moving, does not wait
+    public void startEncoderDrive(double speed,
+                                  double frontLeftInches, double backLeftInches, double frontRightInches,
+                                  double backRightInches, EncoderFrame frame) {
+        double ticksPerInchMecanum = ticksPerInch();
+        startEncoderDriveTicks(speed, (int) (frontLeftInches * ticksPerInchMecanum), (int) (backLeftInches * ticksPerInchMecanum),
+                (int) (frontRightInches * ticksPerInchMecanum), (int) (backRightInches * ticksPerInchMecanum), frame);
+    }
 
-            backleft.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-            backright.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+    //same as startEncoderDrive, with distances already converted to ticks
+    public void startEncoderDriveTicks(double speed,
+                                       int frontLeftTicks, int backLeftTicks, int frontRightTicks,
+                                       int backRightTicks, EncoderFrame frame) {
+        //a held-back move() from earlier in the cycle must not overwrite the drive speed
+        writePending = false;
+        // Determine new target position, and pass to motor controller
+        frontLeftTarget = frame.frontLeftPosition + frontLeftTicks;
+        frontRightTarget = frame.frontRightPosition + frontRightTicks;
 
-            // reset the timeout time and start motion.
-            runtime.reset();
-            frontleft.setPower(speed*leftErrorAdjustment);
-            frontright.setPower(speed*rightErrorAdjustment);
+        backLeftTarget = frame.backLeftPosition + backLeftTicks;
+        backRightTarget = frame.backRightPosition + backRightTicks;
+        frontleftCache.setTargetPosition(frontLeftTarget);
+        frontrightCache.setTargetPosition(frontRightTarget);
 
-            backleft.setPower(speed*leftErrorAdjustment);
-            backright.setPower(speed*rightErrorAdjustment);
 
-            // keep looping while we are still active, and there is time left, and both motors are running.
-            while (parent.opModeIsActive() &&
-                    (runtime.seconds() < timeoutS) &&
-                    (frontleft.isBusy() || frontright.isBusy() || backleft.isBusy() || backright.isBusy())) {
-                // Display it for the driver.
-                telemetry.addData("Path1", "Running to %7d  :%7d :%7d :%7d", new_frontLeftTarget, new_frontRightTarget, new_backLeftTarget, new_backRightTarget);
-                telemetry.addData("Path2", "Running at %7d :%7d :%7d :%7d",
-                        frontleft.getCurrentPosition(),
-                        frontright.getCurrentPosition(),
-
-                        backleft.getCurrentPosition(),
-                        backright.getCurrentPosition());
-                telemetry.update();
-            }
-        }
+        backleftCache.setTargetPosition(backLeftTarget);
+        backrightCache.setTargetPosition(backRightTarget);
+
+        // Turn On RUN_TO_POSITION
+        frontleftCache.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        frontrightCache.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+
+        backleftCache.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        backrightCache.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+
+        // start motion.
+        frontleftCache.setPower(speed*leftErrorAdjustment);
+        frontrightCache.setPower(speed*rightErrorAdjustment);
+
+        backleftCache.setPower(speed*leftErrorAdjustment);
+        backrightCache.setPower(speed*rightErrorAdjustment);
+    }
+
+    public double ticksPerInch() {
+        return ticksPerRev / mecanumWheelCircumference;
+    }
+
+    //true while any wheel is still running to its target
+    public boolean encoderDriveBusy() {
+        return frontleft.isBusy() || frontright.isBusy() || backleft.isBusy() || backright.isBusy();
+    }
+
+    //second half of encoderDrive: stop and go back to RUN_USING_ENCODER
+    public void stopEncoderDrive() {
         // Stop all motion;
-        frontleft.setPower(0);
-        frontright.setPower(0);
+        frontleftCache.setPower(0);
+        frontrightCache.setPower(0);
 
-        backleft.setPower(0);
-        backright.setPower(0);
+        backleftCache.setPower(0);
+        backrightCache.setPower(0);
 
         // Turn off RUN_TO_POSITION
-        frontleft.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        frontright.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        setDriveRunMode();
+    }
 
-        backleft.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        backright.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+    //puts odometry at a field pose and drops any AprilTag correction, the two frames agree again
+    public void setPose(double x, double y, double heading) {
+        pose.setPose(x, y, heading);
+        fusion.reset();
+    }
 
-        //  sleep(250);   // optional pause after each move
+    //called once per cycle with that cycle's bulk read, keeps the pose up to date
+    @Override
+    public void periodic(EncoderFrame frame) {
+        if (driveMode == DriveMode.VOLTAGE_COMPENSATED) {
+            voltage.update(frame.timestampNanos);
+        }
+        imuHeading = imu == null ? Double.NaN : imu.heading();
+        pose.update(frame, imuHeading);
+        fusion.addOdometry(frame.timestampNanos, pose.x, pose.y, pose.heading);
+    }
+
+    public long issuedWrites() {
+        return frontrightCache.issuedWrites + frontleftCache.issuedWrites
+                + backrightCache.issuedWrites + backleftCache.issuedWrites;
+    }
 
+    public long suppressedWrites() {
+        return frontrightCache.suppressedWrites + frontleftCache.suppressedWrites
+                + backrightCache.suppressedWrites + backleftCache.suppressedWrites;
     }
 
+    //power changes smaller than this are not sent to the hub
+    public void setPowerEpsilon(double epsilon) {
+        frontrightCache.powerEpsilon = epsilon;
+        frontleftCache.powerEpsilon = epsilon;
+        backrightCache.powerEpsilon = epsilon;
+        backleftCache.powerEpsilon = epsilon;
+    }
+
+    public void setDriveMode(DriveMode mode) {
+        driveMode = mode;
+        //kS would only add a constant speed on top of what the hub already holds
+        follower.hubHoldsVelocity = mode == DriveMode.VELOCITY;
+        if (mode != DriveMode.POWER) {
+            setDriveRunMode();
+        }
+    }
+
+    //the run mode move()/setWheelPowers() expect, also restored after an encoder drive
+    private void setDriveRunMode() {
+        DcMotor.RunMode runMode = driveMode == DriveMode.VOLTAGE_COMPENSATED
+                ? DcMotor.RunMode.RUN_WITHOUT_ENCODER : DcMotor.RunMode.RUN_USING_ENCODER;
+        frontleftCache.setMode(runMode);
+        frontrightCache.setMode(runMode);
+        backleftCache.setMode(runMode);
+        backrightCache.setMode(runMode);
+    }
+
+    public DriveMode driveMode() {
+        return driveMode;
+    }
+
+    //lefty/leftx/rightx are gamepad sticks: forward is -lefty, strafe right is leftx, turn right is rightx.
+    //righty is not used.
     public void move(double lefty, double righty, double leftx, double rightx){
-        frontright.setPower((-lefty  - rightx - leftx)*rightErrorAdjustment); // should work same as above
-        frontleft.setPower((-lefty + rightx + leftx)*leftErrorAdjustment);
-        backright.setPower((-lefty - rightx + leftx)*rightErrorAdjustment);
-        backleft.setPower((-lefty + rightx - leftx)*leftErrorAdjustment);
+        kinematics.inverse(-lefty, -leftx, -rightx, wheelPowers);
+        writeWheelPowers();
+    }
 
+    //same sticks as move(), but forward/strafe are relative to the field, heading is CCW radians (IMU yaw)
+    public void moveFieldCentric(double lefty, double leftx, double rightx, double heading){
+        MecanumKinematics.fieldToRobot(-lefty, -leftx, heading, fieldCentric);
+        kinematics.inverse(fieldCentric[MecanumKinematics.VX], fieldCentric[MecanumKinematics.VY], -rightx, wheelPowers);
+        writeWheelPowers();
+    }
+
+    //wheel powers in EncoderFrame order (FL, FR, BL, BR), desaturated before they are sent
+    public void setWheelPowers(double[] powers){
+        System.arraycopy(powers, 0, wheelPowers, 0, 4);
+        writeWheelPowers();
+    }
+
+    //last commanded power before error adjustment, EncoderFrame order
+    public double wheelPower(int wheel){
+        return wheelPowers[wheel];
+    }
+
+    //what was last sent to the hub after traction control, error adjustment and voltage compensation,
+    //EncoderFrame order; a fraction of free speed in VELOCITY mode
+    public double appliedPower(int wheel){
+        return appliedPowers[wheel];
+    }
+
+    public void stop(){
+        Arrays.fill(wheelPowers, 0);
+        writeWheelPowers();
+        flushWrites();
+    }
+
+    //sends the powers the last move()/setWheelPowers() worked out, if deferWrites held them back
+    public void flushWrites(){
+        if (writePending) {
+            writePending = false;
+            sendAppliedPowers();
+        }
+    }
+
+    //scale down together instead of letting the SDK clip each wheel, so the direction is kept
+    private void writeWheelPowers(){
+        MecanumKinematics.desaturate(wheelPowers, 1.0);
+        System.arraycopy(wheelPowers, 0, appliedPowers, 0, 4);
+        if (traction != null) {
+            traction.apply(appliedPowers, snapshot.latest());
+        }
+        appliedPowers[EncoderFrame.FRONT_LEFT] *= leftErrorAdjustment;
+        appliedPowers[EncoderFrame.BACK_LEFT] *= leftErrorAdjustment;
+        appliedPowers[EncoderFrame.FRONT_RIGHT] *= rightErrorAdjustment;
+        appliedPowers[EncoderFrame.BACK_RIGHT] *= rightErrorAdjustment;
+
+        if (driveMode == DriveMode.VOLTAGE_COMPENSATED) {
+            //the feedforward was tuned at nominal voltage, ask for the same volts from a lower battery
+            double compensation = voltage.compensation();
+            for (int i = 0; i < 4; i++) {
+                appliedPowers[i] *= compensation;
+            }
+            MecanumKinematics.desaturate(appliedPowers, 1.0);
+        }
+        if (deferWrites) {
+            writePending = true;
+        } else {
+            sendAppliedPowers();
+        }
+    }
+
+    private void sendAppliedPowers(){
+        if (driveMode == DriveMode.VELOCITY) {
+            frontrightCache.setVelocity(appliedPowers[EncoderFrame.FRONT_RIGHT]*maxTicksPerSecond);
+            frontleftCache.setVelocity(appliedPowers[EncoderFrame.FRONT_LEFT]*maxTicksPerSecond);
+            backrightCache.setVelocity(appliedPowers[EncoderFrame.BACK_RIGHT]*maxTicksPerSecond);
+            backleftCache.setVelocity(appliedPowers[EncoderFrame.BACK_LEFT]*maxTicksPerSecond);
+            return;
+        }
+        frontrightCache.setPower(appliedPowers[EncoderFrame.FRONT_RIGHT]);
+        frontleftCache.setPower(appliedPowers[EncoderFrame.FRONT_LEFT]);
+        backrightCache.setPower(appliedPowers[EncoderFrame.BACK_RIGHT]);
+        backleftCache.setPower(appliedPowers[EncoderFrame.BACK_LEFT]);
     }
 }
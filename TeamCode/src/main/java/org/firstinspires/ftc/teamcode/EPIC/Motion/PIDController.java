@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.EPIC.Motion;
+
+/**
+ * Plain PID on an error value. The caller works out the error (so heading wrap-around is
+ * handled before it gets here) and the time step.
+ */
+public class PIDController {
+    public double kP;
+    public double kI;
+    public double kD;
+    // the integral term is never allowed past this, so it can't wind up while we are stuck
+    public double maxIntegral = 1.0;
+
+    private double integral = 0;
+    private double lastError = 0;
+    private boolean first = true;
+
+    public PIDController(double kP, double kI, double kD) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+    }
+
+    public double update(double error, double dt) {
+        double derivative = 0;
+        if (!first && dt > 0) {
+            derivative = (error - lastError) / dt;
+        }
+        if (dt > 0) {
+            integral += error * dt;
+            if (kI != 0) {
+                double limit = maxIntegral / Math.abs(kI);
+                integral = Math.max(-limit, Math.min(limit, integral));
+            }
+        }
+        lastError = error;
+        first = false;
+        return kP * error + kI * integral + kD * derivative;
+    }
+
+    public void reset() {
+        integral = 0;
+        lastError = 0;
+        first = true;
+    }
+}
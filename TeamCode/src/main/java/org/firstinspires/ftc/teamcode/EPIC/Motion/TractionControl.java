@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.EPIC.Motion;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+
+/**
+ * Keeps the drive wheels gripping when the driver slams the sticks.
+ *
+ * Two parts, both on plain arrays with nothing allocated per cycle:
+ *  - a slew-rate limit per wheel: power may grow by at most accelRate per second and shrink
+ *    (or reverse) by at most decelRate per second;
+ *  - slip detection from the bulk read: gripping, a wheel can only speed up about as fast as
+ *    mu * g lets the robot, so a wheel that speeds up faster than maxWheelAccel in the
+ *    direction it is being driven has broken loose. Then every wheel's power is cut by backoff
+ *    and the slew limit brings it back up. All wheels are cut together so the mecanum mix,
+ *    and with it the direction of travel, is kept.
+ *
+ * Mecanum_Wheels runs this on the wheel powers just before they are written, whenever its
+ * traction field is set.
+ */
+public class TractionControl {
+    // power per second
+    public double accelRate = 4.0;
+    public double decelRate = 8.0;
+    // ticks/s^2; mu 0.8 on tile is about 310 in/s^2, 44.8 ticks per inch
+    public double maxWheelAccel = 14000;
+    public double backoff = 0.7;
+
+    public final boolean[] slipping = new boolean[4];
+    public long slipCycles = 0;
+
+    private final double[] output = new double[4];
+    private final double[] lastVelocity = new double[4];
+    private long lastNanos = -1;
+
+    public void reset() {
+        for (int i = 0; i < 4; i++) {
+            output[i] = 0;
+            slipping[i] = false;
+        }
+        lastNanos = -1;
+    }
+
+    // powers in EncoderFrame order are replaced with what should be sent; frame is this cycle's read
+    public void apply(double[] powers, EncoderFrame frame) {
+        if (lastNanos < 0) {
+            lastNanos = frame.timestampNanos;
+            for (int i = 0; i < 4; i++) {
+                lastVelocity[i] = frame.velocity(i);
+            }
+        }
+        double dt = (frame.timestampNanos - lastNanos) * 1e-9;
+
+        boolean anySlip = false;
+        if (dt > 0) {
+            for (int i = 0; i < 4; i++) {
+                double velocity = frame.velocity(i);
+                double accel = (velocity - lastVelocity[i]) / dt;
+                slipping[i] = Math.abs(accel) > maxWheelAccel && accel * output[i] > 0;
+                anySlip |= slipping[i];
+                lastVelocity[i] = velocity;
+            }
+            lastNanos = frame.timestampNanos;
+        }
+        if (anySlip) {
+            slipCycles++;
+        }
+
+        for (int i = 0; i < 4; i++) {
+            double current = anySlip ? output[i] * backoff : output[i];
+            double target = powers[i];
+            boolean speedingUp = Math.abs(target) > Math.abs(current) && target * current >= 0;
+            double maxStep = (speedingUp ? accelRate : decelRate) * dt;
+            output[i] = current + Math.max(-maxStep, Math.min(maxStep, target - current));
+            powers[i] = output[i];
+        }
+    }
+}
@@ -1,73 +1,251 @@
 package org.firstinspires.ftc.teamcode.EPIC.OpModes;
 
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
 import com.qualcomm.robotcore.eventloop.opmode.Disabled;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.IMU;
 
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.EPIC.Command.Command;
+import org.firstinspires.ftc.teamcode.EPIC.Command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.EPIC.Command.RoutineCommand;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.ImuSampler;
+import org.firstinspires.ftc.teamcode.EPIC.Localization.TagLocalizer;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.DriveGains;
 import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.CompiledRoutine;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.RoutineCompiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightRecorder;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopProfiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopTelemetry;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.AprilTagPipeline;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.AprilTagSource;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.PortalVisionKnobs;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.TagSnapshot;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.VisionScheduler;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.VisionTuner;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.io.File;
+import java.io.IOException;
 
 @com.qualcomm.robotcore.eventloop.opmode.Autonomous(name = "Test Auton")
 @Disabled
 public class Autonomous extends LinearOpMode {
+    //res/raw routine file, see RoutineCompiler for the format
+    public static String ROUTINE = "test_auton";
+    //profiler stages
+    public static final int READ = 0;
+    public static final int COMPUTE = 1;
+    public static final int WRITE = 2;
+    public static final int TELEMETRY = 3;
+    public static final String[] STAGES = {"read", "compute", "write", "telemetry"};
+    // the heading odometry used each cycle and the AprilTag correction the follower steered
+    // with, so ReplayHarness can feed them back
+    public static final String[] AXES = {"imuheading", "visionx", "visiony", "visionheading"};
+    // how the Control Hub is mounted, see ConceptExploringIMUOrientation
+    public static RevHubOrientationOnRobot.LogoFacingDirection LOGO = RevHubOrientationOnRobot.LogoFacingDirection.UP;
+    public static RevHubOrientationOnRobot.UsbFacingDirection USB = RevHubOrientationOnRobot.UsbFacingDirection.FORWARD;
+    public static double IMU_HZ = 100;
+    // AprilTag fixes for the follower; the routine's start pose must then be a real field pose.
+    // Without a camera by this name the routine runs on odometry alone
+    public static String WEBCAM = "Webcam 1";
+    public static double CAMERA_FORWARD = 6;
+    public static double CAMERA_LEFT = 0;
+    // fraction of a core vision may use, and what one AprilTag frame costs, see VisionScheduler
+    public static double VISION_BUDGET = 0.4;
+    public static double APRILTAG_COST_MS = 12;
+
+    // everything but the gains file, shared with MecanumSimulator and ReplayHarness so they
+    // drive the wheels the way the robot does
+    public static void setUpWheels(Mecanum_Wheels mecanum) {
+        mecanum.leftErrorAdjustment = 1;
+        mecanum.IsAutonomous = true;
+        mecanum.velocity = 400;
+        mecanum.initialize();
+        // the hub holds the follower's wheel speeds, so paths don't change as the battery drops
+        mecanum.setDriveMode(Mecanum_Wheels.DriveMode.VELOCITY);
+        // the loop sends the follower's powers in its own write stage
+        mecanum.deferWrites = true;
+    }
+
     @Override
     public void runOpMode() throws InterruptedException {
-        double distance = 0;
         Mecanum_Wheels mecanum = new Mecanum_Wheels(hardwareMap);
-        mecanum.leftErrorAdjustment = 1;
         mecanum.parent = this;
-        mecanum.IsAutonomous = true;
-        mecanum.velocity = 400;
         mecanum.telemetry = this.telemetry;
-        mecanum.initialize();
+        setUpWheels(mecanum);
+        DriveGains.loadInto(mecanum, telemetry);
+        // heading comes from the IMU thread, the loop only picks up its latest sample
+        IMU imu = hardwareMap.get(IMU.class, "imu");
+        imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(LOGO, USB)));
+        imu.resetYaw();
+        ImuSampler imuSampler = new ImuSampler(imu, IMU_HZ, Clock.SYSTEM);
+        mecanum.imu = imuSampler;
 
 
-        waitForStart();
-        sleep(100);
-        //forward
-        distance = 51;
-        mecanum.encoderDrive(0.8,distance,distance,distance,distance,2);
-        //strafe left
-//        distance = 12.2;
-//        mecanum.encoderDrive(0.8,-distance,distance,distance,-distance,2);
-//        distance = 2.5;
-//        mecanum.encoderDrive(0.8,-distance,-distance,-distance,-distance,1);
-//
-//        sleep(700);
-//        //strafe right
-//        distance = 13.25;
-//        mecanum.encoderDrive(0.8,distance,-distance,-distance,distance,2);
-//        //turn left
-//        distance = 21.4;
-//        mecanum.encoderDrive(0.8,-distance,-distance,distance,distance,2);
-//        //strafe right
-//        distance = 2;
-//        mecanum.encoderDrive(0.8,distance,-distance,-distance,distance,1);
-//
-//        //backward
-//        distance = 16;
-//        mecanum.encoderDrive(0.8,-distance,-distance,-distance,-distance,2);
-//
-//        sleep(200);
-//        //forward
-//        distance = 17.5;
-//        mecanum.encoderDrive(0.8,distance,distance,distance,distance,2);
-//        //strafe right
-//        distance = 14.5;
-//        mecanum.encoderDrive(0.8,distance,-distance,-distance,distance,2);
-//        //turn left
-//        distance = 1.25;
-//        mecanum.encoderDrive(0.8,-distance,-distance,-distance,-distance,1);
-//        sleep(1000);
-//        //strafe left
-//        distance = 13.5;
-//        mecanum.encoderDrive(0.8,-distance,distance,distance,-distance,2);
+        CommandScheduler scheduler = new CommandScheduler(mecanum.snapshot);
+        scheduler.register(mecanum);
 
+        // tags are found on the vision thread, the loop only picks up the newest frame and
+        // corrects the pose the follower steers on
+        WebcamName webcam = hardwareMap.tryGet(WebcamName.class, WEBCAM);
+        VisionPortal portal = null;
+        AprilTagPipeline tags = null;
+        TagLocalizer tagLocalizer = null;
+        VisionTuner visionTuner = null;
+        VisionScheduler vision = null;
+        int webcamIndex = 0;
+        if (webcam != null) {
+            AprilTagProcessor processor = AprilTagProcessor.easyCreateWithDefaults();
+            portal = VisionPortal.easyCreateWithDefaults(webcam, processor);
+            tags = new AprilTagPipeline(new AprilTagSource(processor), Clock.SYSTEM, 100);
+            tagLocalizer = new TagLocalizer(tags, mecanum.fusion);
+            tagLocalizer.cameraForward = CAMERA_FORWARD;
+            tagLocalizer.cameraLeft = CAMERA_LEFT;
+            // whatever game the SDK is built for, so a season change only needs an SDK update
+            tagLocalizer.addTags(AprilTagGameDatabase.getCurrentGameTagLibrary());
+            // after mecanum, so this cycle's odometry is in the history before a fix lands
+            scheduler.register(tagLocalizer);
+            visionTuner = new VisionTuner(new PortalVisionKnobs(portal, processor));
+            vision = new VisionScheduler(VISION_BUDGET);
+            webcamIndex = vision.addCamera("webcam", portal);
+            vision.plan("auto", vision.addProcessor(webcamIndex, processor, APRILTAG_COST_MS));
+            vision.setPhase("auto");
+        }
 
+        //the whole routine is planned here, during init, so nothing is planned after start
+        RoutineCompiler compiler = new RoutineCompiler(mecanum.driveKinematics, mecanum.ticksPerInch());
+        CompiledRoutine routine;
+        try {
+            routine = compiler.compileRaw(hardwareMap.appContext, ROUTINE, 0.01);
+        } catch (IOException e) {
+            throw new RuntimeException("could not load routine " + ROUTINE, e);
+        }
+        mecanum.setPose(routine.startX, routine.startY, routine.startHeading);
+        Command auto = new RoutineCommand(routine, mecanum, Clock.SYSTEM);
+        telemetry.addData("Routine", "%s: %d segments, %.1f s, compiled in %.1f ms, %d KB", ROUTINE, routine.size(),
+                routine.totalTime(), routine.compileNanos / 1e6, routine.footprintBytes() / 1024);
+        telemetry.update();
 
+        LoopProfiler profiler = new LoopProfiler(Clock.SYSTEM, STAGES);
+        // same files as TeleOp, ReplayHarness can run the routine against them
+        FlightRecorder recorder = new FlightRecorder(new File(AppUtil.FIRST_FOLDER, "flight"),
+                TeleOp.RECORDS_PER_FILE, TeleOp.RECORD_FILES, AXES, STAGES);
+        try {
+            recorder.open();
+        } catch (IOException e) {
+            telemetry.addData("flight recorder", "off: %s", e.getMessage());
+        }
+        double[] powers = new double[EncoderFrame.WHEELS];
+        double[] axes = new double[AXES.length];
+        long lastTagSequence = 0;
+        LoopTelemetry loopTelemetry = new LoopTelemetry(telemetry, Clock.SYSTEM);
+        int errorLine = loopTelemetry.addLine("Error", "x y heading ", 3, 7, 2);
+        int positionLine = loopTelemetry.addLine("Path2", "Running at ", 4, 7);
+        int poseLine = loopTelemetry.addLine("Pose", "x y heading ", 3, 7, 1);
+        int imuLine = loopTelemetry.addLine("IMU", "samples read ms ", 2, 7, 2);
+        int visionLine = loopTelemetry.addLine("Tags", "seen fixes rejected ", 3, 6);
 
+        imuSampler.start();
+        try {
+            if (tags != null) {
+                tags.start();
+                // exposure is held back until the camera streams, see PortalVisionKnobs
+                visionTuner.start();
+            }
 
+            waitForStart();
+            scheduler.schedule(auto);
 
+            // one bulk read and one step of every command per pass, lift/vision commands can run alongside
+            while (opModeIsActive() && scheduler.isScheduled(auto)) {
+                profiler.beginCycle();
+                EncoderFrame frame = scheduler.read();
+                profiler.endStage(READ);
+                scheduler.step(frame);
+                if (visionTuner != null) {
+                    // capture to publish, so it includes up to one poll period of waiting
+                    TagSnapshot snapshot = tags.latest();
+                    visionTuner.update(snapshot, snapshot.latencyNanos());
+                    if (snapshot.sequence != lastTagSequence) {
+                        vision.recordFrame(webcamIndex, snapshot.latencyNanos());
+                        lastTagSequence = snapshot.sequence;
+                    }
+                    vision.sample();
+                }
+                profiler.endStage(COMPUTE);
+                mecanum.flushWrites();
+                profiler.endStage(WRITE);
+                loopTelemetry.set(errorLine, 0, mecanum.follower.xError);
+                loopTelemetry.set(errorLine, 1, mecanum.follower.yError);
+                loopTelemetry.set(errorLine, 2, Math.toDegrees(mecanum.follower.headingError));
+                loopTelemetry.set(positionLine, frame.frontLeftPosition, frame.frontRightPosition,
+                        frame.backLeftPosition, frame.backRightPosition);
+                loopTelemetry.set(poseLine, 0, mecanum.fusion.x());
+                loopTelemetry.set(poseLine, 1, mecanum.fusion.y());
+                loopTelemetry.set(poseLine, 2, Math.toDegrees(mecanum.fusion.heading()));
+                loopTelemetry.set(imuLine, 0, imuSampler.samples());
+                loopTelemetry.set(imuLine, 1, imuSampler.lastReadNanos / 1e6);
+                if (tagLocalizer != null) {
+                    loopTelemetry.set(visionLine, 0, tagLocalizer.tagsSeen);
+                    loopTelemetry.set(visionLine, 1, mecanum.fusion.accepted);
+                    loopTelemetry.set(visionLine, 2, mecanum.fusion.rejected);
+                }
+                loopTelemetry.update();
+                profiler.endStage(TELEMETRY);
 
+                for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+                    powers[i] = mecanum.appliedPower(i);
+                }
+                axes[0] = mecanum.imuHeading;
+                axes[1] = mecanum.fusion.correctionX();
+                axes[2] = mecanum.fusion.correctionY();
+                axes[3] = mecanum.fusion.correctionHeading();
+                recorder.record(frame, powers, axes, mecanum.pose.x, mecanum.pose.y, mecanum.pose.heading, profiler);
+            }
+        } finally {
+            // each step runs even if the one before it throws, so no thread is left polling
+            // and the motors get their last stop
+            try {
+                scheduler.cancelAll();
+            } finally {
+                try {
+                    recorder.close();
+                } finally {
+                    try {
+                        imuSampler.stop();
+                    } finally {
+                        if (tags != null) {
+                            try {
+                                tags.stop();
+                            } finally {
+                                portal.close();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (imuSampler.failure() != null) {
+            telemetry.addData("IMU", "stopped: %s", imuSampler.failure());
+        }
 
+        // keep the loop timings on the Driver Station until stop is pressed
+        profiler.report(telemetry);
+        if (vision != null) {
+            vision.report(telemetry);
+        }
+        telemetry.update();
+        while (opModeIsActive()) {
+            idle();
+        }
 
+        //the old hand-tuned steps are kept, commented out, in res/raw/test_auton.txt
     }
 }
@@ -0,0 +1,99 @@
+package org.firstinspires.ftc.teamcode.EPIC.OpModes;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.ColorClassifier;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects training samples for ColorClassifier from the intake color sensor.
+ * Put a piece where the intake holds it and hold a button, one sample is appended to
+ * ColorClassifier.FILE_NAME in the FIRST folder per loop: X red, B blue, Y yellow, A none (empty
+ * intake). Move the piece around a little while holding so the samples cover how it really sits. Dpad down rebuilds
+ * the table from the file and the bottom lines show what it makes of the current reading.
+ * GAIN must match what the robot code sets on the sensor.
+ */
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Color Calibration", group = "Tests")
+@Disabled
+public class ColorCalibration extends LinearOpMode {
+    public static float GAIN = 2;
+    public static int BINS = 32;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        NormalizedColorSensor sensor = hardwareMap.get(NormalizedColorSensor.class, "color");
+        sensor.setGain(GAIN);
+
+        File file = new File(AppUtil.FIRST_FOLDER, ColorClassifier.FILE_NAME);
+        ColorClassifier classifier;
+        try {
+            classifier = ColorClassifier.load(file, BINS);
+        } catch (IOException e) {
+            throw new RuntimeException("could not read " + file, e);
+        }
+        ColorClassifier.Debouncer debouncer = new ColorClassifier.Debouncer(2, 5);
+        Map<String, Integer> recorded = new HashMap<>();
+
+        PrintWriter out;
+        try {
+            out = new PrintWriter(new FileWriter(file, true));
+        } catch (IOException e) {
+            throw new RuntimeException("could not open " + file, e);
+        }
+
+        telemetry.addData(">", "Press play, then hold X red, B blue, Y yellow, A none");
+        telemetry.update();
+        waitForStart();
+
+        boolean rebuildHeld = false;
+        try {
+            while (opModeIsActive()) {
+                NormalizedRGBA colors = sensor.getNormalizedColors();
+
+                String label = gamepad1.x ? "red" : gamepad1.b ? "blue" : gamepad1.y ? "yellow"
+                        : gamepad1.a ? ColorClassifier.NONE_LABEL : null;
+                if (label != null) {
+                    out.printf(Locale.US, "%s,%.5f,%.5f,%.5f,%.5f%n", label, colors.red, colors.green, colors.blue,
+                            colors.alpha);
+                    Integer count = recorded.get(label);
+                    recorded.put(label, count == null ? 1 : count + 1);
+                }
+
+                if (gamepad1.dpad_down && !rebuildHeld) {
+                    out.flush();
+                    try {
+                        classifier = ColorClassifier.load(file, BINS);
+                    } catch (IOException e) {
+                        telemetry.addData("rebuild", "failed: %s", e.getMessage());
+                    }
+                    debouncer.reset();
+                }
+                rebuildHeld = gamepad1.dpad_down;
+
+                int raw = classifier.classify(colors);
+                int stable = debouncer.update(raw);
+                telemetry.addData("rgba", "%.4f %.4f %.4f %.4f", colors.red, colors.green, colors.blue,
+                        colors.alpha);
+                telemetry.addData("recorded", recorded.toString());
+                telemetry.addData("table", "%d classes, %d bins to %.3f, built in %.0f ms", classifier.classCount(),
+                        classifier.bins, classifier.maxValue, classifier.buildNanos / 1e6);
+                telemetry.addData("raw", classifier.label(raw));
+                telemetry.addData("piece", classifier.label(stable));
+                telemetry.update();
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
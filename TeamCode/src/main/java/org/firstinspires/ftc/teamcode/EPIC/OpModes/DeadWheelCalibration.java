@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode.EPIC.OpModes;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.teamcode.EPIC.Command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.ImuSampler;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.OctoQuadBlockSource;
+import org.firstinspires.ftc.teamcode.EPIC.Localization.DeadWheelOdometry;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+/**
+ * Measures the dead-wheel track width and strafe pod offset by spinning in place.
+ * The robot turns TURNS times counter-clockwise on the IMU, then DeadWheelOdometry works out
+ * where the pods really are from how far each one rolled. Copy the numbers it shows into
+ * TRACK_WIDTH and STRAFE_OFFSET. Give it room, and run it on the field tiles you compete on.
+ */
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Dead Wheel Calibration", group = "Tests")
+@Disabled
+public class DeadWheelCalibration extends LinearOpMode {
+    // goBILDA 4-bar pod: 2000 counts per rev on a 48 mm wheel
+    public static double TICKS_PER_INCH = 2000 / (Math.PI * 48 / 25.4);
+    public static double TRACK_WIDTH = 12;
+    public static double STRAFE_OFFSET = 0;
+    public static int TURNS = 5;
+    public static double SPIN_POWER = 0.4;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        Mecanum_Wheels wheels = new Mecanum_Wheels(hardwareMap);
+        wheels.initialize();
+
+        DeadWheelOdometry odometry = DeadWheelOdometry.threePod(
+                new OctoQuadBlockSource(hardwareMap.get(OctoQuad.class, "octoquad")), TICKS_PER_INCH,
+                TRACK_WIDTH, STRAFE_OFFSET);
+        odometry.initialize();
+
+        IMU imu = hardwareMap.get(IMU.class, "imu");
+        imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(Autonomous.LOGO, Autonomous.USB)));
+        imu.resetYaw();
+        ImuSampler heading = new ImuSampler(imu, Autonomous.IMU_HZ, Clock.SYSTEM);
+
+        CommandScheduler scheduler = new CommandScheduler(wheels.snapshot);
+        scheduler.register(wheels);
+        scheduler.register(odometry);
+
+        telemetry.addData(">", "Press play to spin %d turns", TURNS);
+        telemetry.update();
+        waitForStart();
+
+        heading.start();
+        scheduler.run();
+        while (opModeIsActive() && heading.samples() == 0) {
+            idle();
+        }
+        double start = heading.heading();
+        odometry.beginCalibration();
+
+        double target = TURNS * 2 * Math.PI;
+        while (opModeIsActive() && heading.heading() - start < target) {
+            scheduler.run();
+            wheels.move(0, 0, 0, -SPIN_POWER);
+            telemetry.addData("turned", "%.1f of %d turns", (heading.heading() - start) / (2 * Math.PI), TURNS);
+            telemetry.update();
+        }
+        wheels.stop();
+
+        // let it coast to a stop before taking the angle
+        long settle = System.nanoTime() + 500_000_000L;
+        while (opModeIsActive() && System.nanoTime() < settle) {
+            scheduler.run();
+        }
+        double turned = heading.heading() - start;
+        heading.stop();
+        odometry.finishCalibration(turned);
+
+        while (opModeIsActive()) {
+            telemetry.addData("turned", "%.1f deg", Math.toDegrees(turned));
+            telemetry.addData("TRACK_WIDTH", "%.3f in", odometry.trackWidth());
+            telemetry.addData("STRAFE_OFFSET", "%.3f in", odometry.pods[2].x);
+            telemetry.addData("center offset", "%.3f in left", (odometry.pods[0].y + odometry.pods[1].y) / 2);
+            telemetry.addData("glitches", odometry.glitches);
+            telemetry.update();
+            idle();
+        }
+    }
+}
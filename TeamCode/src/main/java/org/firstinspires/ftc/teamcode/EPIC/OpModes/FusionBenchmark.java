@@ -0,0 +1,73 @@
+package org.firstinspires.ftc.teamcode.EPIC.OpModes;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.teamcode.EPIC.Localization.PoseFusion;
+
+/**
+ * Times PoseFusion on the Control Hub, like KinematicsBenchmark. No hardware needed.
+ * One control cycle is a predict plus an encoder update; an OTOS read adds a pose and a
+ * velocity update on top. Each test runs a warm-up pass first so the JIT has compiled the code.
+ * The encoder readings are one smooth lap worked out during init, and opModeIsActive() is only
+ * checked between passes, so the clock only sees PoseFusion.
+ */
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Fusion Benchmark", group = "Tests")
+@Disabled
+public class FusionBenchmark extends LinearOpMode {
+    static final int ITERATIONS = 100000;
+    // one lap of encoder readings, replayed round robin; a power of two so picking one is a mask
+    static final int INPUTS = 1024;
+
+    // keeps the JIT from throwing the work away
+    double sink;
+
+    @Override
+    public void runOpMode() {
+        PoseFusion fusion = new PoseFusion();
+        double[] vx = new double[INPUTS];
+        double[] vy = new double[INPUTS];
+        double[] omega = new double[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            double t = i * 2 * Math.PI / INPUTS;
+            vx[i] = 30 * Math.cos(t);
+            vy[i] = 10 * Math.sin(t);
+            omega[i] = 0.5 * Math.sin(3 * t);
+        }
+
+        telemetry.addData(">", "Press play to start");
+        telemetry.update();
+        waitForStart();
+
+        double[] nanosPerCall = new double[2];
+        for (int pass = 0; pass < 2 && opModeIsActive(); pass++) {
+            fusion.setPose(0, 0, 0, 1, 0.1);
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                int k = i & (INPUTS - 1);
+                fusion.predict(0.005);
+                fusion.updateEncoders(vx[k], vy[k], omega[k]);
+                sink += fusion.x;
+            }
+            nanosPerCall[0] = (System.nanoTime() - start) / (double) ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                fusion.updateOtosPose(fusion.x + 0.1, fusion.y - 0.1, fusion.heading);
+                fusion.updateOtosVelocity(fusion.vx, fusion.vy, fusion.omega);
+                sink += fusion.y;
+            }
+            nanosPerCall[1] = (System.nanoTime() - start) / (double) ITERATIONS;
+        }
+
+        while (opModeIsActive()) {
+            telemetry.addData("predict + encoders", "%.0f ns", nanosPerCall[0]);
+            telemetry.addData("OTOS pose + velocity", "%.0f ns", nanosPerCall[1]);
+            telemetry.addData("rejected", "%d encoder %d OTOS", fusion.encoderRejects,
+                    fusion.otosPoseRejects + fusion.otosVelocityRejects);
+            telemetry.addData("sink", sink);
+            telemetry.update();
+            idle();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.firstinspires.ftc.teamcode.EPIC.OpModes;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+
+/**
+ * Times MecanumKinematics on the Control Hub, the same way ConceptMotorBulkRead times bulk reads.
+ * No hardware needed. Each test runs a warm-up pass first so the JIT has compiled the code.
+ * The inputs are worked out before the clock starts and opModeIsActive() is only checked
+ * between tests, so the timed loops measure the kinematics and nothing else.
+ */
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Kinematics Benchmark", group = "Tests")
+@Disabled
+public class KinematicsBenchmark extends LinearOpMode {
+    static final int ITERATIONS = 200000;
+    // inputs are reused round robin, a power of two so picking one is a mask
+    static final int INPUTS = 1024;
+
+    // keeps the JIT from throwing the work away
+    double sink;
+
+    @Override
+    public void runOpMode() {
+        MecanumKinematics kinematics = MecanumKinematics.fromGeometry(14, 12);
+        double[] wheels = new double[4];
+        double[] chassis = new double[3];
+        double[] field = new double[3];
+        double[] accel = new double[4];
+        double[] ff = new double[4];
+        double[] kS = {0.05, 0.05, 0.05, 0.05};
+        double[] kV = {0.012, 0.012, 0.012, 0.012};
+        double[] kA = {0.002, 0.002, 0.002, 0.002};
+        double[] forward = new double[INPUTS];
+        double[] strafe = new double[INPUTS];
+        double[] heading = new double[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            double t = i * 2 * Math.PI / INPUTS;
+            forward[i] = Math.sin(t);
+            strafe[i] = Math.cos(t);
+            heading[i] = t;
+        }
+
+        telemetry.addData(">", "Press play to start");
+        telemetry.update();
+        waitForStart();
+
+        double[] nanosPerCall = new double[2];
+        for (int pass = 0; pass < 2 && opModeIsActive(); pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                int k = i & (INPUTS - 1);
+                kinematics.inverse(forward[k], strafe[k], 0.3, wheels);
+                MecanumKinematics.desaturate(wheels, 1.0);
+                sink += wheels[0];
+            }
+            nanosPerCall[0] = (System.nanoTime() - start) / (double) ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                int k = i & (INPUTS - 1);
+                MecanumKinematics.fieldToRobot(forward[k], strafe[k], heading[k], field);
+                kinematics.inverse(field[0], field[1], 0.3, wheels);
+                MecanumKinematics.feedforward(wheels, accel, kS, kV, kA, ff);
+                kinematics.forward(ff, chassis);
+                sink += chassis[0];
+            }
+            nanosPerCall[1] = (System.nanoTime() - start) / (double) ITERATIONS;
+        }
+
+        while (opModeIsActive()) {
+            telemetry.addData("inverse + desaturate", "%.0f ns", nanosPerCall[0]);
+            telemetry.addData("field centric + ff + forward", "%.0f ns", nanosPerCall[1]);
+            telemetry.addData("sink", sink);
+            telemetry.update();
+            idle();
+        }
+    }
+}
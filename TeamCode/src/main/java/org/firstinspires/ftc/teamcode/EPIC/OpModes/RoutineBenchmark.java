@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcode.EPIC.OpModes;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.CompiledRoutine;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.RoutineCompiler;
+
+/**
+ * How long RoutineCompiler takes, and how much memory the result uses, for routines of
+ * growing size, so we know a big routine won't hold up init. No hardware needed.
+ */
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Routine Compile Benchmark", group = "Tests")
+@Disabled
+public class RoutineBenchmark extends LinearOpMode {
+    static final int[] SEGMENTS = {10, 50, 200};
+
+    @Override
+    public void runOpMode() {
+        RoutineCompiler compiler = new RoutineCompiler(MecanumKinematics.fromGeometry(14, 12), 537.7 / 12);
+
+        telemetry.addData(">", "Press play to start");
+        telemetry.update();
+        waitForStart();
+
+        // warm up so the first row isn't all JIT time
+        compiler.compileString(routine(SEGMENTS[0]), 0.01);
+
+        for (int segments : SEGMENTS) {
+            if (!opModeIsActive()) {
+                break;
+            }
+            CompiledRoutine compiled = compiler.compileString(routine(segments), 0.01);
+            telemetry.addData(segments + " steps", "%.1f ms, %d KB, %.0f s of driving",
+                    compiled.compileNanos / 1e6, compiled.footprintBytes() / 1024, compiled.totalTime());
+        }
+        telemetry.update();
+
+        while (opModeIsActive()) {
+            idle();
+        }
+    }
+
+    // a zig-zag of lines, splines, turns, waits and encoder drives
+    static String routine(int segments) {
+        StringBuilder sb = new StringBuilder("start 0 0 0\nlimits 40 40 scurve\n");
+        for (int i = 0; i < segments; i++) {
+            switch (i % 5) {
+                case 0: sb.append("line 24 0\n"); break;
+                case 1: sb.append("spline 48 24 90\n"); break;
+                case 2: sb.append("turn 180\n"); break;
+                case 3: sb.append("line 0 0 0\nwait 0.2\n"); break;
+                default: sb.append("drive 0.8 12 12 12 12 2\n"); break;
+            }
+        }
+        return sb.toString();
+    }
+}
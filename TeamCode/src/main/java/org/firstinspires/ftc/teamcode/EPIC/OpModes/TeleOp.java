@@ -3,29 +3,59 @@ package org.firstinspires.ftc.teamcode.EPIC.OpModes;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.Servo;
 
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.DriveGains;
 import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.TractionControl;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.ControlLoopExecutor;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightRecorder;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopProfiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopTelemetry;
+import org.firstinspires.ftc.teamcode.EPIC.Util.SetpointMailbox;
+
+import java.io.File;
+import java.io.IOException;
 
 
 @com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "TeleOp")
 public class TeleOp extends LinearOpMode {
+    public static double CONTROL_HZ = 200;
+    // flight recorder: 3 minutes of cycles per file, keep the last 10 files
+    public static int RECORDS_PER_FILE = 200 * 60 * 3;
+    public static int RECORD_FILES = 10;
+
     double lefty;
     double leftx;
     double righty;
     double rightx;
 
+    // everything but the gains file, shared with ReplayHarness so a replay drives the wheels
+    // the way the robot did
+    //op mode thread profiler stages, the control thread has its own (TeleOpControl.STAGES)
+    public static final int GAMEPAD = 0;
+    public static final int TELEMETRY = 1;
+    public static final String[] OP_MODE_STAGES = {"gamepad", "telemetry"};
+
+    public static void setUpWheels(Mecanum_Wheels wheels) {
+        wheels.initialize();
+        // same stick, same speed, whatever the battery is at
+        wheels.setDriveMode(Mecanum_Wheels.DriveMode.VOLTAGE_COMPENSATED);
+        // ramp the sticks and back off when a wheel breaks loose, keeps odometry honest
+        wheels.traction = new TractionControl();
+        // TeleOpControl sends the powers in its own write stage
+        wheels.deferWrites = true;
+    }
+
     @Override
     public void runOpMode() throws InterruptedException {
         Mecanum_Wheels wheels = new Mecanum_Wheels(hardwareMap);
-        wheels.initialize();
         wheels.telemetry = telemetry;
         wheels.parent = this;
+        setUpWheels(wheels);
         //wheels.leftErrorAdjustment = 0.52;
         //wheels.rightErrorAdjustment = 0.52;
-
-        while (opModeInInit()){
-
-        }
-
+        DriveGains.loadInto(wheels, telemetry);
 
         boolean dup2;
         boolean ddown2;
@@ -36,14 +66,67 @@ public class TeleOp extends LinearOpMode {
 
 
 
-        waitForStart();
-        while (opModeIsActive()){
-            lefty = gamepad1.left_stick_y;
-            leftx = gamepad1.left_stick_x;
-            righty = gamepad1.right_stick_y;
-            rightx = gamepad1.right_stick_x;
+        // set up during init; drive control runs on its own thread at CONTROL_HZ once PLAY is
+        // pressed, this thread only reads the gamepad
+        LoopProfiler profiler = new LoopProfiler(Clock.SYSTEM, TeleOpControl.STAGES);
+        // LoopProfiler is single threaded, so this thread times itself separately
+        LoopProfiler opModeProfiler = new LoopProfiler(Clock.SYSTEM, OP_MODE_STAGES);
+        SetpointMailbox sticks = new SetpointMailbox(4);
+        FlightRecorder recorder = new FlightRecorder(new File(AppUtil.FIRST_FOLDER, "flight"),
+                RECORDS_PER_FILE, RECORD_FILES, TeleOpControl.AXES, TeleOpControl.STAGES);
+        try {
+            recorder.open();
+        } catch (IOException e) {
+            telemetry.addData("flight recorder", "off: %s", e.getMessage());
+        }
+        ControlLoopExecutor control = new ControlLoopExecutor("drive", CONTROL_HZ, Clock.SYSTEM,
+                new TeleOpControl(wheels, profiler, sticks, recorder));
+
+        LoopTelemetry loopTelemetry = new LoopTelemetry(telemetry, Clock.SYSTEM);
+        int controlLine = loopTelemetry.addLine("control", "cycles/missed ", 2, 7);
+        int recordLine = loopTelemetry.addLine("flight", "records ", 1, 8);
+        int slipLine = loopTelemetry.addLine("traction", "slip cycles ", 1, 7);
+
+        // gains and flight recorder status stay up until PLAY
+        telemetry.update();
+        try {
+            waitForStart();
+            control.start();
+            while (opModeIsActive()) {
+                opModeProfiler.beginCycle();
+                if (control.failure != null) {
+                    throw new RuntimeException("drive control loop failed", control.failure);
+                }
+
+                lefty = gamepad1.left_stick_y;
+                leftx = gamepad1.left_stick_x;
+                righty = gamepad1.right_stick_y;
+                rightx = gamepad1.right_stick_x;
+                sticks.publish(lefty, righty, leftx, rightx);
+                opModeProfiler.endStage(GAMEPAD);
 
-            wheels.move(lefty,righty,leftx,rightx);
+                // only build the report when the Driver Station will actually get it
+                if (loopTelemetry.isDue()) {
+                    // numbers are written by the control thread, good enough for display
+                    profiler.report(telemetry);
+                    opModeProfiler.report(telemetry, "op mode");
+                    loopTelemetry.set(controlLine, 0, control.cycles);
+                    loopTelemetry.set(controlLine, 1, control.deadlineMisses);
+                    loopTelemetry.set(recordLine, 0, recorder.records);
+                    loopTelemetry.set(slipLine, 0, wheels.traction.slipCycles);
+                    loopTelemetry.update();
+                    // only cycles that built a report, the rest would bury it under zeros
+                    opModeProfiler.endStage(TELEMETRY);
+                }
+                idle();
+            }
+        } finally {
+            // make sure nothing writes to the motors after the op mode is stopped
+            try {
+                control.stop();
+            } finally {
+                recorder.close();
+            }
         }
     }
 }
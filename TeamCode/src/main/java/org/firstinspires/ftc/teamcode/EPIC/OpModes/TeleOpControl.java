@@ -0,0 +1,67 @@
+package org.firstinspires.ftc.teamcode.EPIC.OpModes;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.Util.ControlLoopExecutor;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightRecorder;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopProfiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.SetpointMailbox;
+
+/**
+ * One TeleOp drive cycle: bulk read, odometry, sticks to wheel powers, flight record.
+ * TeleOp runs it on its ControlLoopExecutor; ReplayHarness calls step() directly off the robot.
+ * Both set the wheels up with TeleOp.setUpWheels, so the replay goes through the same traction
+ * control and voltage compensation.
+ *
+ * Sticks come in through the mailbox as lefty, righty, leftx, rightx. The record has the sticks,
+ * the battery voltage compensation used and the powers actually sent to the motors.
+ * The recorder may be null.
+ */
+public class TeleOpControl implements ControlLoopExecutor.Task {
+    //profiler stages
+    public static final int READ = 0;
+    public static final int COMPUTE = 1;
+    public static final int WRITE = 2;
+    public static final String[] STAGES = {"read", "compute", "write"};
+    public static final String[] AXES = {"lefty", "righty", "leftx", "rightx", "battery"};
+
+    private final Mecanum_Wheels wheels;
+    private final LoopProfiler profiler;
+    private final SetpointMailbox sticks;
+    private final FlightRecorder recorder;
+    private final double[] setpoint = new double[4];
+    private final double[] powers = new double[4];
+    private final double[] axes = new double[AXES.length];
+
+    public TeleOpControl(Mecanum_Wheels wheels, LoopProfiler profiler, SetpointMailbox sticks, FlightRecorder recorder) {
+        this.wheels = wheels;
+        this.profiler = profiler;
+        this.sticks = sticks;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void step(long nowNanos) {
+        profiler.beginCycle();
+        // start every cycle with one bulk read, hubs are in MANUAL caching
+        EncoderFrame frame = wheels.snapshot.read();
+        wheels.periodic(frame);
+        profiler.endStage(READ);
+
+        sticks.read(setpoint);
+        wheels.move(setpoint[0], setpoint[1], setpoint[2], setpoint[3]);
+        profiler.endStage(COMPUTE);
+
+        wheels.flushWrites();
+        profiler.endStage(WRITE);
+
+        if (recorder != null) {
+            for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+                powers[i] = wheels.appliedPower(i);
+            }
+            System.arraycopy(setpoint, 0, axes, 0, setpoint.length);
+            axes[4] = wheels.voltage.voltage();
+            recorder.record(frame, powers, axes, wheels.pose.x, wheels.pose.y, wheels.pose.heading, profiler);
+        }
+    }
+}
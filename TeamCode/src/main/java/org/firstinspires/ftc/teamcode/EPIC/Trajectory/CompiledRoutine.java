@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode.EPIC.Trajectory;
+
+/**
+ * An autonomous routine after RoutineCompiler is done with it: a flat list of segment
+ * records, one per step, with everything the match needs already worked out (trajectories
+ * sampled, encoder targets in ticks, timeouts). Nothing is left to plan after start.
+ */
+public class CompiledRoutine {
+    public static final int WAIT = 0;
+    public static final int FOLLOW = 1;
+    public static final int ENCODER = 2;
+
+    private final int size;
+    private final int[] types;
+    private final double[] timeouts;
+    private final double[] speeds;
+    // four per record, in encoderDrive order: front left, back left, front right, back right
+    private final int[] ticks;
+    private final Trajectory[] trajectories;
+
+    public final long compileNanos;
+
+    // from the routine's start line, inches and radians
+    public final double startX;
+    public final double startY;
+    public final double startHeading;
+
+    CompiledRoutine(int size, int[] types, double[] timeouts, double[] speeds, int[] ticks,
+                    Trajectory[] trajectories, long compileNanos,
+                    double startX, double startY, double startHeading) {
+        this.size = size;
+        this.types = types;
+        this.timeouts = timeouts;
+        this.speeds = speeds;
+        this.ticks = ticks;
+        this.trajectories = trajectories;
+        this.compileNanos = compileNanos;
+        this.startX = startX;
+        this.startY = startY;
+        this.startHeading = startHeading;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int type(int segment) {
+        return types[segment];
+    }
+
+    // seconds; for FOLLOW this is the trajectory duration plus settle time
+    public double timeout(int segment) {
+        return timeouts[segment];
+    }
+
+    public double speed(int segment) {
+        return speeds[segment];
+    }
+
+    public int ticks(int segment, int wheel) {
+        return ticks[segment * 4 + wheel];
+    }
+
+    public Trajectory trajectory(int segment) {
+        return trajectories[segment];
+    }
+
+    public double totalTime() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += timeouts[i];
+        }
+        return total;
+    }
+
+    // rough heap use of the compiled data, for keeping an eye on big routines
+    public long footprintBytes() {
+        long bytes = (long) types.length * 4 + timeouts.length * 8L + speeds.length * 8L + ticks.length * 4L;
+        for (int i = 0; i < size; i++) {
+            if (trajectories[i] != null) {
+                bytes += (long) trajectories[i].sampleCount() * Trajectory.FIELDS * 8;
+            }
+        }
+        return bytes;
+    }
+}
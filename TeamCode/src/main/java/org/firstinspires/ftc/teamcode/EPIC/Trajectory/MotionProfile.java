@@ -0,0 +1,111 @@
+package org.firstinspires.ftc.teamcode.EPIC.Trajectory;
+
+/**
+ * Rest-to-rest 1D motion profile over a distance: speed up, cruise, slow down.
+ *
+ * TRAPEZOID ramps with constant acceleration. S_CURVE ramps velocity along half a cosine, so
+ * acceleration builds up and dies off smoothly (no jerk spikes) while reaching the same peak
+ * acceleration; it takes a little longer but is much kinder to mecanum rollers.
+ * If the distance is too short to reach maxVelocity the profile peaks early instead of cruising.
+ *
+ * This does the trig, so it is only meant to be sampled while building a Trajectory at init.
+ */
+public class MotionProfile {
+    public enum Shape { TRAPEZOID, S_CURVE }
+
+    public final Shape shape;
+    public final double distance;
+    public final double peakVelocity;
+    public final double rampTime;
+    public final double cruiseTime;
+
+    private final double sign;
+    private final double length;
+    private final double rampDistance;
+
+    public MotionProfile(Shape shape, double distance, double maxVelocity, double maxAcceleration) {
+        if (maxVelocity <= 0 || maxAcceleration <= 0) {
+            throw new IllegalArgumentException("profile limits must be positive");
+        }
+        this.shape = shape;
+        this.distance = distance;
+        sign = distance < 0 ? -1 : 1;
+        length = Math.abs(distance);
+
+        // ramp distance is peak * rampTime / 2 for both shapes
+        double fullRampTime = rampTime(shape, maxVelocity, maxAcceleration);
+        if (maxVelocity * fullRampTime <= length) {
+            peakVelocity = maxVelocity;
+        } else if (shape == Shape.TRAPEZOID) {
+            peakVelocity = Math.sqrt(length * maxAcceleration);
+        } else {
+            peakVelocity = Math.sqrt(2 * length * maxAcceleration / Math.PI);
+        }
+        rampTime = rampTime(shape, peakVelocity, maxAcceleration);
+        rampDistance = peakVelocity * rampTime / 2;
+        cruiseTime = peakVelocity > 0 ? (length - 2 * rampDistance) / peakVelocity : 0;
+    }
+
+    private static double rampTime(Shape shape, double velocity, double acceleration) {
+        return shape == Shape.TRAPEZOID ? velocity / acceleration : Math.PI * velocity / (2 * acceleration);
+    }
+
+    public double duration() {
+        return 2 * rampTime + cruiseTime;
+    }
+
+    // writes {position, velocity, acceleration} at time t into out
+    public void sample(double t, double[] out) {
+        double s;
+        double v;
+        double a;
+        double total = duration();
+        if (t <= 0) {
+            s = 0;
+            v = 0;
+            a = 0;
+        } else if (t >= total) {
+            s = length;
+            v = 0;
+            a = 0;
+        } else if (t < rampTime) {
+            s = rampPosition(t);
+            v = rampVelocity(t);
+            a = rampAcceleration(t);
+        } else if (t < rampTime + cruiseTime) {
+            s = rampDistance + peakVelocity * (t - rampTime);
+            v = peakVelocity;
+            a = 0;
+        } else {
+            // slowing down is speeding up played backwards
+            double back = total - t;
+            s = length - rampPosition(back);
+            v = rampVelocity(back);
+            a = -rampAcceleration(back);
+        }
+        out[0] = sign * s;
+        out[1] = sign * v;
+        out[2] = sign * a;
+    }
+
+    private double rampPosition(double t) {
+        if (shape == Shape.TRAPEZOID) {
+            return 0.5 * peakVelocity / rampTime * t * t;
+        }
+        return peakVelocity / 2 * (t - rampTime / Math.PI * Math.sin(Math.PI * t / rampTime));
+    }
+
+    private double rampVelocity(double t) {
+        if (shape == Shape.TRAPEZOID) {
+            return peakVelocity * t / rampTime;
+        }
+        return peakVelocity / 2 * (1 - Math.cos(Math.PI * t / rampTime));
+    }
+
+    private double rampAcceleration(double t) {
+        if (shape == Shape.TRAPEZOID) {
+            return peakVelocity / rampTime;
+        }
+        return peakVelocity * Math.PI / (2 * rampTime) * Math.sin(Math.PI * t / rampTime);
+    }
+}
@@ -0,0 +1,262 @@
+package org.firstinspires.ftc.teamcode.EPIC.Trajectory;
+
+import android.content.Context;
+
+import org.firstinspires.ftc.teamcode.EPIC.Localization.PoseEstimator;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Compiles an autonomous routine written in a small text format into a CompiledRoutine.
+ * Meant to run during init so that nothing is planned after start. Routine files live in
+ * TeamCode/src/main/res/raw.
+ *
+ * One command per line, # starts a comment, distances in inches, angles in degrees:
+ *
+ *     start x y heading               where the robot starts on the field
+ *     limits maxVel maxAccel [scurve|trapezoid]
+ *     wait seconds
+ *     line x y [heading]              drive straight to a field point
+ *     spline x y tangent [heading]    curve to a field point, arriving along tangent
+ *     turn heading                    spin in place to a field heading
+ *     drive speed fl bl fr br timeout same as Mecanum_Wheels.encoderDrive
+ *
+ * Back to back line/spline/turn commands become one trajectory, so the robot doesn't stop
+ * between them.
+ */
+public class RoutineCompiler {
+    public double settleTime = 0.5;
+
+    private final MecanumKinematics kinematics;
+    private final double ticksPerInch;
+
+    // records being built
+    private int size;
+    private int[] types;
+    private double[] timeouts;
+    private double[] speeds;
+    private int[] ticks;
+    private Trajectory[] trajectories;
+
+    private TrajectoryBuilder builder;
+    private double maxVelocity;
+    private double maxAcceleration;
+    private MotionProfile.Shape shape;
+    // where the planner thinks the robot is, carried across encoder drives
+    private PoseEstimator planned;
+    private double dt;
+    private double startX;
+    private double startY;
+    private double startHeading;
+
+    public RoutineCompiler(MecanumKinematics kinematics, double ticksPerInch) {
+        this.kinematics = kinematics;
+        this.ticksPerInch = ticksPerInch;
+    }
+
+    // compiles TeamCode/src/main/res/raw/<name>.txt
+    public CompiledRoutine compileRaw(Context context, String name, double dt) throws IOException {
+        int id = context.getResources().getIdentifier(name, "raw", context.getPackageName());
+        if (id == 0) {
+            throw new IOException("no routine res/raw/" + name);
+        }
+        InputStream in = context.getResources().openRawResource(id);
+        try {
+            return compile(in, dt);
+        } finally {
+            in.close();
+        }
+    }
+
+    public CompiledRoutine compile(InputStream in, double dt) throws IOException {
+        return compile(new InputStreamReader(in, "UTF-8"), dt);
+    }
+
+    public CompiledRoutine compileString(String routine, double dt) {
+        try {
+            return compile(new StringReader(routine), dt);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public CompiledRoutine compile(Reader reader, double dt) throws IOException {
+        long start = System.nanoTime();
+        this.dt = dt;
+        size = 0;
+        types = new int[16];
+        timeouts = new double[16];
+        speeds = new double[16];
+        ticks = new int[64];
+        trajectories = new Trajectory[16];
+        builder = null;
+        maxVelocity = 40;
+        maxAcceleration = 40;
+        shape = MotionProfile.Shape.S_CURVE;
+        planned = new PoseEstimator(kinematics, ticksPerInch);
+        startX = 0;
+        startY = 0;
+        startHeading = 0;
+
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            try {
+                command(words);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("routine line " + number + " '" + line + "': " + e.getMessage(), e);
+            }
+        }
+        flushTrajectory();
+        return new CompiledRoutine(size, types, timeouts, speeds, ticks, trajectories, System.nanoTime() - start,
+                startX, startY, startHeading);
+    }
+
+    private void command(String[] w) {
+        switch (w[0]) {
+            case "start":
+                args(w, 3, 3);
+                if (size > 0 || builder != null) {
+                    throw new IllegalArgumentException("start must come first");
+                }
+                startX = num(w[1]);
+                startY = num(w[2]);
+                startHeading = angle(w[3]);
+                planned.setPose(startX, startY, startHeading);
+                break;
+            case "limits":
+                args(w, 2, 3);
+                flushTrajectory();
+                maxVelocity = num(w[1]);
+                maxAcceleration = num(w[2]);
+                if (w.length > 3) {
+                    shape = shape(w[3]);
+                }
+                break;
+            case "wait":
+                args(w, 1, 1);
+                flushTrajectory();
+                add(CompiledRoutine.WAIT, num(w[1]), 0, null);
+                break;
+            case "line":
+                args(w, 2, 3);
+                if (w.length > 3) {
+                    builder().lineTo(num(w[1]), num(w[2]), angle(w[3]));
+                } else {
+                    builder().lineTo(num(w[1]), num(w[2]));
+                }
+                break;
+            case "spline":
+                args(w, 3, 4);
+                if (w.length > 4) {
+                    builder().splineTo(num(w[1]), num(w[2]), angle(w[3]), angle(w[4]));
+                } else {
+                    builder().splineTo(num(w[1]), num(w[2]), angle(w[3]));
+                }
+                break;
+            case "turn":
+                args(w, 1, 1);
+                builder().turnTo(angle(w[1]));
+                break;
+            case "drive":
+                args(w, 6, 6);
+                flushTrajectory();
+                drive(num(w[1]), num(w[2]), num(w[3]), num(w[4]), num(w[5]), num(w[6]));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown command");
+        }
+    }
+
+    private void drive(double speed, double fl, double bl, double fr, double br, double timeout) {
+        int record = add(CompiledRoutine.ENCODER, timeout, speed, null);
+        ticks[record * 4] = (int) (fl * ticksPerInch);
+        ticks[record * 4 + 1] = (int) (bl * ticksPerInch);
+        ticks[record * 4 + 2] = (int) (fr * ticksPerInch);
+        ticks[record * 4 + 3] = (int) (br * ticksPerInch);
+        // keep track of where this leaves the robot so the next trajectory starts there
+        double[] twist = new double[3];
+        kinematics.forward(fl, fr, bl, br, twist);
+        planned.integrate(twist[MecanumKinematics.VX], twist[MecanumKinematics.VY], twist[MecanumKinematics.OMEGA]);
+    }
+
+    private TrajectoryBuilder builder() {
+        if (builder == null) {
+            builder = new TrajectoryBuilder(planned.x, planned.y, planned.heading, maxVelocity, maxAcceleration, shape);
+        }
+        return builder;
+    }
+
+    private void flushTrajectory() {
+        if (builder == null) {
+            return;
+        }
+        Trajectory trajectory = builder.build(dt);
+        builder = null;
+        if (trajectory.sampleCount() > 1) {
+            add(CompiledRoutine.FOLLOW, trajectory.duration() + settleTime, 0, trajectory);
+        }
+        int last = trajectory.sampleCount() - 1;
+        planned.setPose(trajectory.get(Trajectory.X, last), trajectory.get(Trajectory.Y, last),
+                trajectory.get(Trajectory.HEADING, last));
+    }
+
+    private int add(int type, double timeout, double speed, Trajectory trajectory) {
+        if (size == types.length) {
+            int grow = size * 2;
+            types = Arrays.copyOf(types, grow);
+            timeouts = Arrays.copyOf(timeouts, grow);
+            speeds = Arrays.copyOf(speeds, grow);
+            ticks = Arrays.copyOf(ticks, grow * 4);
+            trajectories = Arrays.copyOf(trajectories, grow);
+        }
+        types[size] = type;
+        timeouts[size] = timeout;
+        speeds[size] = speed;
+        trajectories[size] = trajectory;
+        return size++;
+    }
+
+    private static void args(String[] w, int min, int max) {
+        int n = w.length - 1;
+        if (n < min || n > max) {
+            throw new IllegalArgumentException("expected " + (min == max ? "" + min : min + " to " + max) + " numbers");
+        }
+    }
+
+    private static double num(String s) {
+        return Double.parseDouble(s);
+    }
+
+    private static double angle(String s) {
+        return Math.toRadians(Double.parseDouble(s));
+    }
+
+    private static MotionProfile.Shape shape(String s) {
+        if (s.equalsIgnoreCase("scurve")) {
+            return MotionProfile.Shape.S_CURVE;
+        }
+        if (s.equalsIgnoreCase("trapezoid")) {
+            return MotionProfile.Shape.TRAPEZOID;
+        }
+        throw new IllegalArgumentException("profile must be scurve or trapezoid");
+    }
+}
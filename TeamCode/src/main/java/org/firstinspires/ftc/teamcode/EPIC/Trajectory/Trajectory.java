@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode.EPIC.Trajectory;
+
+/**
+ * A whole multi-segment path already run through its motion profiles, stored as one sample
+ * every dt seconds in primitive arrays. Built once at init by TrajectoryBuilder; during the
+ * match sample() is just an array lookup and a linear blend.
+ *
+ * Field frame, inches and radians: x, y, heading, their velocities and accelerations.
+ */
+public class Trajectory {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int HEADING = 2;
+    public static final int VX = 3;
+    public static final int VY = 4;
+    public static final int OMEGA = 5;
+    public static final int AX = 6;
+    public static final int AY = 7;
+    public static final int ALPHA = 8;
+    public static final int FIELDS = 9;
+
+    public final double dt;
+    private final double[][] samples;
+    private final int count;
+
+    Trajectory(double dt, double[][] samples, int count) {
+        this.dt = dt;
+        this.samples = samples;
+        this.count = count;
+    }
+
+    public double duration() {
+        return (count - 1) * dt;
+    }
+
+    public int sampleCount() {
+        return count;
+    }
+
+    public double get(int field, int index) {
+        return samples[field][index];
+    }
+
+    // writes all FIELDS values at time t into out, clamped to the ends of the trajectory
+    public void sample(double t, double[] out) {
+        double position = t / dt;
+        if (position <= 0) {
+            copy(0, out);
+            return;
+        }
+        if (position >= count - 1) {
+            copy(count - 1, out);
+            // at rest once the path is done
+            for (int f = VX; f < FIELDS; f++) {
+                out[f] = 0;
+            }
+            return;
+        }
+        int i = (int) position;
+        double blend = position - i;
+        for (int f = 0; f < FIELDS; f++) {
+            double a = samples[f][i];
+            double b = samples[f][i + 1];
+            if (f == HEADING) {
+                b = a + wrap(b - a);
+            }
+            out[f] = a + (b - a) * blend;
+        }
+    }
+
+    private void copy(int index, double[] out) {
+        for (int f = 0; f < FIELDS; f++) {
+            out[f] = samples[f][index];
+        }
+    }
+
+    static double wrap(double radians) {
+        while (radians > Math.PI) {
+            radians -= 2 * Math.PI;
+        }
+        while (radians <= -Math.PI) {
+            radians += 2 * Math.PI;
+        }
+        return radians;
+    }
+}
@@ -0,0 +1,254 @@
+package org.firstinspires.ftc.teamcode.EPIC.Trajectory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Builds a Trajectory out of lines, splines and turns.
+ *
+ * Consecutive lines and splines are joined into one continuous piece with a single motion
+ * profile over their total length, so the robot only stops at the very end (or at a turn).
+ * turnTo() spins in place with its own profile. Heading is interpolated along each segment,
+ * so a line can strafe and turn at the same time.
+ *
+ *     Trajectory t = new TrajectoryBuilder(0, 0, 0, 40, 40, MotionProfile.Shape.S_CURVE)
+ *             .lineTo(24, 0)
+ *             .splineTo(48, 24, Math.PI / 2)
+ *             .turnTo(Math.PI)
+ *             .build(0.01);
+ */
+public class TrajectoryBuilder {
+    // distance between stored path points
+    private static final double STEP = 0.25;
+    private static final int SPLINE_STEPS = 200;
+
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final MotionProfile.Shape shape;
+    public double maxAngularVelocity = Math.PI;
+    public double maxAngularAcceleration = Math.PI;
+
+    // finished pieces; a piece is either a path (points) or a turn
+    private final ArrayList<double[][]> paths = new ArrayList<>();
+    private final ArrayList<double[]> turns = new ArrayList<>();
+
+    // path being built: x, y, heading per point
+    private double[] px = new double[64];
+    private double[] py = new double[64];
+    private double[] ph = new double[64];
+    private int points = 0;
+
+    private double x;
+    private double y;
+    private double heading;
+    private double tangent;
+
+    public TrajectoryBuilder(double startX, double startY, double startHeading,
+                             double maxVelocity, double maxAcceleration, MotionProfile.Shape shape) {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.shape = shape;
+        x = startX;
+        y = startY;
+        heading = startHeading;
+        tangent = startHeading;
+    }
+
+    public TrajectoryBuilder lineTo(double endX, double endY) {
+        return lineTo(endX, endY, heading);
+    }
+
+    public TrajectoryBuilder lineTo(double endX, double endY, double endHeading) {
+        double length = Math.hypot(endX - x, endY - y);
+        if (length < 1e-9) {
+            return turnTo(endHeading);
+        }
+        startPath();
+        int steps = Math.max(1, (int) Math.ceil(length / STEP));
+        double turn = Trajectory.wrap(endHeading - heading);
+        for (int i = 1; i <= steps; i++) {
+            double f = (double) i / steps;
+            addPoint(x + (endX - x) * f, y + (endY - y) * f, heading + turn * f);
+        }
+        tangent = Math.atan2(endY - y, endX - x);
+        x = endX;
+        y = endY;
+        heading = Trajectory.wrap(endHeading);
+        return this;
+    }
+
+    // cubic Hermite spline leaving in the current direction of travel and arriving along endTangent
+    public TrajectoryBuilder splineTo(double endX, double endY, double endTangent) {
+        return splineTo(endX, endY, endTangent, heading);
+    }
+
+    public TrajectoryBuilder splineTo(double endX, double endY, double endTangent, double endHeading) {
+        double chord = Math.hypot(endX - x, endY - y);
+        if (chord < 1e-9) {
+            return turnTo(endHeading);
+        }
+        startPath();
+        double t0x = Math.cos(tangent) * chord;
+        double t0y = Math.sin(tangent) * chord;
+        double t1x = Math.cos(endTangent) * chord;
+        double t1y = Math.sin(endTangent) * chord;
+        double turn = Trajectory.wrap(endHeading - heading);
+        for (int i = 1; i <= SPLINE_STEPS; i++) {
+            double u = (double) i / SPLINE_STEPS;
+            double u2 = u * u;
+            double u3 = u2 * u;
+            double h00 = 2 * u3 - 3 * u2 + 1;
+            double h10 = u3 - 2 * u2 + u;
+            double h01 = -2 * u3 + 3 * u2;
+            double h11 = u3 - u2;
+            addPoint(h00 * x + h10 * t0x + h01 * endX + h11 * t1x,
+                    h00 * y + h10 * t0y + h01 * endY + h11 * t1y,
+                    heading + turn * u);
+        }
+        tangent = endTangent;
+        x = endX;
+        y = endY;
+        heading = Trajectory.wrap(endHeading);
+        return this;
+    }
+
+    public TrajectoryBuilder turnTo(double endHeading) {
+        finishPath();
+        double turn = Trajectory.wrap(endHeading - heading);
+        if (Math.abs(turn) > 1e-9) {
+            turns.add(new double[]{x, y, heading, turn});
+            paths.add(null);
+        }
+        heading = Trajectory.wrap(endHeading);
+        tangent = heading;
+        return this;
+    }
+
+    public TrajectoryBuilder turn(double radians) {
+        return turnTo(heading + radians);
+    }
+
+    public Trajectory build(double dt) {
+        finishPath();
+        // sample count first so the arrays are allocated exactly once
+        int total = 1;
+        int turnIndex = 0;
+        ArrayList<MotionProfile> profiles = new ArrayList<>();
+        ArrayList<double[]> lengths = new ArrayList<>();
+        for (double[][] path : paths) {
+            MotionProfile profile;
+            if (path == null) {
+                double[] turn = turns.get(turnIndex++);
+                profile = new MotionProfile(shape, turn[3], maxAngularVelocity, maxAngularAcceleration);
+                lengths.add(null);
+            } else {
+                double[] cumulative = cumulativeLength(path);
+                profile = new MotionProfile(shape, cumulative[cumulative.length - 1], maxVelocity, maxAcceleration);
+                lengths.add(cumulative);
+            }
+            profiles.add(profile);
+            total += (int) Math.ceil(profile.duration() / dt);
+        }
+
+        double[][] samples = new double[Trajectory.FIELDS][total];
+        double[] state = new double[3];
+        int index = 0;
+        turnIndex = 0;
+        double endX = x;
+        double endY = y;
+        double endHeading = heading;
+        for (int p = 0; p < paths.size(); p++) {
+            MotionProfile profile = profiles.get(p);
+            int steps = (int) Math.ceil(profile.duration() / dt);
+            double[][] path = paths.get(p);
+            double[] turn = path == null ? turns.get(turnIndex++) : null;
+            for (int k = 0; k < steps; k++) {
+                profile.sample(k * dt, state);
+                if (path == null) {
+                    writeTurn(samples, index++, turn, state);
+                } else {
+                    writePath(samples, index++, path, lengths.get(p), state);
+                }
+            }
+        }
+        // final resting sample
+        samples[Trajectory.X][index] = endX;
+        samples[Trajectory.Y][index] = endY;
+        samples[Trajectory.HEADING][index] = endHeading;
+        return new Trajectory(dt, samples, index + 1);
+    }
+
+    private static void writeTurn(double[][] samples, int i, double[] turn, double[] state) {
+        samples[Trajectory.X][i] = turn[0];
+        samples[Trajectory.Y][i] = turn[1];
+        samples[Trajectory.HEADING][i] = Trajectory.wrap(turn[2] + state[0]);
+        samples[Trajectory.OMEGA][i] = state[1];
+        samples[Trajectory.ALPHA][i] = state[2];
+    }
+
+    private static void writePath(double[][] samples, int i, double[][] path, double[] cumulative, double[] state) {
+        double[] xs = path[0];
+        double[] ys = path[1];
+        double[] hs = path[2];
+        double s = state[0];
+        // segment containing s
+        int seg = Arrays.binarySearch(cumulative, s);
+        if (seg < 0) {
+            seg = -seg - 2;
+        }
+        seg = Math.max(0, Math.min(seg, cumulative.length - 2));
+        double segLength = cumulative[seg + 1] - cumulative[seg];
+        double f = segLength > 0 ? (s - cumulative[seg]) / segLength : 0;
+        double dx = xs[seg + 1] - xs[seg];
+        double dy = ys[seg + 1] - ys[seg];
+        double dh = Trajectory.wrap(hs[seg + 1] - hs[seg]);
+        double ux = segLength > 0 ? dx / segLength : 0;
+        double uy = segLength > 0 ? dy / segLength : 0;
+        double dhds = segLength > 0 ? dh / segLength : 0;
+
+        samples[Trajectory.X][i] = xs[seg] + dx * f;
+        samples[Trajectory.Y][i] = ys[seg] + dy * f;
+        samples[Trajectory.HEADING][i] = Trajectory.wrap(hs[seg] + dh * f);
+        samples[Trajectory.VX][i] = ux * state[1];
+        samples[Trajectory.VY][i] = uy * state[1];
+        samples[Trajectory.OMEGA][i] = dhds * state[1];
+        samples[Trajectory.AX][i] = ux * state[2];
+        samples[Trajectory.AY][i] = uy * state[2];
+        samples[Trajectory.ALPHA][i] = dhds * state[2];
+    }
+
+    private static double[] cumulativeLength(double[][] path) {
+        double[] xs = path[0];
+        double[] ys = path[1];
+        double[] cumulative = new double[xs.length];
+        for (int i = 1; i < xs.length; i++) {
+            cumulative[i] = cumulative[i - 1] + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+        }
+        return cumulative;
+    }
+
+    private void startPath() {
+        if (points == 0) {
+            addPoint(x, y, heading);
+        }
+    }
+
+    private void finishPath() {
+        if (points > 1) {
+            paths.add(new double[][]{Arrays.copyOf(px, points), Arrays.copyOf(py, points), Arrays.copyOf(ph, points)});
+        }
+        points = 0;
+    }
+
+    private void addPoint(double x, double y, double h) {
+        if (points == px.length) {
+            px = Arrays.copyOf(px, points * 2);
+            py = Arrays.copyOf(py, points * 2);
+            ph = Arrays.copyOf(ph, points * 2);
+        }
+        px[points] = x;
+        py[points] = y;
+        ph[points] = h;
+        points++;
+    }
+}
@@ -0,0 +1,100 @@
+package org.firstinspires.ftc.teamcode.EPIC.Trajectory;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.PIDController;
+
+/**
+ * Tracks a Trajectory with feedforward plus PID.
+ *
+ * Each cycle it looks up where the robot should be, adds a PID correction for the pose error
+ * to the planned velocity, turns that into robot-relative wheel speeds and converts those to
+ * motor powers with kS/kV/kA. The planned velocity does most of the work; PID only cleans up.
+ * No allocation after construction.
+ */
+public class TrajectoryFollower {
+    // power = kS * sign(v) + kV * v + kA * a, v in inches/s at the wheel
+    public double kS = 0.0;
+    // set when the hub closes the velocity loop (Mecanum_Wheels.DriveMode.VELOCITY): powers are
+    // then wheel speeds, the hub overcomes static friction itself and kS is left out
+    public boolean hubHoldsVelocity = false;
+    public double kV = 1 / 62.4; // 312 rpm goBILDA, 12 inch wheel circumference
+    public double kA = 0.0;
+
+    public final PIDController xController = new PIDController(4, 0, 0);
+    public final PIDController yController = new PIDController(4, 0, 0);
+    public final PIDController headingController = new PIDController(4, 0, 0);
+
+    // how close is close enough at the end, inches and radians
+    public double positionTolerance = 0.5;
+    public double headingTolerance = Math.toRadians(2);
+
+    private final MecanumKinematics kinematics;
+    private Trajectory trajectory;
+
+    private final double[] target = new double[Trajectory.FIELDS];
+    private final double[] robotVelocity = new double[3];
+    private final double[] robotAcceleration = new double[3];
+    private final double[] wheelVelocity = new double[4];
+    private final double[] wheelAcceleration = new double[4];
+    private final double[] kSs = new double[4];
+    private final double[] kVs = new double[4];
+    private final double[] kAs = new double[4];
+
+    public double xError;
+    public double yError;
+    public double headingError;
+    private double lastT;
+
+    public TrajectoryFollower(MecanumKinematics kinematics) {
+        this.kinematics = kinematics;
+    }
+
+    public void follow(Trajectory trajectory) {
+        this.trajectory = trajectory;
+        xController.reset();
+        yController.reset();
+        headingController.reset();
+        lastT = 0;
+    }
+
+    public Trajectory trajectory() {
+        return trajectory;
+    }
+
+    /**
+     * One control step t seconds into the trajectory with the robot at (x, y, heading).
+     * Writes wheel powers (EncoderFrame order) into powers.
+     */
+    public void update(double t, double x, double y, double heading, double[] powers) {
+        trajectory.sample(t, target);
+        double dt = t - lastT;
+        lastT = t;
+
+        xError = target[Trajectory.X] - x;
+        yError = target[Trajectory.Y] - y;
+        headingError = Trajectory.wrap(target[Trajectory.HEADING] - heading);
+
+        double vx = target[Trajectory.VX] + xController.update(xError, dt);
+        double vy = target[Trajectory.VY] + yController.update(yError, dt);
+        double omega = target[Trajectory.OMEGA] + headingController.update(headingError, dt);
+
+        MecanumKinematics.fieldToRobot(vx, vy, heading, robotVelocity);
+        MecanumKinematics.fieldToRobot(target[Trajectory.AX], target[Trajectory.AY], heading, robotAcceleration);
+        kinematics.inverse(robotVelocity[MecanumKinematics.VX], robotVelocity[MecanumKinematics.VY], omega, wheelVelocity);
+        kinematics.inverse(robotAcceleration[MecanumKinematics.VX], robotAcceleration[MecanumKinematics.VY],
+                target[Trajectory.ALPHA], wheelAcceleration);
+
+        for (int i = 0; i < 4; i++) {
+            kSs[i] = hubHoldsVelocity ? 0 : kS;
+            kVs[i] = kV;
+            kAs[i] = kA;
+        }
+        MecanumKinematics.feedforward(wheelVelocity, wheelAcceleration, kSs, kVs, kAs, powers);
+    }
+
+    public boolean isFinished(double t) {
+        return t >= trajectory.duration()
+                && Math.hypot(xError, yError) < positionTolerance
+                && Math.abs(headingError) < headingTolerance;
+    }
+}
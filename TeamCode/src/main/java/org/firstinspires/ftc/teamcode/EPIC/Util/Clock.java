@@ -0,0 +1,16 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+/**
+ * Source of time in nanoseconds. Code that measures or waits on time takes a Clock so it can
+ * run against FakeClock off the robot.
+ */
+public interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    long nanoTime();
+}
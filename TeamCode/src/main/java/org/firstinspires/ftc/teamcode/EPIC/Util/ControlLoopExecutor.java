@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a control task on its own high priority thread at a fixed rate.
+ * Deadlines are absolute (start + n * period) so the rate doesn't drift. If a cycle runs past
+ * the next deadline that deadline is counted as missed and skipped; we never run a burst of
+ * catch-up cycles.
+ *
+ * The task owns the hardware while the executor is running. Other threads should only talk to
+ * it through a SetpointMailbox.
+ */
+public class ControlLoopExecutor {
+    public interface Task {
+        void step(long nowNanos);
+    }
+
+    private final String name;
+    private final long periodNanos;
+    private final Clock clock;
+    private final Task task;
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    public volatile long cycles = 0;
+    public volatile long deadlineMisses = 0;
+    public volatile long worstOverrunNanos = 0;
+    public volatile Throwable failure = null;
+
+    public ControlLoopExecutor(String name, double hz, Clock clock, Task task) {
+        this.name = name;
+        this.periodNanos = (long) (1e9 / hz);
+        this.clock = clock;
+        this.task = task;
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, name);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // stops the thread and waits for the cycle in progress to finish. The SDK interrupts the
+    // op mode thread on stop, so an interrupt doesn't cut the wait short: the task may still be
+    // writing to the motors. The interrupt flag is set again once the thread is gone.
+    public void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long periodNanos() {
+        return periodNanos;
+    }
+
+    private void loop() {
+        long deadline = clock.nanoTime();
+        try {
+            while (running) {
+                runCycle(deadline);
+                deadline = nextDeadline(deadline, clock.nanoTime());
+                waitUntil(deadline);
+            }
+        } catch (Throwable t) {
+            failure = t;
+            running = false;
+        }
+    }
+
+    // runs one cycle that was due at deadline; split out so it can be driven without a thread
+    void runCycle(long deadline) {
+        task.step(clock.nanoTime());
+        cycles++;
+    }
+
+    // next deadline after previous, counting any we have already blown through
+    long nextDeadline(long previous, long now) {
+        long next = previous + periodNanos;
+        if (now > next) {
+            long late = now - next;
+            long missed = late / periodNanos + 1;
+            deadlineMisses += missed;
+            if (late > worstOverrunNanos) {
+                worstOverrunNanos = late;
+            }
+            next += missed * periodNanos;
+        }
+        return next;
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - clock.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * One FlightRecorder file read back into memory, for FlightLogDecoder and for replaying a
+ * match off the robot. Only uses java.io/java.nio so it also builds on a laptop.
+ * Records are indexed from 0; wheels are in EncoderFrame order (FL, FR, BL, BR).
+ */
+public class FlightLog {
+    // same values as FlightRecorder, repeated so this file compiles without it
+    static final int MAGIC = 0x464C5452;
+    static final int HEADER_BYTES = 512;
+    static final int NAME_BYTES = 16;
+    static final int WHEELS = 4;
+
+    public final String[] axisNames;
+    public final String[] stageNames;
+    public final int count;
+
+    private final long[] nanos;
+    private final long[] cycles;
+    private final int[] positions;
+    private final float[] velocities;
+    private final float[] powers;
+    private final float[] axes;
+    // x, y, heading per record
+    private final float[] poses;
+    private final int[] stageMicros;
+
+    public static FlightLog read(File file) throws IOException {
+        ByteBuffer buffer;
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            stream.close();
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a flight recorder file");
+        }
+        int version = buffer.getInt();
+        if (version != 1) {
+            throw new IOException(file + " has unknown version " + version);
+        }
+        return new FlightLog(buffer);
+    }
+
+    private FlightLog(ByteBuffer buffer) {
+        int recordBytes = buffer.getInt();
+        int axisCount = buffer.getInt();
+        int stageCount = buffer.getInt();
+        buffer.getInt(); // capacity
+        count = buffer.getInt();
+        buffer.getLong(); // wall clock at open
+        axisNames = new String[axisCount];
+        stageNames = new String[stageCount];
+        for (int i = 0; i < axisCount; i++) {
+            axisNames[i] = getName(buffer);
+        }
+        for (int i = 0; i < stageCount; i++) {
+            stageNames[i] = getName(buffer);
+        }
+
+        nanos = new long[count];
+        cycles = new long[count];
+        positions = new int[count * WHEELS];
+        velocities = new float[count * WHEELS];
+        powers = new float[count * WHEELS];
+        axes = new float[count * axisCount];
+        poses = new float[count * 3];
+        stageMicros = new int[count * stageCount];
+        for (int r = 0; r < count; r++) {
+            buffer.position(HEADER_BYTES + r * recordBytes);
+            nanos[r] = buffer.getLong();
+            cycles[r] = buffer.getLong();
+            for (int i = 0; i < WHEELS; i++) {
+                positions[r * WHEELS + i] = buffer.getInt();
+            }
+            for (int i = 0; i < WHEELS; i++) {
+                velocities[r * WHEELS + i] = buffer.getFloat();
+            }
+            for (int i = 0; i < WHEELS; i++) {
+                powers[r * WHEELS + i] = buffer.getFloat();
+            }
+            for (int i = 0; i < axisCount; i++) {
+                axes[r * axisCount + i] = buffer.getFloat();
+            }
+            for (int i = 0; i < 3; i++) {
+                poses[r * 3 + i] = buffer.getFloat();
+            }
+            for (int i = 0; i < stageCount; i++) {
+                stageMicros[r * stageCount + i] = buffer.getInt();
+            }
+        }
+    }
+
+    private static String getName(ByteBuffer buffer) {
+        byte[] bytes = new byte[NAME_BYTES];
+        buffer.get(bytes);
+        int length = 0;
+        while (length < NAME_BYTES && bytes[length] != 0) {
+            length++;
+        }
+        return new String(bytes, 0, length);
+    }
+
+    public long nanos(int record) {
+        return nanos[record];
+    }
+
+    public long cycle(int record) {
+        return cycles[record];
+    }
+
+    public int position(int record, int wheel) {
+        return positions[record * WHEELS + wheel];
+    }
+
+    public double velocity(int record, int wheel) {
+        return velocities[record * WHEELS + wheel];
+    }
+
+    public double power(int record, int wheel) {
+        return powers[record * WHEELS + wheel];
+    }
+
+    public double axis(int record, int axis) {
+        return axes[record * axisNames.length + axis];
+    }
+
+    public double x(int record) {
+        return poses[record * 3];
+    }
+
+    public double y(int record) {
+        return poses[record * 3 + 1];
+    }
+
+    public double heading(int record) {
+        return poses[record * 3 + 2];
+    }
+
+    public int stageMicros(int record, int stage) {
+        return stageMicros[record * stageNames.length + stage];
+    }
+}
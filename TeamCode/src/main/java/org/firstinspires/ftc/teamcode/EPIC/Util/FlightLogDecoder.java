@@ -0,0 +1,84 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Turns FlightRecorder files into CSV. Runs on a laptop with plain Java, it only needs
+ * FlightLog next to it:
+ *
+ *     adb pull /sdcard/FIRST/flight .
+ *     javac -d out TeamCode/src/main/java/org/firstinspires/ftc/teamcode/EPIC/Util/FlightLog*.java
+ *     java -cp out org.firstinspires.ftc.teamcode.EPIC.Util.FlightLogDecoder flight/*.bin
+ *
+ * Writes flight-N.csv next to each flight-N.bin. Times are in seconds from the first record,
+ * stage timings in milliseconds.
+ */
+public class FlightLogDecoder {
+    private static final String[] WHEELS = {"fl", "fr", "bl", "br"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: FlightLogDecoder flight-N.bin...");
+            return;
+        }
+        for (String arg : args) {
+            File in = new File(arg);
+            File out = new File(in.getParentFile(), in.getName().replaceAll("\\.bin$", "") + ".csv");
+            int rows = decode(in, out);
+            System.out.println(out + ": " + rows + " records");
+        }
+    }
+
+    public static int decode(File in, File out) throws IOException {
+        FlightLog log = FlightLog.read(in);
+        PrintWriter writer = new PrintWriter(out, "UTF-8");
+        try {
+            StringBuilder header = new StringBuilder("time,cycle");
+            for (String wheel : WHEELS) {
+                header.append(',').append(wheel).append("_pos");
+            }
+            for (String wheel : WHEELS) {
+                header.append(',').append(wheel).append("_vel");
+            }
+            for (String wheel : WHEELS) {
+                header.append(',').append(wheel).append("_power");
+            }
+            for (String name : log.axisNames) {
+                header.append(',').append(name);
+            }
+            header.append(",x,y,heading");
+            for (String name : log.stageNames) {
+                header.append(',').append(name).append("_ms");
+            }
+            writer.println(header);
+
+            for (int r = 0; r < log.count; r++) {
+                StringBuilder row = new StringBuilder();
+                row.append((log.nanos(r) - log.nanos(0)) / 1e9).append(',').append(log.cycle(r));
+                for (int i = 0; i < WHEELS.length; i++) {
+                    row.append(',').append(log.position(r, i));
+                }
+                for (int i = 0; i < WHEELS.length; i++) {
+                    row.append(',').append((float) log.velocity(r, i));
+                }
+                for (int i = 0; i < WHEELS.length; i++) {
+                    row.append(',').append((float) log.power(r, i));
+                }
+                for (int i = 0; i < log.axisNames.length; i++) {
+                    row.append(',').append((float) log.axis(r, i));
+                }
+                row.append(',').append((float) log.x(r)).append(',').append((float) log.y(r))
+                        .append(',').append((float) log.heading(r));
+                for (int i = 0; i < log.stageNames.length; i++) {
+                    row.append(',').append(log.stageMicros(r, i) / 1000.0);
+                }
+                writer.println(row);
+            }
+        } finally {
+            writer.close();
+        }
+        return log.count;
+    }
+}
@@ -0,0 +1,249 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Black box for the control loop. Every cycle appends one fixed-size binary record to a
+ * memory-mapped file, so after a bad match we have every cycle instead of whatever scrolled
+ * past on the Driver Station. Writing a record is a few dozen puts into the mapped buffer
+ * (microseconds, no allocation); the kernel writes the pages out on its own.
+ *
+ * Files are flight-N.bin in the given directory. When a file is full the recorder moves to
+ * the next N and deletes files older than the last maxFiles. Mapping a file and flushing a full
+ * one take milliseconds, so a background thread does both: it keeps the next file mapped
+ * ahead of time and forces each full buffer it is handed, and rotating in record() is just
+ * swapping buffers. If the next file isn't ready yet the records are counted in dropped.
+ * If a file can't be opened recording stops and the exception is kept in failure, the
+ * control loop keeps running.
+ *
+ * Layout, little endian. The header is HEADER_BYTES long:
+ *     int magic, int version, int recordBytes, int axisCount, int stageCount,
+ *     int capacity, int count (updated every record), long wall clock millis at open,
+ *     then axisCount + stageCount names of NAME_BYTES ASCII each.
+ * Each record:
+ *     long nanos, long cycle, int[4] positions, float[4] velocities, float[4] powers,
+ *     float[axisCount] axes, float x, float y, float heading, int[stageCount] stage micros.
+ * Wheels are in EncoderFrame order. FlightLogDecoder turns the files into CSV.
+ */
+public class FlightRecorder {
+    public static final int MAGIC = 0x464C5452;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 512;
+    public static final int NAME_BYTES = 16;
+    static final int COUNT_OFFSET = 24;
+    static final int OPENED_OFFSET = 28;
+
+    private final File directory;
+    private final int capacity;
+    private final int maxFiles;
+    private final String[] axisNames;
+    private final String[] stageNames;
+    private final int recordBytes;
+
+    private MappedByteBuffer buffer;
+    private int fileIndex;
+    private int count;
+
+    // handed between record() and the mapper thread
+    private final AtomicReference<MappedByteBuffer> spare = new AtomicReference<>();
+    private final AtomicReference<MappedByteBuffer> full = new AtomicReference<>();
+    private Thread mapper;
+    // owned by the mapper thread
+    private int spareIndex;
+
+    public volatile long records = 0;
+    public volatile long dropped = 0;
+    public volatile Throwable failure = null;
+
+    public FlightRecorder(File directory, int recordsPerFile, int maxFiles, String[] axisNames, String... stageNames) {
+        if (HEADER_BYTES < 36 + (axisNames.length + stageNames.length) * NAME_BYTES) {
+            throw new IllegalArgumentException("too many axes and stages for the header");
+        }
+        this.directory = directory;
+        this.capacity = recordsPerFile;
+        this.maxFiles = maxFiles;
+        this.axisNames = axisNames;
+        this.stageNames = stageNames;
+        recordBytes = recordBytes(axisNames.length, stageNames.length);
+        fileIndex = nextFileIndex(directory);
+    }
+
+    public static int recordBytes(int axisCount, int stageCount) {
+        return 8 + 8 + 16 + 16 + 16 + 4 * axisCount + 12 + 4 * stageCount;
+    }
+
+    public static File file(File directory, int index) {
+        return new File(directory, "flight-" + index + ".bin");
+    }
+
+    // continue numbering after whatever an earlier op mode left behind
+    private static int nextFileIndex(File directory) {
+        int next = 0;
+        String[] names = directory.list();
+        if (names == null) {
+            return 0;
+        }
+        for (String name : names) {
+            if (name.startsWith("flight-") && name.endsWith(".bin")) {
+                try {
+                    next = Math.max(next, Integer.parseInt(name.substring(7, name.length() - 4)) + 1);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return next;
+    }
+
+    // maps the first file and starts the thread that maps the rest; call during init so the
+    // control loop doesn't pay for it
+    public void open() throws IOException {
+        directory.mkdirs();
+        buffer = map(fileIndex);
+        count = 0;
+        spareIndex = fileIndex + 1;
+        mapper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mapLoop();
+            }
+        }, "FlightRecorder");
+        mapper.setDaemon(true);
+        mapper.start();
+    }
+
+    private void mapLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            MappedByteBuffer done = full.getAndSet(null);
+            if (done != null) {
+                done.force();
+            }
+            if (spare.get() == null) {
+                try {
+                    spare.set(map(spareIndex));
+                } catch (IOException e) {
+                    failure = e;
+                    return;
+                }
+                spareIndex++;
+            }
+            // record() unparks this thread when it takes the spare
+            LockSupport.park(this);
+        }
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        MappedByteBuffer mapped;
+        RandomAccessFile file = new RandomAccessFile(file(directory, index), "rw");
+        try {
+            mapped = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) capacity * recordBytes);
+        } finally {
+            // the mapping stays valid after the channel is closed
+            file.close();
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.putInt(MAGIC).putInt(VERSION).putInt(recordBytes).putInt(axisNames.length)
+                .putInt(stageNames.length).putInt(capacity).putInt(0).putLong(System.currentTimeMillis());
+        for (String name : axisNames) {
+            putName(mapped, name);
+        }
+        for (String name : stageNames) {
+            putName(mapped, name);
+        }
+        mapped.position(HEADER_BYTES);
+
+        // the file being mapped ahead doesn't count towards maxFiles until it is in use
+        File old = file(directory, index - 1 - maxFiles);
+        if (old.exists()) {
+            old.delete();
+        }
+        return mapped;
+    }
+
+    private static void putName(MappedByteBuffer buffer, String name) {
+        for (int i = 0; i < NAME_BYTES; i++) {
+            buffer.put(i < name.length() ? (byte) name.charAt(i) : 0);
+        }
+    }
+
+    // axes may be shorter than axisCount, the rest are written as 0
+    public void record(EncoderFrame frame, double[] powers, double[] axes,
+                       double x, double y, double heading, LoopProfiler profiler) {
+        if (buffer == null || failure != null) {
+            return;
+        }
+        if (count == capacity) {
+            MappedByteBuffer next = spare.getAndSet(null);
+            if (next == null) {
+                dropped++;
+                return;
+            }
+            full.set(buffer);
+            LockSupport.unpark(mapper);
+            buffer = next;
+            fileIndex++;
+            count = 0;
+            buffer.putLong(OPENED_OFFSET, System.currentTimeMillis());
+        }
+        buffer.putLong(frame.timestampNanos).putLong(frame.cycle);
+        for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+            buffer.putInt(frame.position(i));
+        }
+        for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+            buffer.putFloat((float) frame.velocity(i));
+        }
+        for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+            buffer.putFloat((float) powers[i]);
+        }
+        for (int i = 0; i < axisNames.length; i++) {
+            buffer.putFloat(i < axes.length ? (float) axes[i] : 0);
+        }
+        buffer.putFloat((float) x).putFloat((float) y).putFloat((float) heading);
+        for (int i = 0; i < stageNames.length; i++) {
+            buffer.putInt((int) (profiler.lastStageNanos(i) / 1000));
+        }
+        count++;
+        // count goes last so a reader never sees a half written record
+        buffer.putInt(COUNT_OFFSET, count);
+        records++;
+    }
+
+    // stops the mapper thread, flushes what was written and deletes the file mapped ahead
+    public void close() {
+        if (mapper != null) {
+            mapper.interrupt();
+            boolean interrupted = false;
+            while (mapper.isAlive()) {
+                try {
+                    mapper.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            mapper = null;
+            MappedByteBuffer done = full.getAndSet(null);
+            if (done != null) {
+                done.force();
+            }
+            if (spare.getAndSet(null) != null) {
+                file(directory, spareIndex - 1).delete();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+    }
+}
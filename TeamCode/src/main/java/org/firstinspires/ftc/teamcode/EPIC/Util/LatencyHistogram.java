@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond durations, laid out like HdrHistogram:
+ * every power of two is split into 32 equal buckets, so any recorded value is known to within
+ * about 3%. All storage is allocated in the constructor; record() and the percentile queries
+ * never allocate, so it is safe to use inside the control loop.
+ * Values above about 68 seconds are clamped into the top bucket.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF = SUB_COUNT / 2;
+    private static final int MAX_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private final long[] counts = new long[bucketIndex(MAX_VALUE) + 1];
+
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+    private double mean = 0;
+    // running sum of squared differences from the mean (Welford), for jitter
+    private double m2 = 0;
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long clamped = Math.min(nanos, MAX_VALUE);
+        counts[bucketIndex(clamped)]++;
+        total++;
+        if (nanos < min) {
+            min = nanos;
+        }
+        if (nanos > max) {
+            max = nanos;
+        }
+        double delta = nanos - mean;
+        mean += delta / total;
+        m2 += delta * (nanos - mean);
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long min() {
+        return total == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    // standard deviation of the recorded values, in nanoseconds
+    public double jitter() {
+        return total < 2 ? 0 : Math.sqrt(m2 / (total - 1));
+    }
+
+    // value at the given percentile (0-100), reported as the top of its bucket and never above max()
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketTop(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BITS + 1;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    static long bucketTop(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT) / HALF + 1;
+        long sub = index - (long) shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
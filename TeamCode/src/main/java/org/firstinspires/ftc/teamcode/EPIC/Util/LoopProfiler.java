@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Times each named stage of a control loop and the loop as a whole.
+ *
+ *     LoopProfiler profiler = new LoopProfiler(Clock.SYSTEM, "read", "compute", "write", "telemetry");
+ *     while (opModeIsActive()) {
+ *         profiler.beginCycle();
+ *         ...read...      profiler.endStage(0);
+ *         ...compute...   profiler.endStage(1);
+ *     }
+ *
+ * endStage(i) records the time since the previous endStage (or beginCycle) into stage i.
+ * Cycle time is measured from one beginCycle to the next, so it covers everything the loop did.
+ * Recording never allocates; only report() builds strings.
+ */
+public class LoopProfiler {
+    private final Clock clock;
+    private final String[] stageNames;
+    private final LatencyHistogram[] stages;
+    private final LatencyHistogram cycle = new LatencyHistogram();
+    private final long[] lastStageNanos;
+
+    private long cycleStart = -1;
+    private long lastMark;
+
+    public LoopProfiler(Clock clock, String... stageNames) {
+        this.clock = clock;
+        this.stageNames = stageNames;
+        stages = new LatencyHistogram[stageNames.length];
+        lastStageNanos = new long[stageNames.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public void beginCycle() {
+        long now = clock.nanoTime();
+        if (cycleStart >= 0) {
+            cycle.record(now - cycleStart);
+        }
+        cycleStart = now;
+        lastMark = now;
+    }
+
+    public void endStage(int stage) {
+        long now = clock.nanoTime();
+        stages[stage].record(now - lastMark);
+        lastStageNanos[stage] = now - lastMark;
+        lastMark = now;
+    }
+
+    // duration of the stage in the most recent cycle
+    public long lastStageNanos(int stage) {
+        return lastStageNanos[stage];
+    }
+
+    public LatencyHistogram cycle() {
+        return cycle;
+    }
+
+    public LatencyHistogram stage(int stage) {
+        return stages[stage];
+    }
+
+    public String stageName(int stage) {
+        return stageNames[stage];
+    }
+
+    public int stageCount() {
+        return stages.length;
+    }
+
+    public long cycles() {
+        return cycle.count();
+    }
+
+    public void reset() {
+        cycle.reset();
+        for (LatencyHistogram stage : stages) {
+            stage.reset();
+        }
+        cycleStart = -1;
+    }
+
+    // times shown in milliseconds
+    public void report(Telemetry telemetry) {
+        report(telemetry, "cycle");
+    }
+
+    // cycleCaption tells two profilers' cycle lines apart on one screen
+    public void report(Telemetry telemetry, String cycleCaption) {
+        telemetry.addData(cycleCaption, "p50 %.2f p95 %.2f p99 %.2f max %.2f jitter %.2f ms",
+                cycle.percentile(50) / 1e6, cycle.percentile(95) / 1e6, cycle.percentile(99) / 1e6,
+                cycle.max() / 1e6, cycle.jitter() / 1e6);
+        for (int i = 0; i < stages.length; i++) {
+            telemetry.addData(stageNames[i], "p50 %.2f p99 %.2f max %.2f ms",
+                    stages[i].percentile(50) / 1e6, stages[i].percentile(99) / 1e6, stages[i].max() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Telemetry for the inside of a control loop.
+ * Lines are declared once at init; the loop only stores numbers into them with set(), which
+ * is a plain array write. The text is built (with a reused StringBuilder, no String.format and
+ * no boxing) only when the Driver Station transmission interval has passed, so the loop
+ * doesn't pay for formatting that telemetry would throw away anyway.
+ *
+ *     int path = loopTelemetry.addLine("Path2", "Running at ", 4, 7);
+ *     ...
+ *     loopTelemetry.set(path, 0, frame.frontLeftPosition);
+ *     loopTelemetry.update();
+ */
+public class LoopTelemetry {
+    private static final int MAX_LINES = 16;
+
+    private final Telemetry telemetry;
+    private final Clock clock;
+
+    private final String[] captions = new String[MAX_LINES];
+    private final String[] labels = new String[MAX_LINES];
+    private final double[][] values = new double[MAX_LINES][];
+    // digits after the point, 0 prints the value as a whole number
+    private final int[] decimals = new int[MAX_LINES];
+    private final int[] widths = new int[MAX_LINES];
+    private final StringBuilder[] text = new StringBuilder[MAX_LINES];
+    private int lines = 0;
+
+    private long lastSend;
+    public long sends = 0;
+    public long skipped = 0;
+
+    public LoopTelemetry(Telemetry telemetry, Clock clock) {
+        this.telemetry = telemetry;
+        this.clock = clock;
+        lastSend = clock.nanoTime() - intervalNanos();
+    }
+
+    // a line of whole numbers, each right-aligned to width characters
+    public int addLine(String caption, String label, int count, int width) {
+        return addLine(caption, label, count, width, 0);
+    }
+
+    public int addLine(String caption, String label, int count, int width, int decimalPlaces) {
+        if (lines == MAX_LINES) {
+            throw new IllegalStateException("LoopTelemetry is limited to " + MAX_LINES + " lines");
+        }
+        captions[lines] = caption;
+        labels[lines] = label;
+        values[lines] = new double[count];
+        decimals[lines] = decimalPlaces;
+        widths[lines] = width;
+        text[lines] = new StringBuilder(label.length() + count * (width + 3));
+        return lines++;
+    }
+
+    public void set(int line, int index, double value) {
+        values[line][index] = value;
+    }
+
+    public void set(int line, double v0, double v1, double v2, double v3) {
+        double[] v = values[line];
+        v[0] = v0;
+        v[1] = v1;
+        v[2] = v2;
+        v[3] = v3;
+    }
+
+    public boolean isDue() {
+        return clock.nanoTime() - lastSend >= intervalNanos();
+    }
+
+    // sends all lines if the transmission interval has passed, returns whether it did
+    public boolean update() {
+        if (!isDue()) {
+            skipped++;
+            return false;
+        }
+        for (int i = 0; i < lines; i++) {
+            StringBuilder sb = text[i];
+            sb.setLength(0);
+            sb.append(labels[i]);
+            double[] v = values[i];
+            for (int j = 0; j < v.length; j++) {
+                if (j > 0) {
+                    sb.append(" :");
+                }
+                appendPadded(sb, v[j], decimals[i], widths[i]);
+            }
+            telemetry.addData(captions[i], sb.toString());
+        }
+        telemetry.update();
+        lastSend = clock.nanoTime();
+        sends++;
+        return true;
+    }
+
+    private long intervalNanos() {
+        return telemetry.getMsTransmissionInterval() * 1000000L;
+    }
+
+    static void appendPadded(StringBuilder sb, double value, int decimalPlaces, int width) {
+        long scale = 1;
+        for (int i = 0; i < decimalPlaces; i++) {
+            scale *= 10;
+        }
+        boolean negative = value < 0;
+        long scaled = Math.round(Math.abs(value) * scale);
+        long whole = scaled / scale;
+        long fraction = scaled % scale;
+
+        int length = digits(whole) + (negative ? 1 : 0) + (decimalPlaces > 0 ? decimalPlaces + 1 : 0);
+        for (int i = length; i < width; i++) {
+            sb.append(' ');
+        }
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(whole);
+        if (decimalPlaces > 0) {
+            sb.append('.');
+            for (long s = scale / 10; s > 1 && fraction < s; s /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+    }
+
+    private static int digits(long n) {
+        int d = 1;
+        while (n >= 10) {
+            n /= 10;
+            d++;
+        }
+        return d;
+    }
+}
@@ -0,0 +1,55 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-off of a small set of doubles from exactly one writer thread to exactly one
+ * reader thread (a triple buffer). The writer never waits for the reader and the reader always
+ * gets the most recent complete set of values, never a half-written one.
+ * Used by the op-mode thread to hand setpoints to the ControlLoopExecutor thread.
+ */
+public class SetpointMailbox {
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final double[][] buffers;
+    // index of the buffer in the middle, plus FRESH when the writer has published into it
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;   // only touched by the writer
+    private int front = 2;  // only touched by the reader
+
+    public final int size;
+
+    public SetpointMailbox(int size) {
+        this.size = size;
+        buffers = new double[3][size];
+    }
+
+    // writer side: fill the buffer returned by writeBuffer(), then publish()
+    public double[] writeBuffer() {
+        return buffers[back];
+    }
+
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    public void publish(double v0, double v1, double v2, double v3) {
+        double[] b = buffers[back];
+        b[0] = v0;
+        b[1] = v1;
+        b[2] = v2;
+        b[3] = v3;
+        publish();
+    }
+
+    // reader side: copies the newest published values into out, returns false if nothing new
+    public boolean read(double[] out) {
+        boolean fresh = (middle.get() & FRESH) != 0;
+        if (fresh) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        System.arraycopy(buffers[front], 0, out, 0, size);
+        return fresh;
+    }
+}
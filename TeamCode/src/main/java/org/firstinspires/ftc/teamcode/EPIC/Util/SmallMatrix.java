@@ -0,0 +1,93 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+/**
+ * Just enough linear algebra for small filters, on plain row-major double arrays.
+ * Sizes are passed in and every result goes into an array the caller owns, so nothing in
+ * here allocates; out must never be one of the inputs. Meant for matrices of a few rows,
+ * everything is straight loops.
+ */
+public class SmallMatrix {
+    private SmallMatrix() {
+    }
+
+    public static void identity(double[] out, int n) {
+        for (int i = 0; i < n * n; i++) {
+            out[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            out[i * n + i] = 1;
+        }
+    }
+
+    // out (n x m) = a (n x k) * b (k x m)
+    public static void multiply(double[] a, double[] b, double[] out, int n, int k, int m) {
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < m; c++) {
+                double sum = 0;
+                for (int i = 0; i < k; i++) {
+                    sum += a[r * k + i] * b[i * m + c];
+                }
+                out[r * m + c] = sum;
+            }
+        }
+    }
+
+    // out (n x m) = a (n x k) * transpose of b (m x k)
+    public static void multiplyTransposed(double[] a, double[] b, double[] out, int n, int k, int m) {
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < m; c++) {
+                double sum = 0;
+                for (int i = 0; i < k; i++) {
+                    sum += a[r * k + i] * b[c * k + i];
+                }
+                out[r * m + c] = sum;
+            }
+        }
+    }
+
+    // averages a with its transpose, keeps a covariance from drifting off symmetric
+    public static void symmetrize(double[] a, int n) {
+        for (int r = 0; r < n; r++) {
+            for (int c = r + 1; c < n; c++) {
+                double mean = (a[r * n + c] + a[c * n + r]) / 2;
+                a[r * n + c] = mean;
+                a[c * n + r] = mean;
+            }
+        }
+    }
+
+    // out = inverse of the 3 x 3 a, returns false (out untouched) if a is singular
+    public static boolean invert3(double[] a, double[] out) {
+        double c00 = a[4] * a[8] - a[5] * a[7];
+        double c01 = a[5] * a[6] - a[3] * a[8];
+        double c02 = a[3] * a[7] - a[4] * a[6];
+        double det = a[0] * c00 + a[1] * c01 + a[2] * c02;
+        if (Math.abs(det) < 1e-300) {
+            return false;
+        }
+        double inv = 1 / det;
+        out[0] = c00 * inv;
+        out[1] = (a[2] * a[7] - a[1] * a[8]) * inv;
+        out[2] = (a[1] * a[5] - a[2] * a[4]) * inv;
+        out[3] = c01 * inv;
+        out[4] = (a[0] * a[8] - a[2] * a[6]) * inv;
+        out[5] = (a[2] * a[3] - a[0] * a[5]) * inv;
+        out[6] = c02 * inv;
+        out[7] = (a[1] * a[6] - a[0] * a[7]) * inv;
+        out[8] = (a[0] * a[4] - a[1] * a[3]) * inv;
+        return true;
+    }
+
+    // v^T a v for an n x n a
+    public static double quadratic(double[] a, double[] v, int n) {
+        double sum = 0;
+        for (int r = 0; r < n; r++) {
+            double row = 0;
+            for (int c = 0; c < n; c++) {
+                row += a[r * n + c] * v[c];
+            }
+            sum += v[r] * row;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,90 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves AprilTag results off the control loop.
+ * A background thread polls the DetectionSource and publishes each new frame as an immutable
+ * TagSnapshot; the newest one always wins. The control loop calls latest(), which is a single
+ * volatile read, and can check latest().ageNanos(now) to see how stale it is. It never waits
+ * on the camera and never copies a detection list.
+ *
+ * pollOnce() runs one poll on the calling thread, for driving it from a replay without a thread.
+ */
+public class AprilTagPipeline {
+    private final DetectionSource source;
+    private final Clock clock;
+    private final long pollPeriodNanos;
+    private final AtomicReference<TagSnapshot> latest = new AtomicReference<>(TagSnapshot.EMPTY);
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    public volatile long frames = 0;
+    // worst capture-to-publish time seen
+    public volatile long maxLatencyNanos = 0;
+
+    public AprilTagPipeline(DetectionSource source, Clock clock, double pollHz) {
+        this.source = source;
+        this.clock = clock;
+        this.pollPeriodNanos = (long) (1e9 / pollHz);
+    }
+
+    public TagSnapshot latest() {
+        return latest.get();
+    }
+
+    public boolean pollOnce() {
+        TagSnapshot snapshot = source.poll(clock.nanoTime());
+        if (snapshot == null) {
+            return false;
+        }
+        latest.set(snapshot);
+        frames++;
+        if (snapshot.latencyNanos() > maxLatencyNanos) {
+            maxLatencyNanos = snapshot.latencyNanos();
+        }
+        return true;
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running) {
+                    pollOnce();
+                    LockSupport.parkNanos(pollPeriodNanos);
+                }
+            }
+        }, "apriltag");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // waits for the thread even if interrupted, so nothing polls the camera after this returns
+    public void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
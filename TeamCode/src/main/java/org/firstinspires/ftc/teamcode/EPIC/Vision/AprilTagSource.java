@@ -0,0 +1,64 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/**
+ * DetectionSource for a live AprilTagProcessor. getFreshDetections() returns null until the
+ * camera has processed a new frame, so polling this often is cheap.
+ * Tags that aren't in the tag library have no pose and are left out.
+ */
+public class AprilTagSource implements DetectionSource {
+    private final AprilTagProcessor processor;
+    private long sequence = 0;
+
+    public AprilTagSource(AprilTagProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public TagSnapshot poll(long nowNanos) {
+        List<AprilTagDetection> detections = processor.getFreshDetections();
+        if (detections == null) {
+            return null;
+        }
+        int count = 0;
+        for (AprilTagDetection detection : detections) {
+            if (detection.metadata != null) {
+                count++;
+            }
+        }
+        int[] ids = new int[count];
+        double[] ranges = new double[count];
+        double[] bearings = new double[count];
+        double[] yaws = new double[count];
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] margins = new double[count];
+        double[] centerXs = new double[count];
+        double[] centerYs = new double[count];
+        // an empty frame has no capture time of its own, use now
+        long frameNanos = nowNanos;
+        int i = 0;
+        for (AprilTagDetection detection : detections) {
+            if (detection.metadata == null) {
+                continue;
+            }
+            ids[i] = detection.id;
+            ranges[i] = detection.ftcPose.range;
+            bearings[i] = detection.ftcPose.bearing;
+            yaws[i] = detection.ftcPose.yaw;
+            xs[i] = detection.ftcPose.x;
+            ys[i] = detection.ftcPose.y;
+            margins[i] = detection.decisionMargin;
+            centerXs[i] = detection.center.x;
+            centerYs[i] = detection.center.y;
+            frameNanos = detection.frameAcquisitionNanoTime;
+            i++;
+        }
+        return new TagSnapshot(++sequence, frameNanos, nowNanos, ids, ranges, bearings, yaws, xs, ys, margins,
+                centerXs, centerYs);
+    }
+}
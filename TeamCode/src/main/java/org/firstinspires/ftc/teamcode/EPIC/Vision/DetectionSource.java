@@ -0,0 +1,10 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+/**
+ * Where the AprilTagPipeline gets detections from: the real processor (AprilTagSource) or a
+ * recording (ReplayDetectionSource).
+ */
+public interface DetectionSource {
+    // the newest frame we haven't seen yet, or null if there isn't one
+    TagSnapshot poll(long nowNanos);
+}
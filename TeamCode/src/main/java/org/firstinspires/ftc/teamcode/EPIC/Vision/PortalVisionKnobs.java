@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.ExposureControl;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.GainControl;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VisionKnobs for a live portal. Settings are only sent when they change. Exposure can only
+ * be touched once the camera is streaming (see ConceptAprilTagOptimizeExposure), so one set
+ * before that is kept and sent by the first apply() after the camera starts.
+ */
+public class PortalVisionKnobs implements VisionKnobs {
+    private final VisionPortal portal;
+    private final AprilTagProcessor processor;
+
+    private float decimation = -1;
+    private long exposureMs = -1;
+    private int gain = -1;
+    // the exposure asked for; differs from the one sent while the camera isn't streaming
+    private long wantedExposureMs = -1;
+    private int wantedGain = -1;
+
+    public PortalVisionKnobs(VisionPortal portal, AprilTagProcessor processor) {
+        this.portal = portal;
+        this.processor = processor;
+    }
+
+    @Override
+    public void setDecimation(float decimation) {
+        if (decimation != this.decimation) {
+            processor.setDecimation(decimation);
+            this.decimation = decimation;
+        }
+    }
+
+    @Override
+    public void setExposure(long exposureMs, int gain) {
+        wantedExposureMs = exposureMs;
+        wantedGain = gain;
+        apply();
+    }
+
+    @Override
+    public void apply() {
+        if (wantedExposureMs < 0 || (wantedExposureMs == exposureMs && wantedGain == gain)) {
+            return;
+        }
+        if (portal.getCameraState() != VisionPortal.CameraState.STREAMING) {
+            return;
+        }
+        ExposureControl exposureControl = portal.getCameraControl(ExposureControl.class);
+        if (exposureControl.getMode() != ExposureControl.Mode.Manual) {
+            exposureControl.setMode(ExposureControl.Mode.Manual);
+        }
+        exposureControl.setExposure(wantedExposureMs, TimeUnit.MILLISECONDS);
+        portal.getCameraControl(GainControl.class).setGain(wantedGain);
+        exposureMs = wantedExposureMs;
+        gain = wantedGain;
+    }
+}
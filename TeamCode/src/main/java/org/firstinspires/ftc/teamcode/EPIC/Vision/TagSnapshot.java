@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+/**
+ * Everything the AprilTag processor found in one camera frame, frozen.
+ * Built on the vision thread; the control loop only reads it. Poses are the processor's
+ * ftcPose values (inches and degrees with the default output units).
+ *
+ * The arrays passed to the constructor belong to the snapshot afterwards, don't touch them.
+ */
+public final class TagSnapshot {
+    public static final TagSnapshot EMPTY = new TagSnapshot(0, 0, 0, new int[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0], new double[0], new double[0], new double[0]);
+
+    // sequence number of the frame, 0 means no frame yet
+    public final long sequence;
+    // System.nanoTime() when the camera captured the frame
+    public final long frameNanos;
+    // System.nanoTime() when the result reached us
+    public final long publishedNanos;
+
+    private final int[] ids;
+    private final double[] ranges;
+    private final double[] bearings;
+    private final double[] yaws;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] margins;
+    // tag center in the camera image, pixels
+    private final double[] centerXs;
+    private final double[] centerYs;
+
+    public TagSnapshot(long sequence, long frameNanos, long publishedNanos, int[] ids, double[] ranges,
+                       double[] bearings, double[] yaws, double[] xs, double[] ys, double[] margins,
+                       double[] centerXs, double[] centerYs) {
+        this.sequence = sequence;
+        this.frameNanos = frameNanos;
+        this.publishedNanos = publishedNanos;
+        this.ids = ids;
+        this.ranges = ranges;
+        this.bearings = bearings;
+        this.yaws = yaws;
+        this.xs = xs;
+        this.ys = ys;
+        this.margins = margins;
+        this.centerXs = centerXs;
+        this.centerYs = centerYs;
+    }
+
+    public int count() {
+        return ids.length;
+    }
+
+    // index of the tag with this id, or -1
+    public int find(int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int id(int i) {
+        return ids[i];
+    }
+
+    public double range(int i) {
+        return ranges[i];
+    }
+
+    public double bearing(int i) {
+        return bearings[i];
+    }
+
+    public double yaw(int i) {
+        return yaws[i];
+    }
+
+    public double x(int i) {
+        return xs[i];
+    }
+
+    public double y(int i) {
+        return ys[i];
+    }
+
+    public double decisionMargin(int i) {
+        return margins[i];
+    }
+
+    public double centerX(int i) {
+        return centerXs[i];
+    }
+
+    public double centerY(int i) {
+        return centerYs[i];
+    }
+
+    // camera capture to hand-off
+    public long latencyNanos() {
+        return publishedNanos - frameNanos;
+    }
+
+    // how old the picture behind this snapshot is right now
+    public long ageNanos(long nowNanos) {
+        return nowNanos - frameNanos;
+    }
+}
@@ -0,0 +1,14 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+/**
+ * The camera and processor settings VisionTuner is allowed to change.
+ * PortalVisionKnobs applies them to a real VisionPortal; a recording can use its own.
+ */
+public interface VisionKnobs {
+    void setDecimation(float decimation);
+
+    void setExposure(long exposureMs, int gain);
+
+    // called with every new frame, to send anything that couldn't be sent when it was set
+    void apply();
+}
@@ -0,0 +1,196 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LatencyHistogram;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.VisionProcessor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which vision processors run on which camera, so two cameras don't both run a full
+ * AprilTag pipeline and starve the control loop of CPU.
+ *
+ *     VisionScheduler vision = new VisionScheduler(0.4);
+ *     int front = vision.addCamera("front", frontPortal);
+ *     int tags = vision.addProcessor(front, frontTags, 12);
+ *     ...
+ *     vision.plan("score", tags, rearTags);
+ *     vision.setPhase("score");
+ *
+ * Each processor has a cost in milliseconds of CPU per frame. The CPU load of a processor is
+ * that cost times its camera's frame rate, so the budget is a fraction of one core.
+ * setPhase() enables the phase's processors in the order they were listed until the budget
+ * is used up and disables everything else with setProcessorEnabled. Only changes are sent to
+ * the portals. A camera left with nothing to run stops streaming when stopIdleCameras is set.
+ *
+ * sample() reads each camera's FPS, and recordFrame() takes the pipeline time of a frame, for
+ * the per-camera stats in report().
+ */
+public class VisionScheduler {
+    // frame rate assumed for a camera that hasn't reported one yet
+    public double nominalFps = 30;
+    public boolean stopIdleCameras = true;
+
+    private final double cpuBudget;
+    private final List<Camera> cameras = new ArrayList<>();
+    private final List<Processor> processors = new ArrayList<>();
+    private final Map<String, int[]> plans = new HashMap<>();
+    private String phase = null;
+    private double load = 0;
+
+    private static class Camera {
+        final String name;
+        final VisionPortal portal;
+        final LatencyHistogram pipeline = new LatencyHistogram();
+        boolean streaming = true;
+        double fps = 0;
+        long frames = 0;
+
+        Camera(String name, VisionPortal portal) {
+            this.name = name;
+            this.portal = portal;
+        }
+    }
+
+    private static class Processor {
+        final int camera;
+        final VisionProcessor processor;
+        final double costMs;
+        boolean enabled = true;
+
+        Processor(int camera, VisionProcessor processor, double costMs) {
+            this.camera = camera;
+            this.processor = processor;
+            this.costMs = costMs;
+        }
+    }
+
+    public VisionScheduler(double cpuBudget) {
+        this.cpuBudget = cpuBudget;
+    }
+
+    public int addCamera(String name, VisionPortal portal) {
+        cameras.add(new Camera(name, portal));
+        return cameras.size() - 1;
+    }
+
+    // portals start with every processor enabled, which is what we assume here
+    public int addProcessor(int camera, VisionProcessor processor, double costMs) {
+        processors.add(new Processor(camera, processor, costMs));
+        return processors.size() - 1;
+    }
+
+    // processors for a phase, most important first
+    public void plan(String phase, int... processorIndexes) {
+        plans.put(phase, processorIndexes.clone());
+    }
+
+    public String phase() {
+        return phase;
+    }
+
+    public boolean isEnabled(int processor) {
+        return processors.get(processor).enabled;
+    }
+
+    // estimated fraction of a core used by the enabled processors
+    public double load() {
+        return load;
+    }
+
+    public void setPhase(String phase) {
+        int[] wanted = plans.get(phase);
+        if (wanted == null) {
+            throw new IllegalArgumentException("no plan for phase " + phase);
+        }
+        this.phase = phase;
+        boolean[] enable = new boolean[processors.size()];
+        load = 0;
+        for (int index : wanted) {
+            Processor processor = processors.get(index);
+            double cost = processor.costMs * cameraFps(processor.camera) / 1000.0;
+            if (load + cost <= cpuBudget) {
+                enable[index] = true;
+                load += cost;
+            }
+        }
+        apply(enable);
+    }
+
+    private double cameraFps(int camera) {
+        double fps = cameras.get(camera).fps;
+        return fps > 0 ? fps : nominalFps;
+    }
+
+    private void apply(boolean[] enable) {
+        boolean[] cameraUsed = new boolean[cameras.size()];
+        for (int i = 0; i < processors.size(); i++) {
+            if (enable[i]) {
+                cameraUsed[processors.get(i).camera] = true;
+            }
+        }
+        for (int c = 0; c < cameras.size(); c++) {
+            Camera camera = cameras.get(c);
+            if (cameraUsed[c] && !camera.streaming) {
+                camera.portal.resumeStreaming();
+                camera.streaming = true;
+            }
+        }
+        for (int i = 0; i < processors.size(); i++) {
+            Processor processor = processors.get(i);
+            if (processor.enabled != enable[i]) {
+                cameras.get(processor.camera).portal.setProcessorEnabled(processor.processor, enable[i]);
+                processor.enabled = enable[i];
+            }
+        }
+        if (stopIdleCameras) {
+            for (int c = 0; c < cameras.size(); c++) {
+                Camera camera = cameras.get(c);
+                if (!cameraUsed[c] && camera.streaming) {
+                    camera.portal.stopStreaming();
+                    camera.streaming = false;
+                }
+            }
+        }
+    }
+
+    // read each streaming camera's frame rate; call every loop or so
+    public void sample() {
+        for (Camera camera : cameras) {
+            camera.fps = camera.streaming ? camera.portal.getFps() : 0;
+        }
+    }
+
+    // time from frame capture to results, e.g. TagSnapshot.latencyNanos()
+    public void recordFrame(int camera, long pipelineNanos) {
+        Camera c = cameras.get(camera);
+        c.pipeline.record(pipelineNanos);
+        c.frames++;
+    }
+
+    public double fps(int camera) {
+        return cameras.get(camera).fps;
+    }
+
+    public long frames(int camera) {
+        return cameras.get(camera).frames;
+    }
+
+    public LatencyHistogram pipeline(int camera) {
+        return cameras.get(camera).pipeline;
+    }
+
+    // times shown in milliseconds
+    public void report(Telemetry telemetry) {
+        telemetry.addData("vision", "%s load %.2f / %.2f", phase, load, cpuBudget);
+        for (Camera camera : cameras) {
+            telemetry.addData(camera.name, "%s %.1f fps  p50 %.1f p99 %.1f max %.1f ms",
+                    camera.streaming ? "on" : "off", camera.fps, camera.pipeline.percentile(50) / 1e6,
+                    camera.pipeline.percentile(99) / 1e6, camera.pipeline.max() / 1e6);
+        }
+    }
+}
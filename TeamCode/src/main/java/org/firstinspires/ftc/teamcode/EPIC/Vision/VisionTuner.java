@@ -0,0 +1,136 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+/**
+ * Trades AprilTag range for frame rate while we drive.
+ *
+ * Feed it every new TagSnapshot with how long the frame took to process. It then:
+ *  - raises decimation (faster, shorter range) when tags are close or frames run over budget,
+ *    and lowers it (slower, longer range) when tags are far away or lost;
+ *  - shortens exposure and adds gain when decision margins drop (motion blur), and goes
+ *    back to the default exposure once tags are lost.
+ * Every change needs several frames in a row to agree, so settings don't flap.
+ * It only does arithmetic on the snapshot, so a recorded trace gives the same decisions.
+ */
+public class VisionTuner {
+    public float[] decimations = {1, 2, 3};
+
+    // inches
+    public double nearRange = 24;
+    public double farRange = 60;
+    // frames in a row that must agree before a change
+    public int agreeFrames = 5;
+    public int lostFrames = 15;
+    public long frameBudgetNanos = 40000000L;
+
+    public long defaultExposureMs = 15;
+    public long minExposureMs = 4;
+    public int defaultGain = 100;
+    public int maxGain = 255;
+    public double lowMargin = 20;
+
+    private final VisionKnobs knobs;
+
+    private int decimationIndex = 1;
+    private long exposureMs;
+    private int gain;
+    private double processingNanos = 0;
+    private long lastSequence = -1;
+
+    private int nearCount = 0;
+    private int farCount = 0;
+    private int overBudgetCount = 0;
+    private int lostCount = 0;
+    private int blurCount = 0;
+
+    public VisionTuner(VisionKnobs knobs) {
+        this.knobs = knobs;
+        exposureMs = defaultExposureMs;
+        gain = defaultGain;
+    }
+
+    public void start() {
+        knobs.setDecimation(decimations[decimationIndex]);
+        knobs.setExposure(exposureMs, gain);
+    }
+
+    public float decimation() {
+        return decimations[decimationIndex];
+    }
+
+    public long exposureMs() {
+        return exposureMs;
+    }
+
+    public int gain() {
+        return gain;
+    }
+
+    public double averageProcessingNanos() {
+        return processingNanos;
+    }
+
+    // call with every snapshot; repeats of the same frame are ignored
+    public void update(TagSnapshot snapshot, long frameProcessingNanos) {
+        if (snapshot.sequence == lastSequence) {
+            return;
+        }
+        lastSequence = snapshot.sequence;
+        knobs.apply();
+        processingNanos = processingNanos == 0 ? frameProcessingNanos
+                : processingNanos * 0.8 + frameProcessingNanos * 0.2;
+
+        int count = snapshot.count();
+        double closest = Double.MAX_VALUE;
+        double margin = 0;
+        for (int i = 0; i < count; i++) {
+            closest = Math.min(closest, snapshot.range(i));
+            margin += snapshot.decisionMargin(i);
+        }
+        if (count > 0) {
+            margin /= count;
+        }
+
+        lostCount = count == 0 ? lostCount + 1 : 0;
+        nearCount = count > 0 && closest < nearRange ? nearCount + 1 : 0;
+        farCount = count > 0 && closest > farRange ? farCount + 1 : 0;
+        blurCount = count > 0 && margin < lowMargin ? blurCount + 1 : 0;
+        overBudgetCount = processingNanos > frameBudgetNanos ? overBudgetCount + 1 : 0;
+
+        // both react to losing the tags, so the count is only cleared once they have seen it
+        boolean lost = lostCount >= lostFrames;
+        updateDecimation(lost);
+        updateExposure(lost);
+        if (lost) {
+            lostCount = 0;
+        }
+    }
+
+    private void updateDecimation(boolean lost) {
+        boolean roomToSlow = processingNanos < frameBudgetNanos * 0.7;
+        if ((nearCount >= agreeFrames || overBudgetCount >= agreeFrames) && decimationIndex < decimations.length - 1) {
+            decimationIndex++;
+            nearCount = 0;
+            // the average lags, give the new setting a fresh run of frames before judging it
+            overBudgetCount = 0;
+            knobs.setDecimation(decimations[decimationIndex]);
+        } else if ((farCount >= agreeFrames || lost) && roomToSlow && decimationIndex > 0) {
+            decimationIndex--;
+            farCount = 0;
+            knobs.setDecimation(decimations[decimationIndex]);
+        }
+    }
+
+    private void updateExposure(boolean lost) {
+        if (blurCount >= agreeFrames && exposureMs > minExposureMs) {
+            // half the exposure, double the gain to keep the picture about as bright
+            exposureMs = Math.max(minExposureMs, exposureMs / 2);
+            gain = Math.min(maxGain, gain * 2);
+            blurCount = 0;
+            knobs.setExposure(exposureMs, gain);
+        } else if (lost && exposureMs != defaultExposureMs) {
+            exposureMs = defaultExposureMs;
+            gain = defaultGain;
+            knobs.setExposure(exposureMs, gain);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.firstinspires.ftc.teamcode.EPIC.Command;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelRaceGroupTest {
+    // finishes on its finishAt-th execute, and like EncoderDriveCommand its isFinished() has a
+    // side effect: every call after the first that said true says false
+    private static class Racer implements Command {
+        final int finishAt;
+        int executes = 0;
+        boolean reported = false;
+        Boolean endedInterrupted = null;
+
+        Racer(int finishAt) {
+            this.finishAt = finishAt;
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void execute() {
+            executes++;
+        }
+
+        @Override
+        public boolean isFinished() {
+            if (executes >= finishAt && !reported) {
+                reported = true;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void end(boolean interrupted) {
+            endedInterrupted = interrupted;
+        }
+    }
+
+    private static void run(ParallelRaceGroup group) {
+        group.initialize();
+        while (!group.isFinished()) {
+            group.execute();
+        }
+        group.end(false);
+    }
+
+    @Test
+    public void winnerEndsFinishedAndTheRestInterrupted() {
+        Racer fast = new Racer(3);
+        Racer slow = new Racer(10);
+        run(new ParallelRaceGroup(slow, fast));
+        assertEquals(3, fast.executes);
+        assertFalse(fast.endedInterrupted);
+        assertTrue(slow.endedInterrupted);
+    }
+
+    @Test
+    public void cancellingInterruptsEveryone() {
+        Racer a = new Racer(3);
+        Racer b = new Racer(1);
+        ParallelRaceGroup group = new ParallelRaceGroup(a, b);
+        group.initialize();
+        group.execute();
+        group.end(true);
+        assertTrue(a.endedInterrupted);
+        assertTrue(b.endedInterrupted);
+    }
+
+    @Test
+    public void rerunStartsClean() {
+        Racer a = new Racer(2);
+        Racer b = new Racer(5);
+        ParallelRaceGroup group = new ParallelRaceGroup(a, b);
+        run(group);
+        a.executes = 0;
+        a.reported = false;
+        b.executes = 0;
+        b.reported = false;
+        // this time b wins
+        a.executes = -10;
+        run(group);
+        assertTrue(a.endedInterrupted);
+        assertFalse(b.endedInterrupted);
+    }
+}
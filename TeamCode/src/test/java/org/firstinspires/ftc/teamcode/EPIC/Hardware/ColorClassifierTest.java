@@ -0,0 +1,175 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Builds a classifier from synthetic calibration samples: red, blue and yellow pieces and an
+ * empty intake, each a cluster of normalized readings with a few percent of noise and some
+ * spread in distance (brightness).
+ */
+public class ColorClassifierTest {
+    private static final double[] RED = {0.30, 0.08, 0.05};
+    private static final double[] BLUE = {0.05, 0.10, 0.30};
+    private static final double[] YELLOW = {0.35, 0.30, 0.08};
+    private static final double[] EMPTY = {0.02, 0.025, 0.02};
+    // class indexes for the debouncer
+    private static final int PIECE = 1;
+    private static final int OTHER = 2;
+
+    private ColorClassifier classifier;
+
+    private static void addSamples(List<String> labels, List<double[]> samples, String label, double[] color,
+                                   Random random) {
+        for (int i = 0; i < 50; i++) {
+            double brightness = 0.85 + 0.3 * random.nextDouble();
+            double[] sample = new double[3];
+            for (int k = 0; k < 3; k++) {
+                sample[k] = color[k] * brightness * (1 + 0.03 * random.nextGaussian());
+            }
+            labels.add(label);
+            samples.add(sample);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Random random = new Random(3);
+        List<String> labels = new ArrayList<>();
+        List<double[]> samples = new ArrayList<>();
+        addSamples(labels, samples, "red", RED, random);
+        addSamples(labels, samples, "blue", BLUE, random);
+        addSamples(labels, samples, "yellow", YELLOW, random);
+        addSamples(labels, samples, ColorClassifier.NONE_LABEL, EMPTY, random);
+        classifier = ColorClassifier.build(labels, samples, 32, 11.34);
+    }
+
+    private String classify(double[] color, double brightness) {
+        return classifier.label(classifier.classify(color[0] * brightness, color[1] * brightness,
+                color[2] * brightness));
+    }
+
+    @Test
+    public void piecesAreToldApart() {
+        // "none" samples train NONE itself rather than a class of their own
+        assertEquals(4, classifier.classCount());
+        assertEquals(ColorClassifier.NONE_LABEL, classifier.label(ColorClassifier.NONE));
+        assertEquals("red", classify(RED, 1));
+        assertEquals("blue", classify(BLUE, 1));
+        assertEquals("yellow", classify(YELLOW, 1));
+        assertEquals(ColorClassifier.NONE_LABEL, classify(EMPTY, 1));
+        // a little nearer or further is still the same piece
+        assertEquals("red", classify(RED, 0.9));
+        assertEquals("blue", classify(BLUE, 1.1));
+    }
+
+    @Test
+    public void colorsNothingLooksLikeAreNone() {
+        assertEquals(ColorClassifier.NONE, classifier.classify(0.02, 0.40, 0.02));
+        assertEquals(ColorClassifier.NONE, classifier.classify(0, 0, 0));
+        // far brighter than anything calibrated
+        assertEquals(ColorClassifier.NONE, classifier.classify(1, 1, 1));
+    }
+
+    @Test
+    public void cellsAreOnASquareRootScale() {
+        List<String> labels = new ArrayList<>();
+        List<double[]> samples = new ArrayList<>();
+        labels.add("white");
+        samples.add(new double[] {0.9, 0.9, 0.9});
+        // brightest 0.9 * 1.25 caps the table at 1.0
+        ColorClassifier sixteen = ColorClassifier.build(labels, samples, 16, 11.34);
+        assertEquals(1.0, sixteen.maxValue, 0);
+
+        assertEquals(0, sixteen.cell(0));
+        assertEquals(0, sixteen.cell(-0.1));
+        // a cell is 1/256 wide near black ...
+        assertEquals(0, sixteen.cell(0.003));
+        assertEquals(1, sixteen.cell(0.004));
+        assertEquals(2, sixteen.cell(4.0 / 256 + 0.001));
+        assertEquals(8, sixteen.cell(0.25));
+        // ... and over 0.1 wide near the top
+        assertEquals(15, sixteen.cell(0.88));
+        assertEquals(15, sixteen.cell(1.0));
+        assertEquals(15, sixteen.cell(3.0));
+    }
+
+    @Test
+    public void loadReadsCalibrationFilesAndSkipsComments() throws IOException {
+        File file = File.createTempFile("color_samples", ".csv");
+        try {
+            FileWriter out = new FileWriter(file);
+            out.write("# label,red,green,blue,alpha\n\n");
+            Random random = new Random(5);
+            for (int i = 0; i < 20; i++) {
+                double brightness = 0.9 + 0.2 * random.nextDouble();
+                out.write(String.format(Locale.US, "red,%.5f,%.5f,%.5f,0.5%n", RED[0] * brightness,
+                        RED[1] * brightness, RED[2] * brightness));
+            }
+            out.close();
+            ColorClassifier loaded = ColorClassifier.load(file, 32);
+            assertEquals(2, loaded.classCount());
+            assertEquals("red", loaded.label(loaded.classify(RED[0], RED[1], RED[2])));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void aMissingFileClassifiesEverythingAsNone() throws IOException {
+        ColorClassifier empty = ColorClassifier.load(new File("no_such_color_samples.csv"), 16);
+        assertEquals(1, empty.classCount());
+        assertEquals(ColorClassifier.NONE, empty.classify(RED[0], RED[1], RED[2]));
+    }
+
+    @Test
+    public void debouncerNeedsEnterReadsInARowToReportAPiece() {
+        ColorClassifier.Debouncer debouncer = new ColorClassifier.Debouncer(2, 5);
+        assertEquals(ColorClassifier.NONE, debouncer.update(PIECE));
+        assertEquals(PIECE, debouncer.update(PIECE));
+        assertEquals(PIECE, debouncer.stable());
+
+        // a glint that comes and goes never gets in
+        debouncer.reset();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(ColorClassifier.NONE, debouncer.update(i % 2 == 0 ? PIECE : ColorClassifier.NONE));
+        }
+    }
+
+    @Test
+    public void debouncerNeedsExitReadsInARowToDropAPiece() {
+        ColorClassifier.Debouncer debouncer = new ColorClassifier.Debouncer(2, 5);
+        debouncer.update(PIECE);
+        debouncer.update(PIECE);
+        // gaps shorter than exitReads don't drop it
+        for (int gap = 0; gap < 3; gap++) {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(PIECE, debouncer.update(ColorClassifier.NONE));
+            }
+            assertEquals(PIECE, debouncer.update(PIECE));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(PIECE, debouncer.update(ColorClassifier.NONE));
+        }
+        assertEquals(ColorClassifier.NONE, debouncer.update(ColorClassifier.NONE));
+    }
+
+    @Test
+    public void debouncerSwitchesStraightToAnotherPiece() {
+        ColorClassifier.Debouncer debouncer = new ColorClassifier.Debouncer(2, 5);
+        debouncer.update(PIECE);
+        debouncer.update(PIECE);
+        assertEquals(PIECE, debouncer.update(OTHER));
+        assertEquals(OTHER, debouncer.update(OTHER));
+    }
+}
@@ -0,0 +1,67 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+/**
+ * Fake hub for running HardwareSnapshot off the robot.
+ * It behaves like a hub in MANUAL caching mode: the first read after a clear counts as one
+ * bulk read, later reads in the same cycle come from the cache. Set positions/velocities
+ * directly and check bulkReads/channelReads to see how many hub round trips a cycle cost.
+ */
+public class FakeBulkReadSource implements BulkReadSource {
+    public final int[] positions;
+    public final double[] velocities;
+
+    public boolean manualCaching = false;
+    public int clears = 0;
+    public int bulkReads = 0;
+    public int channelReads = 0;
+
+    private boolean cacheValid = false;
+
+    public FakeBulkReadSource(int channels) {
+        positions = new int[channels];
+        velocities = new double[channels];
+    }
+
+    @Override
+    public void enableManualCaching() {
+        manualCaching = true;
+    }
+
+    @Override
+    public void clearBulkCache() {
+        clears++;
+        cacheValid = false;
+    }
+
+    @Override
+    public int channelCount() {
+        return positions.length;
+    }
+
+    @Override
+    public int getCurrentPosition(int channel) {
+        read();
+        return positions[channel];
+    }
+
+    @Override
+    public double getVelocity(int channel) {
+        read();
+        return velocities[channel];
+    }
+
+    public void resetCounts() {
+        clears = 0;
+        bulkReads = 0;
+        channelReads = 0;
+    }
+
+    private void read() {
+        channelReads++;
+        // without MANUAL caching every read is its own round trip, like BulkCachingMode.OFF
+        if (!manualCaching || !cacheValid) {
+            bulkReads++;
+            cacheValid = manualCaching;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * IMU with no hub behind it, for running heading code off the robot.
+ * Yaw and yaw rate are whatever the owner last put in the public fields (CCW radians, the yaw
+ * may run past +-pi and is wrapped on the way out like the real one). Every read blocks the
+ * calling thread for latencyNanos, roughly what one I2C transaction costs on a hub, so code
+ * that reads it on the control thread is as slow here as on the robot. Pitch and roll are 0.
+ */
+public class FakeImu implements IMU {
+    public volatile double yaw = 0;
+    public volatile double yawRate = 0;
+    public volatile long latencyNanos = 0;
+    public volatile long reads = 0;
+
+    private volatile double yawOffset = 0;
+
+    @Override
+    public boolean initialize(Parameters parameters) {
+        return true;
+    }
+
+    @Override
+    public void resetYaw() {
+        yawOffset = yaw;
+    }
+
+    @Override
+    public YawPitchRollAngles getRobotYawPitchRollAngles() {
+        transaction();
+        return new YawPitchRollAngles(AngleUnit.RADIANS, wrap(yaw - yawOffset), 0, 0, System.nanoTime());
+    }
+
+    @Override
+    public Orientation getRobotOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit) {
+        transaction();
+        double heading = wrap(yaw - yawOffset);
+        float first = (float) (angleUnit == AngleUnit.DEGREES ? Math.toDegrees(heading) : heading);
+        return new Orientation(reference, order, angleUnit, first, 0, 0, System.nanoTime());
+    }
+
+    @Override
+    public Quaternion getRobotOrientationAsQuaternion() {
+        transaction();
+        double half = wrap(yaw - yawOffset) / 2;
+        return new Quaternion((float) Math.cos(half), 0, 0, (float) Math.sin(half), System.nanoTime());
+    }
+
+    @Override
+    public AngularVelocity getRobotAngularVelocity(AngleUnit angleUnit) {
+        transaction();
+        float rate = (float) (angleUnit == AngleUnit.DEGREES ? Math.toDegrees(yawRate) : yawRate);
+        return new AngularVelocity(angleUnit, 0, 0, rate, System.nanoTime());
+    }
+
+    private void transaction() {
+        long end = System.nanoTime() + latencyNanos;
+        long remaining;
+        while ((remaining = end - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        reads++;
+    }
+
+    private static double wrap(double angle) {
+        return Math.atan2(Math.sin(angle), Math.cos(angle));
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Fake IMU";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "fake";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
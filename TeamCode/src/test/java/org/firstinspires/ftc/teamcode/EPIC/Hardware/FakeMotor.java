@@ -0,0 +1,297 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/**
+ * DcMotorEx with no hub behind it, for running drive code off the robot.
+ * Whatever the code writes (power, velocity, mode, target) is kept and can be read back;
+ * position and velocity are whatever the owner last put in the public fields, e.g. a recorded
+ * log or a simulation. Positions are raw encoder ticks, the motor direction is not applied.
+ * STOP_AND_RESET_ENCODER zeroes the position like the real motor does and counts in resets.
+ * setVelocity() keeps the setpoint and reports it as a power of setpoint / maxTicksPerSecond.
+ * isBusy() reports busy, which updateBusy() sets the way the hub does.
+ */
+public class FakeMotor implements DcMotorEx {
+    private final String name;
+
+    public int position = 0;
+    // ticks per second
+    public double velocity = 0;
+    public double ticksPerRev = 537.7;
+    // 312 rpm goBILDA at 12 V
+    public double maxTicksPerSecond = 312 / 60.0 * 537.7;
+    public boolean busy = false;
+
+    private double power = 0;
+    private double velocitySetpoint = 0;
+    private boolean velocityControl = false;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private Direction direction = Direction.FORWARD;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+    private int targetPosition = 0;
+    private int targetTolerance = 10;
+    private boolean enabled = true;
+    private double currentAlert = 0;
+    private PIDFCoefficients velocityPidf = new PIDFCoefficients(10, 3, 0, 0);
+    private PIDFCoefficients positionPidf = new PIDFCoefficients(10, 0, 0, 0);
+
+    // every setPower/setVelocity call, to compare against CachingMotor's counts
+    public long powerWrites = 0;
+    public long resets = 0;
+
+    public FakeMotor(String name) {
+        this.name = name;
+    }
+
+    // what the hub answers at the current position: running to a target not yet within tolerance
+    public void updateBusy() {
+        busy = mode == RunMode.RUN_TO_POSITION && Math.abs(targetPosition - position) > targetTolerance;
+    }
+
+    // ticks per second the code asked for, from setVelocity() or power * maxTicksPerSecond
+    public double velocitySetpoint() {
+        return velocityControl ? velocitySetpoint : power * maxTicksPerSecond;
+    }
+
+    @Override
+    public void setMotorEnable() {
+        enabled = true;
+    }
+
+    @Override
+    public void setMotorDisable() {
+        enabled = false;
+    }
+
+    @Override
+    public boolean isMotorEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        velocitySetpoint = angularRate;
+        velocityControl = true;
+        power = angularRate / maxTicksPerSecond;
+        powerWrites++;
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        double revs = unit == AngleUnit.DEGREES ? angularRate / 360 : angularRate / (2 * Math.PI);
+        setVelocity(revs * ticksPerRev);
+    }
+
+    @Override
+    public double getVelocity() {
+        return velocity;
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        double revs = velocity / ticksPerRev;
+        return unit == AngleUnit.DEGREES ? revs * 360 : revs * 2 * Math.PI;
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+        setPIDFCoefficients(mode, new PIDFCoefficients(pidCoefficients.p, pidCoefficients.i, pidCoefficients.d, 0));
+    }
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+        if (mode == RunMode.RUN_TO_POSITION) {
+            positionPidf = pidfCoefficients;
+        } else {
+            velocityPidf = pidfCoefficients;
+        }
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        velocityPidf = new PIDFCoefficients(p, i, d, f);
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        positionPidf = new PIDFCoefficients(p, 0, 0, 0);
+    }
+
+    @Override
+    @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        PIDFCoefficients pidf = getPIDFCoefficients(mode);
+        return new PIDCoefficients(pidf.p, pidf.i, pidf.d);
+    }
+
+    @Override
+    public PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return mode == RunMode.RUN_TO_POSITION ? positionPidf : velocityPidf;
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        targetTolerance = tolerance;
+    }
+
+    @Override
+    public int getTargetPositionTolerance() {
+        return targetTolerance;
+    }
+
+    @Override
+    public double getCurrent(CurrentUnit unit) {
+        return 0;
+    }
+
+    @Override
+    public double getCurrentAlert(CurrentUnit unit) {
+        return currentAlert;
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {
+        currentAlert = current;
+    }
+
+    @Override
+    public boolean isOverCurrent() {
+        return false;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return MotorConfigurationType.getUnspecifiedMotorType();
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return 0;
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+        setPower(0);
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        targetPosition = position;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return targetPosition;
+    }
+
+    @Override
+    public boolean isBusy() {
+        return busy;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return position;
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            position = 0;
+            velocity = 0;
+            power = 0;
+            velocityControl = false;
+            resets++;
+        }
+        this.mode = mode;
+    }
+
+    @Override
+    public RunMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setPower(double power) {
+        this.power = power;
+        velocityControl = false;
+        powerWrites++;
+    }
+
+    @Override
+    public double getPower() {
+        return power;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Fake motor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return name;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+
+import java.util.ArrayDeque;
+
+/**
+ * OctoQuad with no chip behind it, for running DeadWheelOdometry off the robot.
+ * Each read() hands out the next scripted block (see script()), or the live positions and
+ * velocities arrays once the script runs out. Directions are applied like the chip does:
+ * a reversed channel reads negated. resetPositions() zeroes the live positions.
+ */
+public class FakeOctoQuad implements EncoderBlockSource {
+    public final int[] positions = new int[OctoQuad.NUM_ENCODERS];
+    // counts per velocity sample interval
+    public final short[] velocities = new short[OctoQuad.NUM_ENCODERS];
+    public final boolean[] reversed = new boolean[OctoQuad.NUM_ENCODERS];
+    public final int[] velocityIntervalMs = new int[OctoQuad.NUM_ENCODERS];
+
+    public long reads = 0;
+    public long resets = 0;
+
+    private final ArrayDeque<OctoQuad.EncoderDataBlock> script = new ArrayDeque<>();
+
+    // queue a block to be returned by a later read(), in order; values are raw, before direction
+    public void script(int[] blockPositions, short[] blockVelocities) {
+        OctoQuad.EncoderDataBlock block = new OctoQuad.EncoderDataBlock();
+        System.arraycopy(blockPositions, 0, block.positions, 0, blockPositions.length);
+        System.arraycopy(blockVelocities, 0, block.velocities, 0, blockVelocities.length);
+        script.add(block);
+    }
+
+    public int scripted() {
+        return script.size();
+    }
+
+    @Override
+    public void configureChannel(int channel, boolean reversed, int velocityIntervalMs) {
+        this.reversed[channel] = reversed;
+        this.velocityIntervalMs[channel] = velocityIntervalMs;
+    }
+
+    @Override
+    public void resetPositions() {
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = 0;
+        }
+        resets++;
+    }
+
+    @Override
+    public void read(OctoQuad.EncoderDataBlock block) {
+        OctoQuad.EncoderDataBlock next = script.poll();
+        int[] p = next != null ? next.positions : positions;
+        short[] v = next != null ? next.velocities : velocities;
+        for (int i = 0; i < OctoQuad.NUM_ENCODERS; i++) {
+            block.positions[i] = reversed[i] ? -p[i] : p[i];
+            block.velocities[i] = (short) (reversed[i] ? -v[i] : v[i]);
+        }
+        reads++;
+    }
+}
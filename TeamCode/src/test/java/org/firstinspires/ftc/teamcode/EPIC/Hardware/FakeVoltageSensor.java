@@ -0,0 +1,45 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+/**
+ * VoltageSensor with no hub behind it, reads whatever voltage was last set.
+ */
+public class FakeVoltageSensor implements VoltageSensor {
+    public double voltage = 12.0;
+    public long reads = 0;
+
+    @Override
+    public double getVoltage() {
+        reads++;
+        return voltage;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Fake voltage sensor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "fake";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
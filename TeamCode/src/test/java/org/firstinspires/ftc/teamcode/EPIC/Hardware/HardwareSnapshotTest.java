@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HardwareSnapshotTest {
+    private FakeBulkReadSource source;
+    private FakeClock clock;
+    private HardwareSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        source = new FakeBulkReadSource(4);
+        clock = new FakeClock(1000);
+        snapshot = new HardwareSnapshot(source, clock);
+    }
+
+    @Test
+    public void putsHubsInManualCaching() {
+        assertTrue(source.manualCaching);
+    }
+
+    @Test
+    public void oneBulkReadPerCycle() {
+        for (int cycle = 1; cycle <= 5; cycle++) {
+            source.resetCounts();
+            for (int i = 0; i < 4; i++) {
+                source.positions[i] = cycle * 100 + i;
+            }
+            EncoderFrame frame = snapshot.read();
+            // the rest of the cycle only looks at the frame
+            snapshot.latest().position(EncoderFrame.BACK_RIGHT);
+
+            assertEquals(1, source.clears);
+            assertEquals(1, source.bulkReads);
+            assertEquals(8, source.channelReads);
+            assertEquals(cycle, frame.cycle);
+            assertEquals(cycle * 100 + EncoderFrame.BACK_LEFT, frame.position(EncoderFrame.BACK_LEFT));
+        }
+        assertEquals(5, snapshot.cycles());
+    }
+
+    @Test
+    public void withoutCachingEveryChannelIsARoundTrip() {
+        // what the drive code cost before the snapshot: one hub round trip per getter
+        source.manualCaching = false;
+        source.resetCounts();
+        snapshot.read();
+        assertEquals(8, source.bulkReads);
+    }
+
+    @Test
+    public void framesCarryTheClockAndVelocities() {
+        source.velocities[EncoderFrame.FRONT_RIGHT] = 1234.5;
+        clock.advanceMillis(5);
+        EncoderFrame frame = snapshot.read();
+        assertEquals(1000 + 5_000_000L, frame.timestampNanos);
+        assertEquals(1234.5, frame.velocity(EncoderFrame.FRONT_RIGHT), 0);
+        assertSame(frame, snapshot.latest());
+    }
+
+    @Test
+    public void reusesTwoFrames() {
+        source.positions[0] = 1;
+        EncoderFrame first = snapshot.read();
+        source.positions[0] = 2;
+        EncoderFrame second = snapshot.read();
+        assertNotSame(first, second);
+        // last cycle's frame is untouched by this cycle's read
+        assertEquals(1, first.frontLeftPosition);
+        assertEquals(2, second.frontLeftPosition);
+        assertSame(first, snapshot.read());
+        assertSame(second, snapshot.read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsFourDriveChannels() {
+        new HardwareSnapshot(new FakeBulkReadSource(3), clock);
+    }
+}
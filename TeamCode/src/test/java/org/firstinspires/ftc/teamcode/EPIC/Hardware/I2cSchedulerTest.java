@@ -0,0 +1,148 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs an I2cScheduler at 100 Hz on a FakeClock. Every poll moves the clock by a scripted
+ * cost, so the scheduler measures exactly what the script says a read takes.
+ */
+public class I2cSchedulerTest {
+    private static final long CYCLE_NANOS = 10_000_000;
+
+    private FakeClock clock;
+    private I2cScheduler i2c;
+    private long now;
+
+    private class ScriptedPoll implements I2cScheduler.Poll {
+        double costMs;
+        long lastReadNanos = -1;
+        long longestGapNanos = 0;
+
+        ScriptedPoll(double costMs) {
+            this.costMs = costMs;
+        }
+
+        @Override
+        public void read(double[] values) {
+            if (lastReadNanos >= 0) {
+                longestGapNanos = Math.max(longestGapNanos, now - lastReadNanos);
+            }
+            lastReadNanos = now;
+            clock.advanceMillis(costMs);
+            values[0]++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        i2c = new I2cScheduler(2.0, clock);
+        now = 0;
+    }
+
+    private void runCycles(int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            clock.set(now);
+            i2c.run(now);
+            now += CYCLE_NANOS;
+        }
+    }
+
+    @Test
+    public void devicesAreReadAtTheirRates() {
+        int color = i2c.addDevice("color", 20, 1, 1, new ScriptedPoll(0.8));
+        int distance = i2c.addDevice("distance", 10, 0, 1, new ScriptedPoll(1.0));
+        runCycles(100);
+        assertEquals(20, i2c.reads(color));
+        assertEquals(10, i2c.reads(distance));
+        assertEquals(20, i2c.value(color, 0), 0);
+        assertEquals(0, i2c.deferred(color));
+        // its unmeasured 2 ms first guess didn't fit next to color, so it starts a cycle late
+        // and from then on never shares a cycle with it
+        assertEquals(1, i2c.deferred(distance));
+        assertEquals(1_000_000, i2c.worstCycleNanos);
+    }
+
+    @Test
+    public void readsThatDontFitWaitForALaterCycle() {
+        int[] devices = new int[3];
+        ScriptedPoll[] polls = new ScriptedPoll[3];
+        for (int i = 0; i < 3; i++) {
+            polls[i] = new ScriptedPoll(1.5);
+            devices[i] = i2c.addDevice("sensor" + i, 20, 0, 1, polls[i]);
+        }
+        runCycles(100);
+        // only one 1.5 ms read fits in 2 ms, but three 20 Hz reads per 50 ms do
+        assertEquals(1_500_000, i2c.worstCycleNanos);
+        long deferred = 0;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(20, i2c.reads(devices[i]), 1);
+            assertTrue(polls[i].longestGapNanos <= 60_000_000);
+            deferred += i2c.deferred(devices[i]);
+        }
+        assertTrue(deferred > 0);
+    }
+
+    @Test
+    public void higherPriorityGoesFirst() {
+        int low = i2c.addDevice("low", 20, 0, 1, new ScriptedPoll(1.5));
+        int high = i2c.addDevice("high", 20, 5, 1, new ScriptedPoll(1.5));
+        runCycles(1);
+        assertEquals(1, i2c.reads(high));
+        assertEquals(0, i2c.reads(low));
+        assertEquals(1, i2c.deferred(low));
+    }
+
+    @Test
+    public void aStarvedDeviceJumpsThePriorities() {
+        // the high priority device is due every cycle and leaves no room for the other
+        ScriptedPoll fastPoll = new ScriptedPoll(1.5);
+        ScriptedPoll slowPoll = new ScriptedPoll(1.0);
+        int fast = i2c.addDevice("fast", 100, 5, 1, fastPoll);
+        int slow = i2c.addDevice("slow", 10, 0, 1, slowPoll);
+        runCycles(200);
+        // it only gets in once it is more than starvationPeriods (3) periods late
+        assertTrue(i2c.reads(slow) >= 6);
+        assertTrue(slowPoll.longestGapNanos <= 320_000_000);
+        assertEquals(200, i2c.reads(fast) + i2c.reads(slow));
+        assertEquals(1_500_000, i2c.worstCycleNanos);
+    }
+
+    @Test
+    public void aDeviceOverBudgetOnItsOwnIsStillRead() {
+        int slow = i2c.addDevice("slow", 20, 0, 1, new ScriptedPoll(3));
+        runCycles(100);
+        assertEquals(20, i2c.reads(slow));
+        assertEquals(3_000_000, i2c.worstCycleNanos);
+    }
+
+    @Test
+    public void costsAreLearnedFromReads() {
+        // the 2 ms first guess keeps the second device out until the first has been timed
+        int a = i2c.addDevice("a", 100, 1, 1, new ScriptedPoll(0.5));
+        int b = i2c.addDevice("b", 100, 0, 1, new ScriptedPoll(0.5));
+        runCycles(1);
+        assertEquals(1, i2c.reads(a));
+        assertEquals(0, i2c.reads(b));
+        runCycles(1);
+        runCycles(1);
+        assertEquals(3, i2c.reads(a));
+        assertEquals(2, i2c.reads(b));
+        assertEquals(1_000_000, i2c.lastCycleNanos);
+        assertEquals(500_000, i2c.latency(b).max());
+    }
+
+    @Test
+    public void ageIsFromTheEndOfTheRead() {
+        int color = i2c.addDevice("color", 20, 0, 1, new ScriptedPoll(0.8));
+        assertEquals(Long.MAX_VALUE, i2c.ageNanos(color, 0));
+        runCycles(1);
+        assertTrue(i2c.hasValue(color));
+        assertEquals(9_200_000, i2c.ageNanos(color, CYCLE_NANOS));
+    }
+}
@@ -0,0 +1,112 @@
+package org.firstinspires.ftc.teamcode.EPIC.Hardware;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ImuSamplerTest {
+    @Test
+    public void headingKeepsCountingPastAFullTurn() {
+        FakeImu imu = new FakeImu();
+        ImuSampler sampler = new ImuSampler(imu, 100, new FakeClock());
+        assertTrue(Double.isNaN(sampler.heading()));
+        // three turns CCW, then four back CW, in steps the wrap can't mistake for the other way
+        double yaw = 0;
+        for (int i = 0; i < 3 * 21; i++) {
+            yaw += 0.3;
+            imu.yaw = yaw;
+            sampler.step(0);
+            assertEquals(yaw, sampler.heading(), 1e-9);
+        }
+        for (int i = 0; i < 4 * 21; i++) {
+            yaw -= 0.3;
+            imu.yaw = yaw;
+            sampler.step(0);
+            assertEquals(yaw, sampler.heading(), 1e-9);
+        }
+        ImuSampler.Sample sample = new ImuSampler.Sample();
+        assertTrue(sampler.read(sample));
+        assertEquals(7 * 21, sample.count);
+        // yaw is the IMU's own, wrapped to +-pi
+        assertEquals(Math.atan2(Math.sin(yaw), Math.cos(yaw)), sample.yaw, 1e-9);
+    }
+
+    @Test
+    public void samplesAreStampedInTheMiddleOfTheRead() {
+        FakeImu imu = new FakeImu();
+        imu.latencyNanos = 2_000_000;
+        ImuSampler sampler = new ImuSampler(imu, 100, Clock.SYSTEM);
+        ImuSampler.Sample sample = new ImuSampler.Sample();
+        assertFalse(sampler.read(sample));
+
+        long before = System.nanoTime();
+        sampler.step(before);
+        long after = System.nanoTime();
+        assertTrue(sampler.read(sample));
+        // a yaw read and a rate read, each one transaction
+        assertEquals(2, imu.reads);
+        assertTrue(sampler.lastReadNanos >= 2 * imu.latencyNanos);
+        assertTrue(sample.nanos >= before + imu.latencyNanos && sample.nanos <= after - imu.latencyNanos / 2);
+    }
+
+    @Test
+    public void readersNeverSeeATornSample() throws InterruptedException {
+        final ImuSampler sampler = new ImuSampler(new FakeImu(), 100, new FakeClock());
+        final long samples = 2_000_000;
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // every field of sample n says n, a mix of two samples can't pass for either
+                for (long n = 1; n <= samples; n++) {
+                    sampler.publish(n, n, n);
+                }
+            }
+        });
+        writer.start();
+        ImuSampler.Sample sample = new ImuSampler.Sample();
+        long last = 0;
+        long reads = 0;
+        while (last < samples) {
+            if (sampler.read(sample)) {
+                assertEquals(sample.count, sample.nanos);
+                assertEquals(sample.count, sample.rate, 0);
+                assertTrue(sample.count >= last);
+                last = sample.count;
+                reads++;
+            }
+        }
+        writer.join();
+        assertTrue(reads > 1);
+    }
+
+    @Test
+    public void readingNeverWaitsForTheImu() throws InterruptedException {
+        FakeImu imu = new FakeImu();
+        // a slow bus: each sample takes 40 ms of reads
+        imu.latencyNanos = 20_000_000;
+        imu.yawRate = 1;
+        ImuSampler sampler = new ImuSampler(imu, 20, Clock.SYSTEM);
+        sampler.start();
+        try {
+            ImuSampler.Sample sample = new ImuSampler.Sample();
+            long worst = 0;
+            long end = System.nanoTime() + 300_000_000L;
+            while (System.nanoTime() < end) {
+                long start = System.nanoTime();
+                sampler.read(sample);
+                worst = Math.max(worst, System.nanoTime() - start);
+            }
+            assertTrue(sampler.samples() >= 2);
+            assertTrue(sampler.read(sample));
+            assertEquals(1, sample.rate, 1e-6);
+            assertTrue("read took " + worst + " ns", worst < imu.latencyNanos);
+        } finally {
+            sampler.stop();
+        }
+        assertTrue(sampler.failure() == null);
+    }
+}
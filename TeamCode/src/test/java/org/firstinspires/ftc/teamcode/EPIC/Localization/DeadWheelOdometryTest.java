@@ -0,0 +1,167 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.FakeOctoQuad;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Synthetic drives against FakeOctoQuad: the true pose is integrated in fine steps, every pod's
+ * count follows from the true motion and the true pod layout, and the odometry reads one
+ * block every 5 ms cycle like it would on the robot.
+ */
+public class DeadWheelOdometryTest {
+    // 2000 counts per rev on a 48 mm wheel
+    private static final double TICKS_PER_INCH = 2000 / (48 / 25.4 * Math.PI);
+    private static final long CYCLE_NANOS = 5_000_000;
+    private static final int SUBSTEPS = 50;
+
+    private FakeOctoQuad octoQuad;
+    // where the pods really are, left, right, strafe
+    private DeadWheelOdometry.Pod[] truePods;
+    private final double[] podCounts = new double[DeadWheelOdometry.PODS];
+    private double x;
+    private double y;
+    private double heading;
+    private long now;
+    // the next cycle's block has garbage on this channel, -1 for none
+    private int corruptChannel = -1;
+
+    @Before
+    public void setUp() {
+        octoQuad = new FakeOctoQuad();
+        truePods = new DeadWheelOdometry.Pod[] {
+                new DeadWheelOdometry.Pod(0, 1.5, 7.1, 0, false),
+                new DeadWheelOdometry.Pod(1, 1.5, -6.1, 0, false),
+                new DeadWheelOdometry.Pod(2, -3.2, 0.4, Math.PI / 2, false)};
+    }
+
+    private DeadWheelOdometry odometry(DeadWheelOdometry.Pod left, DeadWheelOdometry.Pod right,
+                                       DeadWheelOdometry.Pod strafe) {
+        DeadWheelOdometry odometry = new DeadWheelOdometry(octoQuad, TICKS_PER_INCH, left, right, strafe);
+        odometry.initialize();
+        odometry.update(now);
+        return odometry;
+    }
+
+    private static DeadWheelOdometry.Pod copy(DeadWheelOdometry.Pod pod) {
+        return new DeadWheelOdometry.Pod(pod.channel, pod.x, pod.y, pod.angle, pod.reversed);
+    }
+
+    // one control cycle at robot-relative velocity (inches/s, rad/s), then one odometry read
+    private void cycle(DeadWheelOdometry odometry, double vx, double vy, double omega) {
+        double h = CYCLE_NANOS * 1e-9 / SUBSTEPS;
+        for (int s = 0; s < SUBSTEPS; s++) {
+            double mid = heading + omega * h / 2;
+            x += (vx * Math.cos(mid) - vy * Math.sin(mid)) * h;
+            y += (vx * Math.sin(mid) + vy * Math.cos(mid)) * h;
+            heading += omega * h;
+        }
+        for (int i = 0; i < DeadWheelOdometry.PODS; i++) {
+            DeadWheelOdometry.Pod pod = truePods[i];
+            double speed = vx * Math.cos(pod.angle) + vy * Math.sin(pod.angle) + omega * pod.lever();
+            podCounts[i] += speed * TICKS_PER_INCH * CYCLE_NANOS * 1e-9;
+            octoQuad.positions[pod.channel] = (int) Math.round(podCounts[i]);
+            octoQuad.velocities[pod.channel] = (short) Math.round(speed * TICKS_PER_INCH
+                    * octoQuad.velocityIntervalMs[pod.channel] / 1000.0);
+        }
+        if (corruptChannel >= 0) {
+            int[] positions = octoQuad.positions.clone();
+            positions[corruptChannel] += 123456;
+            octoQuad.script(positions, octoQuad.velocities.clone());
+            corruptChannel = -1;
+        }
+        now += CYCLE_NANOS;
+        odometry.update(now);
+    }
+
+    // ten seconds of driving, strafing and turning at once
+    private void mixedDrive(DeadWheelOdometry odometry, int cycles) {
+        for (int n = 0; n < cycles; n++) {
+            double t = n * CYCLE_NANOS * 1e-9;
+            cycle(odometry, 30 * Math.sin(0.7 * t), 20 * Math.cos(0.5 * t), 1.5 * Math.sin(0.9 * t));
+        }
+    }
+
+    @Test
+    public void tracksMixedDrivingWithOffsetPods() {
+        DeadWheelOdometry odometry = odometry(copy(truePods[0]), copy(truePods[1]), copy(truePods[2]));
+        mixedDrive(odometry, 2000);
+
+        // the robot went somewhere, and odometry followed to within hundredths of an inch
+        assertTrue(Math.hypot(x, y) > 10);
+        assertEquals(x, odometry.x, 0.02);
+        assertEquals(y, odometry.y, 0.02);
+        assertEquals(PoseEstimator.angleWrap(heading), odometry.heading, 1e-3);
+        assertEquals(0, odometry.glitches);
+        assertEquals(2001, odometry.reads);
+        assertEquals(2001, octoQuad.reads);
+    }
+
+    @Test
+    public void velocitiesComeFromTheChip() {
+        DeadWheelOdometry odometry = odometry(copy(truePods[0]), copy(truePods[1]), copy(truePods[2]));
+        for (int n = 0; n < 10; n++) {
+            cycle(odometry, 24, -12, 0.5);
+        }
+        // one count per 20 ms interval is about 0.15 in/s
+        assertEquals(24, odometry.vx, 0.3);
+        assertEquals(-12, odometry.vy, 0.3);
+        assertEquals(0.5, odometry.omega, 0.03);
+    }
+
+    @Test
+    public void corruptBlockIsRejected() {
+        DeadWheelOdometry odometry = odometry(copy(truePods[0]), copy(truePods[1]), copy(truePods[2]));
+        mixedDrive(odometry, 400);
+
+        // one block where the left pod's count is garbage, the next one is fine again
+        corruptChannel = 0;
+        mixedDrive(odometry, 400);
+        assertEquals(0, octoQuad.scripted());
+
+        // the jump out and the jump back both disagree with the pod's velocity
+        assertEquals(2, odometry.glitches);
+        assertEquals(x, odometry.x, 0.02);
+        assertEquals(y, odometry.y, 0.02);
+        assertEquals(PoseEstimator.angleWrap(heading), odometry.heading, 2e-3);
+    }
+
+    @Test
+    public void calibrationRecoversTrackWidthAndStrafeOffset() {
+        truePods = new DeadWheelOdometry.Pod[] {
+                new DeadWheelOdometry.Pod(0, 0, 6.6, 0, false),
+                new DeadWheelOdometry.Pod(1, 0, -6.6, 0, false),
+                new DeadWheelOdometry.Pod(2, -3.2, 0, Math.PI / 2, false)};
+        // what was measured with a ruler: 12 inch track, strafe pod on center
+        DeadWheelOdometry odometry = DeadWheelOdometry.threePod(octoQuad, TICKS_PER_INCH, 12, 0);
+        odometry.initialize();
+        odometry.update(now);
+
+        odometry.beginCalibration();
+        // five turns in place at 2 rad/s
+        double turned = 10 * Math.PI;
+        int cycles = (int) Math.round(turned / 2 / (CYCLE_NANOS * 1e-9));
+        for (int n = 0; n < cycles; n++) {
+            cycle(odometry, 0, 0, 2);
+        }
+        odometry.finishCalibration(turned);
+
+        assertEquals(13.2, odometry.trackWidth(), 0.01);
+        assertEquals(-3.2, odometry.pods[2].x, 0.01);
+
+        // and with the fixed geometry a spin no longer moves the pose
+        odometry.setPose(0, 0, 0);
+        x = 0;
+        y = 0;
+        heading = 0;
+        for (int n = 0; n < 400; n++) {
+            cycle(odometry, 0, 0, 2);
+        }
+        assertEquals(0, odometry.x, 0.02);
+        assertEquals(0, odometry.y, 0.02);
+        assertEquals(PoseEstimator.angleWrap(heading), odometry.heading, 1e-3);
+    }
+}
@@ -0,0 +1,144 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs PoseEstimator over synthetic encoder logs: a known chassis motion is turned into wheel
+ * ticks with inverse kinematics, rounded to whole ticks like the hub reports them, and fed in
+ * at 200 Hz.
+ */
+public class PoseEstimatorTest {
+    private static final double TICKS_PER_INCH = 537.7 / (96 / 25.4 * Math.PI);
+    private static final long PERIOD_NANOS = 5_000_000;
+    private static final double DT = PERIOD_NANOS * 1e-9;
+    // velocity is one cycle's change, so it is only good to a tick per cycle
+    private static final double SPEED_RESOLUTION = 1 / TICKS_PER_INCH / DT;
+
+    private MecanumKinematics kinematics;
+    private PoseEstimator estimator;
+    private final double[] wheelInches = new double[4];
+    private final double[] wheelSpeeds = new double[4];
+    private long nanos;
+
+    @Before
+    public void setUp() {
+        kinematics = MecanumKinematics.fromGeometry(14, 12);
+        estimator = new PoseEstimator(kinematics, TICKS_PER_INCH);
+        nanos = 0;
+        feed(Double.NaN);
+    }
+
+    // one log line: the ticks each wheel has counted so far
+    private void feed(double imuHeading) {
+        estimator.update(ticks(0), ticks(1), ticks(2), ticks(3), nanos, imuHeading);
+    }
+
+    private int ticks(int wheel) {
+        return (int) Math.round(wheelInches[wheel] * TICKS_PER_INCH);
+    }
+
+    // drives at a robot-relative velocity for the given time, logging every cycle
+    private void drive(double vx, double vy, double omega, double seconds) {
+        kinematics.inverse(vx, vy, omega, wheelSpeeds);
+        for (int step = 0; step < Math.round(seconds / DT); step++) {
+            for (int i = 0; i < 4; i++) {
+                wheelInches[i] += wheelSpeeds[i] * DT;
+            }
+            nanos += PERIOD_NANOS;
+            feed(Double.NaN);
+        }
+    }
+
+    private void assertPose(double x, double y, double heading, double tolerance) {
+        assertEquals("x", x, estimator.x, tolerance);
+        assertEquals("y", y, estimator.y, tolerance);
+        assertEquals("heading", heading, estimator.heading, tolerance / 10);
+    }
+
+    @Test
+    public void drivesStraight() {
+        drive(24, 0, 0, 2);
+        assertPose(48, 0, 0, 0.01);
+        assertEquals(24, estimator.vx, SPEED_RESOLUTION);
+        assertEquals(0, estimator.vy, SPEED_RESOLUTION);
+    }
+
+    @Test
+    public void strafesLeft() {
+        drive(0, 12, 0, 1);
+        assertPose(0, 12, 0, 0.01);
+    }
+
+    @Test
+    public void turnsInPlace() {
+        drive(0, 0, Math.PI / 2, 1);
+        assertPose(0, 0, Math.PI / 2, 0.01);
+        assertEquals(Math.PI / 2, estimator.omega, 2 * SPEED_RESOLUTION / kinematics.leverArm);
+    }
+
+    @Test
+    public void arcEndsWhereTheCircleSays() {
+        // a quarter circle of radius 24 to the left
+        double omega = Math.PI / 4;
+        drive(24 * omega, 0, omega, 2);
+        assertPose(24, 24, Math.PI / 2, 0.02);
+    }
+
+    @Test
+    public void driveWhileTurningClosesTheLoop() {
+        // strafe and spin at once for one full turn, the robot drives a circle back to the start
+        drive(0, 20, Math.PI / 2, 4);
+        assertPose(0, 0, 0, 0.05);
+    }
+
+    @Test
+    public void mixedRouteMatchesDeadReckoning() {
+        drive(30, 0, 0, 1);
+        drive(0, 0, -Math.PI / 2, 1);
+        drive(30, 0, 0, 1);
+        drive(0, -10, 0, 1);
+        // 30 forward, turn right, 30 forward is (30, -30), then 10 right in the robot frame
+        // after the turn is 10 further in -x
+        assertPose(20, -30, -Math.PI / 2, 0.05);
+    }
+
+    @Test
+    public void imuHeadingReplacesWheelHeading() {
+        // the wheels think the robot turned but the IMU says it didn't (it slipped)
+        estimator.setPose(0, 0, 0);
+        feed(0.25);
+        kinematics.inverse(0, 0, 1, wheelSpeeds);
+        for (int step = 0; step < 100; step++) {
+            for (int i = 0; i < 4; i++) {
+                wheelInches[i] += wheelSpeeds[i] * DT;
+            }
+            nanos += PERIOD_NANOS;
+            feed(0.25);
+        }
+        assertEquals(0, estimator.heading, 1e-9);
+        assertEquals(0, estimator.omega, 1e-9);
+    }
+
+    @Test
+    public void setPoseDoesNotJumpOnTheNextRead() {
+        drive(24, 0, 0, 1);
+        estimator.setPose(100, 50, Math.PI);
+        // the encoders still read 24 inches, only movement from here on counts
+        feed(Double.NaN);
+        assertPose(100, 50, Math.PI, 1e-9);
+        drive(10, 0, 0, 1);
+        assertPose(90, 50, Math.PI, 0.01);
+    }
+
+    @Test
+    public void wrapsAngles() {
+        assertEquals(Math.PI, PoseEstimator.angleWrap(-Math.PI), 1e-12);
+        assertEquals(-Math.PI / 2, PoseEstimator.angleWrap(3 * Math.PI / 2), 1e-12);
+        assertEquals(0.5, PoseEstimator.angleWrap(0.5 + 6 * Math.PI), 1e-9);
+    }
+}
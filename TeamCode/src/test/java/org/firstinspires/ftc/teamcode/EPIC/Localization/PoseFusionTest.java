@@ -0,0 +1,173 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.SmallMatrix;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives PoseFusion with 30 s of synthetic driving at 200 Hz: a weaving, turning path, wheels
+ * that slip for 0.3 s every 5 s, an OTOS at 100 Hz that drifts 0.02 in/s and jumps 3 inches
+ * crossing a carpet seam every 7.5 s. Noise is seeded, so every run sees the same data.
+ */
+public class PoseFusionTest {
+    private static final double DT = 0.005;
+    private static final int CYCLES = 6000;
+
+    private PoseFusion fusion;
+
+    @Before
+    public void setUp() {
+        fusion = new PoseFusion();
+    }
+
+    @Test
+    public void fusionOutlastsEitherSensorAlone() {
+        Random random = new Random(1);
+        double[] step = new double[2];
+        double x = 0, y = 0, heading = 0;
+        double encoderX = 0, encoderY = 0, encoderHeading = 0;
+        double drift = 0;
+        double otosWorst = 0, fusedWorst = 0;
+        for (int k = 0; k < CYCLES; k++) {
+            double t = k * DT;
+            double vx = 40 * Math.sin(0.8 * t);
+            double vy = 25 * Math.cos(0.5 * t);
+            double omega = 1.2 * Math.sin(0.4 * t);
+            PoseEstimator.arc(heading, vx * DT, vy * DT, omega * DT, step);
+            x += step[0];
+            y += step[1];
+            heading += omega * DT;
+
+            boolean slip = k % 1000 > 600 && k % 1000 < 660;
+            double encoderVx = vx + random.nextGaussian() * 3 + (slip ? 35 : 0);
+            double encoderVy = vy + random.nextGaussian() * 3;
+            double encoderOmega = omega + random.nextGaussian() * 0.1 + (slip ? 0.8 : 0);
+            PoseEstimator.arc(encoderHeading, encoderVx * DT, encoderVy * DT, encoderOmega * DT, step);
+            encoderX += step[0];
+            encoderY += step[1];
+            encoderHeading += encoderOmega * DT;
+            fusion.predict(DT);
+            fusion.updateEncoders(encoderVx, encoderVy, encoderOmega);
+
+            drift += 0.02 * DT;
+            boolean seam = k % 1500 > 300 && k % 1500 < 330;
+            if (k % 2 == 0) {
+                double otosX = x + drift + random.nextGaussian() * 0.3 + (seam ? 3 : 0);
+                double otosY = y + random.nextGaussian() * 0.3;
+                double otosHeading = heading + random.nextGaussian() * 0.01;
+                fusion.updateOtosPose(otosX, otosY, PoseEstimator.angleWrap(otosHeading));
+                fusion.updateOtosVelocity(vx + random.nextGaussian() * 2 + (seam ? 20 : 0),
+                        vy + random.nextGaussian() * 2, omega + random.nextGaussian() * 0.05);
+                otosWorst = Math.max(otosWorst, Math.hypot(otosX - x, otosY - y));
+            }
+            fusedWorst = Math.max(fusedWorst, Math.hypot(fusion.x - x, fusion.y - y));
+        }
+        double encoderError = Math.hypot(encoderX - x, encoderY - y);
+
+        assertTrue("encoders alone " + encoderError, encoderError > 100);
+        assertTrue("OTOS alone " + otosWorst, otosWorst > 4);
+        assertTrue("fused " + fusedWorst, fusedWorst < 1.4);
+        // the slips and the seams were thrown out
+        assertTrue(fusion.encoderRejects > 0);
+        assertTrue(fusion.otosPoseRejects > 0);
+    }
+
+    @Test
+    public void invert3() {
+        double[] a = {4, 1, 0.5, 1, 3, 0.2, 0.5, 0.2, 2};
+        double[] inverse = new double[9];
+        double[] product = new double[9];
+        assertTrue(SmallMatrix.invert3(a, inverse));
+        SmallMatrix.multiply(a, inverse, product, 3, 3, 3);
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                assertEquals(r == c ? 1 : 0, product[r * 3 + c], 1e-12);
+            }
+        }
+
+        double[] singular = {1, 2, 3, 2, 4, 6, 1, 0, 1};
+        double[] untouched = {7, 7, 7, 7, 7, 7, 7, 7, 7};
+        assertFalse(SmallMatrix.invert3(singular, untouched));
+        for (double v : untouched) {
+            assertEquals(7, v, 0);
+        }
+    }
+
+    // sitting still at the origin long enough for the filter to be sure of it
+    private void settle() {
+        for (int i = 0; i < 200; i++) {
+            fusion.predict(DT);
+            fusion.updateEncoders(0, 0, 0);
+            fusion.updateOtosPose(0, 0, 0);
+        }
+    }
+
+    @Test
+    public void outliersAreGatedOut() {
+        settle();
+        assertTrue(fusion.updateOtosPose(0.2, -0.1, 0.005));
+        assertTrue(fusion.lastDistance < fusion.gate);
+
+        double x = fusion.x;
+        assertFalse(fusion.updateOtosPose(10, 0, 0));
+        assertTrue(fusion.lastDistance > fusion.gate);
+        assertEquals(x, fusion.x, 0);
+        assertEquals(1, fusion.otosPoseRejects);
+
+        double vx = fusion.vx;
+        assertFalse(fusion.updateEncoders(60, 0, 0));
+        assertEquals(vx, fusion.vx, 0);
+        assertEquals(1, fusion.encoderRejects);
+    }
+
+    @Test
+    public void aSensorIsBelievedAfterMaxRejects() {
+        settle();
+        for (int i = 0; i < fusion.maxRejects; i++) {
+            assertFalse(fusion.updateOtosPose(10, 0, 0));
+        }
+        assertEquals(fusion.maxRejects, fusion.otosPoseRejects);
+        // still far outside the gate, but the filter may be the one that is wrong
+        assertTrue(fusion.updateOtosPose(10, 0, 0));
+        assertTrue(fusion.lastDistance > fusion.gate);
+        assertTrue(fusion.x > 0.1);
+        // and the streak starts over
+        settle();
+        assertFalse(fusion.updateOtosPose(-10, 0, 0));
+    }
+
+    @Test
+    public void updatesAllocateNothing() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        // allocation counting is a HotSpot extension, nothing to check without it
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 20000; i++) {
+            cycle();
+        }
+        long before = hotspot.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100000; i++) {
+            cycle();
+        }
+        long after = hotspot.getThreadAllocatedBytes(thread);
+        assertEquals(0, after - before);
+    }
+
+    private void cycle() {
+        fusion.predict(DT);
+        fusion.updateEncoders(1, 2, 0.1);
+        fusion.updateOtosPose(fusion.x, fusion.y, fusion.heading);
+        fusion.updateOtosVelocity(1, 2, 0.1);
+    }
+}
@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcode.EPIC.Localization;
+
+import org.firstinspires.ftc.robotcore.external.matrices.VectorF;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.AprilTagPipeline;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.ReplayDetectionSource;
+import org.firstinspires.ftc.teamcode.EPIC.Vision.TagSnapshot;
+import org.firstinspires.ftc.vision.apriltag.AprilTagLibrary;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The robot drives along +y at 20 in/s while its odometry has drifted 6 inches and 5 degrees.
+ * A camera 6 inches forward sees backdrop tag 2 at 10 fps with 60 ms of latency; the fused
+ * pose should walk back to the truth.
+ */
+public class TagLocalizerTest {
+    private static final long CYCLE_NANOS = 5_000_000;
+    private static final double SPEED = 20;
+    private static final double CAMERA_FORWARD = 6;
+
+    // true pose at time t (seconds): facing the backdrop, strafing left
+    private static double trueY(double t) {
+        return -10 + SPEED * t;
+    }
+
+    // what the camera reports for tag 2 (60.25, 35.41, facing -x) with the robot at (x, y, 0)
+    private static TagSnapshot frame(long sequence, long capturedNanos, double x, double y) {
+        double forward = 60.25 - (x + CAMERA_FORWARD);
+        double right = -(35.41 - y);
+        double[] one = {0};
+        return new TagSnapshot(sequence, capturedNanos, capturedNanos + 60_000_000L, new int[] {2},
+                new double[] {Math.hypot(forward, right)}, one, one, new double[] {right},
+                new double[] {forward}, new double[] {40}, one, one);
+    }
+
+    // laid out the way AprilTagGameDatabase does it: CENTERSTAGE backdrop tag 2 (given in mm here)
+    // tilted back on the backdrop, audience wall tag 7, a sample tag with no field pose and a
+    // made-up tag lying flat on the floor
+    private static AprilTagLibrary library() {
+        return new AprilTagLibrary.Builder()
+                .addTag(2, "BlueAllianceCenter", 2, new VectorF(1530.35f, 899.414f, 101.6f), DistanceUnit.MM,
+                        new Quaternion(0.683f, -0.183f, 0.183f, 0.683f, 0))
+                .addTag(7, "RedAudienceWallLarge", 5, new VectorF(-70.25f, -40.625f, 5.5f), DistanceUnit.INCH,
+                        new Quaternion(0.7071f, 0, 0, -0.7071f, 0))
+                .addTag(583, "Nemo", 4, DistanceUnit.INCH)
+                .addTag(99, "Floor", 4, new VectorF(10, 10, 0), DistanceUnit.INCH,
+                        new Quaternion(0.7071f, 0.7071f, 0, 0, 0))
+                .build();
+    }
+
+    @Test
+    public void onlyUprightPlacedTagsAreAdded() {
+        TagLocalizer localizer = new TagLocalizer(null, new VisionFusion(16));
+        assertEquals(2, localizer.addTags(library()));
+        assertTrue(localizer.hasTag(2));
+        assertTrue(localizer.hasTag(7));
+        assertFalse(localizer.hasTag(583));
+        assertFalse(localizer.hasTag(99));
+    }
+
+    @Test
+    public void fixesPullTheFusedPoseToTheTags() {
+        TagSnapshot[] recording = new TagSnapshot[20];
+        for (int n = 0; n < recording.length; n++) {
+            long captured = (n + 1) * 100_000_000L;
+            recording[n] = frame(n + 1, captured, 24, trueY(captured * 1e-9));
+        }
+        FakeClock clock = new FakeClock();
+        AprilTagPipeline pipeline = new AprilTagPipeline(new ReplayDetectionSource(recording), clock, 100);
+        VisionFusion fusion = new VisionFusion(256);
+        TagLocalizer localizer = new TagLocalizer(pipeline, fusion);
+        localizer.cameraForward = CAMERA_FORWARD;
+        localizer.addTags(library());
+
+        double drift = Math.toRadians(5);
+        for (long now = 0; now <= 2_100_000_000L; now += CYCLE_NANOS) {
+            clock.set(now);
+            double t = now * 1e-9;
+            // odometry: the true path seen through the drift, plus a 6 inch offset
+            double y = trueY(t);
+            double odoX = 24 * Math.cos(drift) + y * Math.sin(drift) - 6;
+            double odoY = -24 * Math.sin(drift) + y * Math.cos(drift);
+            fusion.addOdometry(now, odoX, odoY, -drift);
+            // the replay lines its first frame up with the first poll, so start polling when it arrives
+            if (now >= recording[0].publishedNanos) {
+                pipeline.pollOnce();
+            }
+            localizer.update();
+        }
+
+        assertTrue(fusion.accepted >= 15);
+        assertEquals(0, fusion.rejected);
+        assertEquals(fusion.accepted, localizer.tagsSeen);
+        assertEquals(24, fusion.x(), 0.5);
+        assertEquals(trueY(2.1), fusion.y(), 0.5);
+        assertEquals(0, fusion.heading(), Math.toRadians(0.5));
+    }
+
+    @Test
+    public void unknownTagsAreIgnored() {
+        TagSnapshot snapshot = new TagSnapshot(1, 0, 0, new int[] {42}, new double[1], new double[1],
+                new double[1], new double[1], new double[1], new double[] {40}, new double[1], new double[1]);
+        AprilTagPipeline pipeline = new AprilTagPipeline(new ReplayDetectionSource(snapshot), new FakeClock(), 100);
+        VisionFusion fusion = new VisionFusion(16);
+        fusion.addOdometry(0, 0, 0, 0);
+        TagLocalizer localizer = new TagLocalizer(pipeline, fusion);
+        localizer.addTags(library());
+        pipeline.pollOnce();
+        localizer.update();
+        assertEquals(0, localizer.tagsSeen);
+        assertEquals(0, fusion.accepted + fusion.rejected);
+    }
+}
@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.EPIC.Motion;
+
+import org.firstinspires.ftc.teamcode.EPIC.Sim.GainTuner;
+import org.firstinspires.ftc.teamcode.EPIC.Sim.MecanumSimulator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DriveGainsTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("drive_gains", ".properties");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void tunedFileLeavesTheOpModesEncoderDriveAlone() throws IOException {
+        Mecanum_Wheels tuned = new MecanumSimulator().wheels;
+        DriveGains gains = new DriveGains(tuned);
+        gains.translationP = 7;
+        gains.kV = 0.02;
+        gains.save(file, "test", GainTuner.NAMES);
+
+        // what Autonomous sets before loading the file
+        Mecanum_Wheels wheels = new MecanumSimulator().wheels;
+        wheels.velocity = 400;
+        wheels.leftErrorAdjustment = 0.97;
+        wheels.follower.kS = 0.05;
+        DriveGains loaded = new DriveGains(wheels);
+        assertTrue(loaded.load(file));
+        loaded.apply(wheels);
+
+        assertEquals(7, wheels.follower.xController.kP, 0);
+        assertEquals(7, wheels.follower.yController.kP, 0);
+        assertEquals(0.02, wheels.follower.kV, 0);
+        assertEquals(400, wheels.velocity);
+        assertEquals(0.97, wheels.leftErrorAdjustment, 0);
+        assertEquals(0.05, wheels.follower.kS, 0);
+    }
+
+    @Test
+    public void everyGainRoundTripsWithoutKeys() throws IOException {
+        Mecanum_Wheels wheels = new MecanumSimulator().wheels;
+        wheels.velocity = 321;
+        wheels.rightErrorAdjustment = 1.03;
+        new DriveGains(wheels).save(file, "test");
+
+        DriveGains loaded = new DriveGains(new MecanumSimulator().wheels);
+        assertTrue(loaded.load(file));
+        assertEquals(321, loaded.velocity);
+        assertEquals(1.03, loaded.rightErrorAdjustment, 0);
+    }
+}
@@ -0,0 +1,285 @@
+package org.firstinspires.ftc.teamcode.EPIC.Sim;
+
+import org.firstinspires.ftc.teamcode.EPIC.Motion.DriveGains;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.CompiledRoutine;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tunes the trajectory follower gains on a laptop by running MecanumSimulator on every core.
+ *
+ * A set of gains is scored by running each routine in its own simulator and adding up
+ * rms error + maxErrorWeight * max error + settleWeight * seconds past the planned end,
+ * plus timeoutPenalty for a routine that never finished. The search is a coarse grid over the
+ * two P gains, then Nelder-Mead from the best grid point. Every batch of candidates (the grid,
+ * the starting simplex, the four trial points of each Nelder-Mead step, a shrink) is scored in
+ * parallel on a ForkJoinPool; simulations share nothing but the compiled routines.
+ *
+ *     java ... org.firstinspires.ftc.teamcode.EPIC.Sim.GainTuner drive_gains.properties routine.txt...
+ *
+ * It lives with the unit tests so it never ships on the robot; put TeamCode's test classes on the
+ * classpath next to the SDK jars and TeamCode classes.
+ *
+ * The gains file is what DriveGains loads at init, see there for getting it onto the robot. It
+ * only holds the gains in NAMES; the rest (kS, the encoder drive's velocity and error
+ * adjustments) aren't searched, so the op modes keep their own.
+ */
+public class GainTuner {
+    // the gains being searched, in vector order
+    public static final String[] NAMES = {"translationP", "translationD", "headingP", "headingD", "kV", "kA"};
+    private static final int TRANSLATION_P = 0;
+    private static final int HEADING_P = 2;
+
+    public double maxErrorWeight = 0.5;
+    public double settleWeight = 2;
+    public double timeoutPenalty = 100;
+    // seconds a routine may run past its planned time before it counts as not finished
+    public double timeoutSlack = 5;
+
+    private final CompiledRoutine[] routines;
+    private final ForkJoinPool pool;
+    private final DriveGains base;
+    private final AtomicLong evaluations = new AtomicLong();
+
+    public GainTuner(ForkJoinPool pool, CompiledRoutine... routines) {
+        this.pool = pool;
+        this.routines = routines;
+        base = new DriveGains(new MecanumSimulator().wheels);
+    }
+
+    public long evaluations() {
+        return evaluations.get();
+    }
+
+    public double[] defaults() {
+        return vector(base);
+    }
+
+    public static double[] vector(DriveGains gains) {
+        return new double[] {gains.translationP, gains.translationD, gains.headingP, gains.headingD,
+                gains.kV, gains.kA};
+    }
+
+    public DriveGains gains(double[] vector) {
+        DriveGains gains = new DriveGains(new MecanumSimulator().wheels);
+        gains.translationP = vector[0];
+        gains.translationD = vector[1];
+        gains.headingP = vector[2];
+        gains.headingD = vector[3];
+        gains.kV = vector[4];
+        gains.kA = vector[5];
+        return gains;
+    }
+
+    public double cost(double[] vector) {
+        evaluations.incrementAndGet();
+        for (double gain : vector) {
+            if (gain < 0) {
+                return Double.MAX_VALUE;
+            }
+        }
+        DriveGains gains = gains(vector);
+        double cost = 0;
+        for (CompiledRoutine routine : routines) {
+            MecanumSimulator sim = new MecanumSimulator();
+            gains.apply(sim.wheels);
+            MecanumSimulator.Result result = sim.runAutonomous(routine, routine.totalTime() + timeoutSlack);
+            cost += result.rmsError + maxErrorWeight * result.maxError
+                    + settleWeight * Math.max(0, result.simulatedSeconds - routine.totalTime());
+            if (!result.finished) {
+                cost += timeoutPenalty;
+            }
+        }
+        return cost / routines.length;
+    }
+
+    // scores every point in parallel
+    public double[] costs(double[][] points) {
+        double[] costs = new double[points.length];
+        pool.invoke(new Batch(points, costs, 0, points.length));
+        return costs;
+    }
+
+    private class Batch extends RecursiveAction {
+        private final double[][] points;
+        private final double[] costs;
+        private final int from;
+        private final int to;
+
+        Batch(double[][] points, double[] costs, int from, int to) {
+            this.points = points;
+            this.costs = costs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                costs[from] = cost(points[from]);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(points, costs, from, middle), new Batch(points, costs, middle, to));
+        }
+    }
+
+    // every combination of translation and heading P, other gains from start; returns the best
+    public double[] grid(double[] start, double[] translationPs, double[] headingPs) {
+        double[][] points = new double[translationPs.length * headingPs.length][];
+        int n = 0;
+        for (double translationP : translationPs) {
+            for (double headingP : headingPs) {
+                double[] point = start.clone();
+                point[TRANSLATION_P] = translationP;
+                point[HEADING_P] = headingP;
+                points[n++] = point;
+            }
+        }
+        double[] costs = costs(points);
+        int best = 0;
+        for (int i = 1; i < costs.length; i++) {
+            if (costs[i] < costs[best]) {
+                best = i;
+            }
+        }
+        return points[best];
+    }
+
+    /**
+     * Nelder-Mead from start, with the first simplex spread by steps. Reflection, expansion
+     * and both contractions are scored together each iteration, which costs a little extra
+     * work but keeps every core busy. Stops after iterations or once the simplex costs are
+     * within tolerance of each other.
+     */
+    public double[] nelderMead(double[] start, double[] steps, int iterations, double tolerance) {
+        int n = start.length;
+        double[][] simplex = new double[n + 1][];
+        simplex[0] = start.clone();
+        for (int i = 0; i < n; i++) {
+            simplex[i + 1] = start.clone();
+            simplex[i + 1][i] += steps[i];
+        }
+        double[] costs = costs(simplex);
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            sort(simplex, costs);
+            if (costs[n] - costs[0] < tolerance) {
+                break;
+            }
+            double[] centroid = new double[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    centroid[j] += simplex[i][j] / n;
+                }
+            }
+            double[] worst = simplex[n];
+            double[][] trials = {
+                    along(centroid, worst, -1), // reflection
+                    along(centroid, worst, -2), // expansion
+                    along(centroid, worst, -0.5), // outside contraction
+                    along(centroid, worst, 0.5), // inside contraction
+            };
+            double[] trialCosts = costs(trials);
+            double reflected = trialCosts[0];
+
+            if (reflected < costs[0]) {
+                int pick = trialCosts[1] < reflected ? 1 : 0;
+                simplex[n] = trials[pick];
+                costs[n] = trialCosts[pick];
+            } else if (reflected < costs[n - 1]) {
+                simplex[n] = trials[0];
+                costs[n] = reflected;
+            } else if (reflected < costs[n] && trialCosts[2] <= reflected) {
+                simplex[n] = trials[2];
+                costs[n] = trialCosts[2];
+            } else if (reflected >= costs[n] && trialCosts[3] < costs[n]) {
+                simplex[n] = trials[3];
+                costs[n] = trialCosts[3];
+            } else {
+                // shrink everything toward the best point
+                double[][] shrunk = new double[n][];
+                for (int i = 1; i <= n; i++) {
+                    shrunk[i - 1] = along(simplex[0], simplex[i], 0.5);
+                }
+                double[] shrunkCosts = costs(shrunk);
+                for (int i = 1; i <= n; i++) {
+                    simplex[i] = shrunk[i - 1];
+                    costs[i] = shrunkCosts[i - 1];
+                }
+            }
+        }
+        sort(simplex, costs);
+        return simplex[0];
+    }
+
+    // from + t * (to - from)
+    private static double[] along(double[] from, double[] to, double t) {
+        double[] point = new double[from.length];
+        for (int i = 0; i < point.length; i++) {
+            point[i] = from[i] + t * (to[i] - from[i]);
+        }
+        return point;
+    }
+
+    private static void sort(double[][] points, double[] costs) {
+        for (int i = 1; i < points.length; i++) {
+            double[] point = points[i];
+            double cost = costs[i];
+            int j = i - 1;
+            while (j >= 0 && costs[j] > cost) {
+                points[j + 1] = points[j];
+                costs[j + 1] = costs[j];
+                j--;
+            }
+            points[j + 1] = point;
+            costs[j + 1] = cost;
+        }
+    }
+
+    // usage: GainTuner out.properties routine.txt...
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: GainTuner drive_gains.properties routine.txt...");
+            System.exit(2);
+        }
+        MecanumSimulator compiler = new MecanumSimulator();
+        CompiledRoutine[] routines = new CompiledRoutine[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            Reader reader = new FileReader(args[i]);
+            try {
+                routines[i - 1] = compiler.compile(reader);
+            } finally {
+                reader.close();
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool();
+        GainTuner tuner = new GainTuner(pool, routines);
+        long start = System.nanoTime();
+        double[] defaults = tuner.defaults();
+        double defaultCost = tuner.cost(defaults);
+
+        double[] ps = {1, 2, 4, 6, 8, 12};
+        double[] best = tuner.grid(defaults, ps, ps);
+        System.out.println(String.format("grid best %s cost %.3f", Arrays.toString(best), tuner.cost(best)));
+
+        double[] steps = {2, 0.1, 2, 0.1, defaults[4] * 0.1, 0.002};
+        best = tuner.nelderMead(best, steps, 60, 1e-3);
+        double bestCost = tuner.cost(best);
+
+        DriveGains gains = tuner.gains(best);
+        System.out.println(String.format("%s%ncost %.3f (defaults %.3f), %d simulations on %d threads in %.1f s",
+                gains, bestCost, defaultCost, tuner.evaluations() * routines.length, pool.getParallelism(),
+                (System.nanoTime() - start) / 1e9));
+        gains.save(new File(args[0]), String.format("GainTuner, cost %.3f", bestCost), NAMES);
+        pool.shutdown();
+    }
+}
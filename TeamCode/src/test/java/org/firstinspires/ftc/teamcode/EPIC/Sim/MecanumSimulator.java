@@ -0,0 +1,351 @@
+package org.firstinspires.ftc.teamcode.EPIC.Sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.teamcode.EPIC.Command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.EPIC.Command.RoutineCommand;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.FakeMotor;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.FakeVoltageSensor;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.MecanumKinematics;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.Autonomous;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.CompiledRoutine;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.RoutineCompiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightRecorder;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LatencyHistogram;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopProfiler;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Closed-loop physics model of the Mecanum_Wheels drivetrain, behind the same FakeMotors and
+ * HardwareMap names as ReplayHarness, so the real drive code runs against it unchanged.
+ *
+ * Each wheel is a 312 rpm goBILDA gearmotor (537.7 ticks/rev) modelled as a DC motor:
+ * current = (voltage - back EMF) / resistance, torque = kT * current - friction. The wheel
+ * pushes on the floor through a stiff tire model that saturates at mu * weight / 4, so hard
+ * launches slip. The pushes are mapped to chassis force and torque through the mecanum
+ * kinematics. Battery voltage sags with the total current drawn. Encoders report whole ticks
+ * and whole ticks per second, with the motor direction applied like the SDK does.
+ * The hub's own loops are modelled too: RUN_USING_ENCODER is a velocity loop with power as a
+ * fraction of full speed, RUN_TO_POSITION adds a position loop and drives isBusy().
+ * The wheels are set up by Autonomous.setUpWheels, so runs (and GainTuner) use the robot's
+ * VELOCITY drive mode; call wheels.setDriveMode to try another.
+ *
+ * Everything is integrated with a fixed physicsStep (semi-implicit Euler) and the FakeClock
+ * moves with it, so a run is deterministic. Distances are inches outside, SI inside.
+ *
+ *     MecanumSimulator sim = new MecanumSimulator();
+ *     CompiledRoutine routine = sim.compile(reader);
+ *     sim.wheels.follower.xController.kP = 6;
+ *     MecanumSimulator.Result result = sim.runAutonomous(routine, 30);
+ *
+ * Like GainTuner it is off-robot code and lives with the unit tests, so it is not in the APK.
+ */
+public class MecanumSimulator {
+    private static final double METERS_PER_INCH = 0.0254;
+
+    // motor: goBILDA 5203 312 rpm at 12 V
+    public double stallTorque = 2.38; // N m
+    public double stallCurrent = 9.2; // A
+    public double freeCurrent = 0.25; // A
+    public double freeSpeed = 312 * 2 * Math.PI / 60; // rad/s
+    public double nominalVoltage = 12;
+    // motor, gearbox and wheel inertia at the output shaft, kg m^2
+    public double wheelInertia = 5e-4;
+
+    // robot
+    public double mass = 13; // kg
+    public double momentOfInertia = 0.45; // kg m^2
+    public double friction = 0.8;
+    // tire force per m/s of slip, before it saturates
+    public double slipStiffness = 400;
+
+    // battery
+    public double openCircuitVoltage = 13.0;
+    public double batteryResistance = 0.1; // ohm, battery and wiring
+
+    // hub loops: fraction of full power per fraction of full speed, and 1/s for position
+    public double velocityGain = 2;
+    public double positionGain = 5;
+
+    public double physicsStep = 0.0005;
+    public double controlPeriod = 0.005;
+
+    public final FakeClock clock = new FakeClock();
+    public final HardwareMap hardwareMap = new HardwareMap(null, null);
+    public final FakeMotor frontLeft = new FakeMotor("frontleft");
+    public final FakeMotor frontRight = new FakeMotor("frontright");
+    public final FakeMotor backLeft = new FakeMotor("backleft");
+    public final FakeMotor backRight = new FakeMotor("backright");
+    public final FakeVoltageSensor voltageSensor = new FakeVoltageSensor();
+    public final Mecanum_Wheels wheels;
+    // when set (and opened), runAutonomous records every cycle the way Autonomous does, so
+    // ReplayHarness can play the run back
+    public FlightRecorder recorder;
+
+    // true pose, inches and CCW radians
+    public double x = 0;
+    public double y = 0;
+    public double heading = 0;
+
+    private final FakeMotor[] motors = {frontLeft, frontRight, backLeft, backRight};
+    // left motors are mounted mirrored, so positive motor rotation drives those wheels backwards
+    private final double[] mount = {-1, 1, -1, 1};
+    private final MecanumKinematics kinematics;
+    private final double wheelRadius;
+
+    // field frame velocity, m/s and rad/s
+    private double vx = 0;
+    private double vy = 0;
+    private double omega = 0;
+    private double batteryVoltage;
+
+    private final double[] motorAngle = new double[4];
+    private final double[] motorSpeed = new double[4];
+    private final double[] current = new double[4];
+    private final long[] resetSeen = new long[4];
+    private final double[] tickOffset = new double[4];
+    private final double[] contact = new double[4];
+    private final double[] force = new double[4];
+
+    public static class Result {
+        public boolean finished;
+        public double simulatedSeconds;
+        public long wallNanos;
+        public long cycles;
+        // follower position error, inches
+        public double maxError;
+        public double rmsError;
+        // odometry minus true pose at the end, inches
+        public double finalDrift;
+        public double minBatteryVoltage;
+        // CPU time of one control cycle
+        public final LatencyHistogram cycleNanos = new LatencyHistogram();
+
+        @Override
+        public String toString() {
+            return String.format("%s after %.2f s (%d cycles) in %.1f ms, error max %.2f rms %.2f in, "
+                            + "drift %.2f in, battery min %.2f V, cycle p50 %.1f p99 %.1f us",
+                    finished ? "finished" : "timed out", simulatedSeconds, cycles, wallNanos / 1e6, maxError,
+                    rmsError, finalDrift, minBatteryVoltage, cycleNanos.percentile(50) / 1e3,
+                    cycleNanos.percentile(99) / 1e3);
+        }
+    }
+
+    public MecanumSimulator() {
+        for (FakeMotor motor : motors) {
+            hardwareMap.put(motor.getConnectionInfo(), motor);
+        }
+        hardwareMap.put("Control Hub", voltageSensor);
+        wheels = new Mecanum_Wheels(hardwareMap, clock);
+        Autonomous.setUpWheels(wheels);
+        kinematics = new MecanumKinematics(wheels.driveKinematics.leverArm * METERS_PER_INCH);
+        wheelRadius = wheels.mecanumWheelCircumference * METERS_PER_INCH / (2 * Math.PI);
+        batteryVoltage = openCircuitVoltage;
+        voltageSensor.voltage = batteryVoltage;
+    }
+
+    // a different battery, e.g. 12.0 for one at the end of the day
+    public void setBattery(double openCircuitVoltage) {
+        this.openCircuitVoltage = openCircuitVoltage;
+        batteryVoltage = openCircuitVoltage;
+        voltageSensor.voltage = openCircuitVoltage;
+    }
+
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        wheels.setPose(x, y, heading);
+    }
+
+    public double batteryVoltage() {
+        return batteryVoltage;
+    }
+
+    public CompiledRoutine compile(Reader reader) throws IOException {
+        return new RoutineCompiler(wheels.driveKinematics, wheels.ticksPerInch()).compile(reader, 0.01);
+    }
+
+    // advance the physics and the clock by seconds, in physicsStep steps
+    public void advance(double seconds) {
+        int steps = (int) Math.round(seconds / physicsStep);
+        for (int i = 0; i < steps; i++) {
+            step(physicsStep);
+            clock.advance((long) (physicsStep * 1e9));
+        }
+    }
+
+    private void step(double dt) {
+        double resistance = nominalVoltage / stallCurrent;
+        double kT = stallTorque / stallCurrent;
+        double kE = (nominalVoltage - resistance * freeCurrent) / freeSpeed;
+        double frictionTorque = kT * freeCurrent;
+        double maxForce = friction * mass * 9.81 / 4;
+
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        kinematics.inverse(cos * vx + sin * vy, -sin * vx + cos * vy, omega, contact);
+
+        double totalCurrent = 0;
+        for (int i = 0; i < 4; i++) {
+            FakeMotor motor = motors[i];
+            double sign = motor.getDirection() == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+            double duty = hubDuty(motor);
+            boolean floating = duty == 0 && motor.getZeroPowerBehavior() != DcMotor.ZeroPowerBehavior.BRAKE;
+
+            // duty 0 with BRAKE shorts the motor, the back EMF brakes it
+            current[i] = floating ? 0 : (sign * duty * batteryVoltage - kE * motorSpeed[i]) / resistance;
+            double torque = kT * current[i] - Math.signum(motorSpeed[i]) * frictionTorque;
+            totalCurrent += Math.abs(current[i] * duty);
+
+            double slip = mount[i] * motorSpeed[i] * wheelRadius - contact[i];
+            force[i] = Math.max(-maxForce, Math.min(maxForce, slipStiffness * slip));
+            motorSpeed[i] += (torque - mount[i] * force[i] * wheelRadius) / wheelInertia * dt;
+            motorAngle[i] += motorSpeed[i] * dt;
+        }
+        batteryVoltage = Math.max(0, openCircuitVoltage - batteryResistance * totalCurrent);
+        voltageSensor.voltage = batteryVoltage;
+
+        // chassis force and torque from the wheel pushes, the transpose of the inverse kinematics
+        double fx = force[0] + force[1] + force[2] + force[3];
+        double fy = -force[0] + force[1] + force[2] - force[3];
+        double torque = kinematics.leverArm * (-force[0] + force[1] - force[2] + force[3]);
+        vx += (cos * fx - sin * fy) / mass * dt;
+        vy += (sin * fx + cos * fy) / mass * dt;
+        omega += torque / momentOfInertia * dt;
+        x += vx * dt / METERS_PER_INCH;
+        y += vy * dt / METERS_PER_INCH;
+        heading += omega * dt;
+
+        for (int i = 0; i < 4; i++) {
+            updateEncoder(i);
+        }
+    }
+
+    // power the hub actually applies, after its velocity and position loops
+    private double hubDuty(FakeMotor motor) {
+        if (!motor.isMotorEnabled()) {
+            return 0;
+        }
+        double duty;
+        switch (motor.getMode()) {
+            case RUN_USING_ENCODER:
+                duty = velocityLoop(motor, motor.velocitySetpoint());
+                break;
+            case RUN_TO_POSITION: {
+                double limit = Math.abs(motor.getPower()) * motor.maxTicksPerSecond;
+                double target = positionGain * (motor.getTargetPosition() - motor.position);
+                duty = velocityLoop(motor, Math.max(-limit, Math.min(limit, target)));
+                break;
+            }
+            case STOP_AND_RESET_ENCODER:
+                duty = 0;
+                break;
+            default:
+                duty = motor.getPower();
+                break;
+        }
+        return Math.max(-1, Math.min(1, duty));
+    }
+
+    private double velocityLoop(FakeMotor motor, double target) {
+        if (target == 0 && motor.getPower() == 0) {
+            return 0;
+        }
+        return (target + velocityGain * (target - motor.velocity)) / motor.maxTicksPerSecond;
+    }
+
+    private void updateEncoder(int i) {
+        FakeMotor motor = motors[i];
+        double sign = motor.getDirection() == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+        double ticks = motorAngle[i] * motor.ticksPerRev / (2 * Math.PI);
+        if (motor.resets != resetSeen[i]) {
+            resetSeen[i] = motor.resets;
+            tickOffset[i] = ticks;
+        }
+        motor.position = (int) (sign * Math.floor(ticks - tickOffset[i]));
+        motor.velocity = Math.round(sign * motorSpeed[i] * motor.ticksPerRev / (2 * Math.PI));
+        motor.updateBusy();
+    }
+
+    /**
+     * Runs a compiled routine the way Autonomous does, one scheduler pass every controlPeriod
+     * of simulated time, until it ends or timeout simulated seconds pass. recorder, if set, gets
+     * Autonomous's AXES and STAGES.
+     */
+    public Result runAutonomous(CompiledRoutine routine, double timeout) {
+        Result result = new Result();
+        setPose(routine.startX, routine.startY, routine.startHeading);
+        CommandScheduler scheduler = new CommandScheduler(wheels.snapshot);
+        scheduler.register(wheels);
+        RoutineCommand auto = new RoutineCommand(routine, wheels, clock);
+        scheduler.schedule(auto);
+
+        long startNanos = clock.nanoTime();
+        long wallStart = System.nanoTime();
+        double squaredError = 0;
+        result.minBatteryVoltage = batteryVoltage;
+        LoopProfiler profiler = new LoopProfiler(Clock.SYSTEM, Autonomous.STAGES);
+        double[] powers = new double[EncoderFrame.WHEELS];
+        double[] axes = new double[Autonomous.AXES.length];
+        while (scheduler.isScheduled(auto) && (clock.nanoTime() - startNanos) * 1e-9 < timeout) {
+            long cycleStart = System.nanoTime();
+            profiler.beginCycle();
+            EncoderFrame frame = scheduler.read();
+            profiler.endStage(Autonomous.READ);
+            scheduler.step(frame);
+            profiler.endStage(Autonomous.COMPUTE);
+            wheels.flushWrites();
+            profiler.endStage(Autonomous.WRITE);
+            result.cycleNanos.record(System.nanoTime() - cycleStart);
+            if (recorder != null) {
+                for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+                    powers[i] = wheels.appliedPower(i);
+                }
+                axes[0] = wheels.imuHeading;
+                axes[1] = wheels.fusion.correctionX();
+                axes[2] = wheels.fusion.correctionY();
+                axes[3] = wheels.fusion.correctionHeading();
+                recorder.record(frame, powers, axes, wheels.pose.x, wheels.pose.y, wheels.pose.heading, profiler);
+            }
+
+            double error = Math.hypot(wheels.follower.xError, wheels.follower.yError);
+            result.maxError = Math.max(result.maxError, error);
+            squaredError += error * error;
+            result.cycles++;
+            result.minBatteryVoltage = Math.min(result.minBatteryVoltage, batteryVoltage);
+            advance(controlPeriod);
+        }
+        result.finished = !scheduler.isScheduled(auto);
+        scheduler.cancelAll();
+        result.wallNanos = System.nanoTime() - wallStart;
+        result.simulatedSeconds = (clock.nanoTime() - startNanos) * 1e-9;
+        result.rmsError = result.cycles > 0 ? Math.sqrt(squaredError / result.cycles) : 0;
+        result.finalDrift = Math.hypot(wheels.pose.x - x, wheels.pose.y - y);
+        return result;
+    }
+
+    // usage: MecanumSimulator routine.txt [timeout seconds]
+    public static void main(String[] args) throws IOException {
+        MecanumSimulator sim = new MecanumSimulator();
+        Reader reader = new FileReader(args[0]);
+        CompiledRoutine routine;
+        try {
+            routine = sim.compile(reader);
+        } finally {
+            reader.close();
+        }
+        Result result = sim.runAutonomous(routine, args.length > 1 ? Double.parseDouble(args[1]) : 30);
+        System.out.println(result);
+        System.out.println(String.format("end pose %.2f %.2f %.1f deg", sim.x, sim.y, Math.toDegrees(sim.heading)));
+    }
+}
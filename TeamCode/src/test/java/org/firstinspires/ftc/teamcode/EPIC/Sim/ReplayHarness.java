@@ -0,0 +1,242 @@
+package org.firstinspires.ftc.teamcode.EPIC.Sim;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.teamcode.EPIC.Command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.EPIC.Command.RoutineCommand;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.FakeImu;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.FakeMotor;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.FakeVoltageSensor;
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.ImuSampler;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.Autonomous;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.TeleOp;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.TeleOpControl;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.CompiledRoutine;
+import org.firstinspires.ftc.teamcode.EPIC.Trajectory.RoutineCompiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.ControlLoopExecutor;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightLog;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LatencyHistogram;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopProfiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.SetpointMailbox;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the drive code off the robot against a FlightRecorder log from a match.
+ *
+ * The harness owns a HardwareMap of FakeMotors under the names Mecanum_Wheels looks up, a
+ * gamepad, and a FakeClock. For every recorded cycle it sets the clock to the recorded time,
+ * puts the recorded encoder readings and sticks on the fakes (isBusy() follows from the
+ * recorded position and the target the code set, as on the hub), runs one step of the real
+ * control code (TeleOpControl, or the scheduler with the compiled routine) on wheels set up by
+ * the op mode's own setUpWheels, and compares the powers it sends to the motors with the ones
+ * recorded on the robot. A recorded battery voltage is played back through a FakeVoltageSensor. The readings come from the
+ * log, not from what the new code would have done, so this answers "what would the new code
+ * have commanded in that match", and any mismatch means behaviour changed. Autonomous logs also
+ * carry the IMU heading odometry used each cycle, which is played back through a FakeImu, and
+ * the AprilTag correction the follower steered with, which is put back on the wheels' fusion.
+ *
+ * speed 0 runs as fast as the machine allows (regression runs), 1 paces it in real time.
+ * The CPU cost of every step is kept in stepNanos, so it also works as a benchmark.
+ *
+ * The harness and its fakes live with the unit tests, so none of it (or its System.exit) is in
+ * the APK. From a laptop, with the SDK's RobotCore/Hardware jars and TeamCode's main and test
+ * classes on the classpath:
+ *     java ... org.firstinspires.ftc.teamcode.EPIC.Sim.ReplayHarness teleop flight-3.bin
+ *     java ... org.firstinspires.ftc.teamcode.EPIC.Sim.ReplayHarness auto test_auton.txt flight-4.bin
+ * It exits with status 1 if any cycle mismatched. ReplayHarnessTest records MecanumSimulator
+ * runs and replays them, so ./gradlew :TeamCode:testDebugUnitTest checks the harness, the
+ * simulator and the code they drive on any machine with a JDK.
+ */
+public class ReplayHarness {
+    public final FakeClock clock = new FakeClock();
+    public final HardwareMap hardwareMap = new HardwareMap(null, null);
+    public final FakeMotor frontLeft = new FakeMotor("frontleft");
+    public final FakeMotor frontRight = new FakeMotor("frontright");
+    public final FakeMotor backLeft = new FakeMotor("backleft");
+    public final FakeMotor backRight = new FakeMotor("backright");
+    public final FakeVoltageSensor voltageSensor = new FakeVoltageSensor();
+    public final Gamepad gamepad1 = new Gamepad();
+    // plays back the logged IMU heading when the log has one, read synchronously each cycle
+    public final FakeImu imu = new FakeImu();
+    private ImuSampler imuSampler;
+    private int imuAxis = -1;
+    private int visionAxis = -1;
+
+    // largest power difference still counted as the same
+    public double powerTolerance = 1e-3;
+
+    public final LatencyHistogram stepNanos = new LatencyHistogram();
+    public final double[] maxPowerError = new double[EncoderFrame.WHEELS];
+    public long cycles = 0;
+    public long mismatches = 0;
+    public long firstMismatch = -1;
+
+    private final FakeMotor[] motors = {frontLeft, frontRight, backLeft, backRight};
+
+    public ReplayHarness() {
+        for (FakeMotor motor : motors) {
+            hardwareMap.put(motor.getConnectionInfo(), motor);
+        }
+        hardwareMap.put("Control Hub", voltageSensor);
+    }
+
+    public void replayTeleOp(FlightLog log, double speed) {
+        Mecanum_Wheels wheels = new Mecanum_Wheels(hardwareMap, clock);
+        TeleOp.setUpWheels(wheels);
+        SetpointMailbox sticks = new SetpointMailbox(4);
+        TeleOpControl control = new TeleOpControl(wheels, new LoopProfiler(Clock.SYSTEM, TeleOpControl.STAGES),
+                sticks, null);
+        replay(log, wheels, control, sticks, speed);
+    }
+
+    public void replayAutonomous(FlightLog log, Reader routineSource, double speed) throws IOException {
+        Mecanum_Wheels wheels = new Mecanum_Wheels(hardwareMap, clock);
+        Autonomous.setUpWheels(wheels);
+        CompiledRoutine routine = new RoutineCompiler(wheels.driveKinematics, wheels.ticksPerInch())
+                .compile(routineSource, 0.01);
+        wheels.setPose(routine.startX, routine.startY, routine.startHeading);
+        imuAxis = Arrays.asList(log.axisNames).indexOf("imuheading");
+        if (imuAxis >= 0) {
+            imuSampler = new ImuSampler(imu, 100, clock);
+            wheels.imu = imuSampler;
+        }
+        // x, y and heading follow each other in the log
+        visionAxis = Arrays.asList(log.axisNames).indexOf("visionx");
+        final CommandScheduler scheduler = new CommandScheduler(wheels.snapshot);
+        scheduler.register(wheels);
+        scheduler.schedule(new RoutineCommand(routine, wheels, clock));
+        replay(log, wheels, new ControlLoopExecutor.Task() {
+            @Override
+            public void step(long nowNanos) {
+                scheduler.run();
+                wheels.flushWrites();
+            }
+        }, null, speed);
+    }
+
+    // sticks may be null when the task doesn't read the gamepad
+    public void replay(FlightLog log, Mecanum_Wheels wheels, ControlLoopExecutor.Task task,
+                       SetpointMailbox sticks, double speed) {
+        int batteryAxis = Arrays.asList(log.axisNames).indexOf("battery");
+        long wallStart = System.nanoTime();
+        for (int r = 0; r < log.count; r++) {
+            clock.set(log.nanos(r));
+            if (batteryAxis >= 0) {
+                // the voltage the robot's VoltageMonitor held after this cycle, so what it read if it read
+                voltageSensor.voltage = log.axis(r, batteryAxis);
+            }
+            for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+                motors[i].position = log.position(r, i);
+                motors[i].velocity = log.velocity(r, i);
+                // not in the log; the robot's bulk read came after last cycle's targets went out
+                motors[i].updateBusy();
+            }
+            if (imuAxis >= 0 && !Double.isNaN(log.axis(r, imuAxis))) {
+                // the sample the robot's IMU thread had published by then
+                imu.yaw = log.axis(r, imuAxis);
+                imuSampler.step(clock.nanoTime());
+            }
+            if (visionAxis >= 0) {
+                // the robot's TagLocalizer ran before the commands, so this cycle already steered with it
+                wheels.fusion.setCorrection(log.axis(r, visionAxis), log.axis(r, visionAxis + 1),
+                        log.axis(r, visionAxis + 2));
+            }
+            if (sticks != null) {
+                setGamepad(log, r);
+                // what TeleOp's op mode thread publishes
+                sticks.publish(gamepad1.left_stick_y, gamepad1.right_stick_y,
+                        gamepad1.left_stick_x, gamepad1.right_stick_x);
+            }
+            if (speed > 0) {
+                long due = wallStart + (long) ((log.nanos(r) - log.nanos(0)) / speed);
+                while (System.nanoTime() < due) {
+                    LockSupport.parkNanos(due - System.nanoTime());
+                }
+            }
+
+            long start = System.nanoTime();
+            task.step(clock.nanoTime());
+            stepNanos.record(System.nanoTime() - start);
+
+            boolean mismatch = false;
+            for (int i = 0; i < EncoderFrame.WHEELS; i++) {
+                double error = Math.abs(wheels.appliedPower(i) - log.power(r, i));
+                maxPowerError[i] = Math.max(maxPowerError[i], error);
+                mismatch |= error > powerTolerance;
+            }
+            if (mismatch) {
+                mismatches++;
+                if (firstMismatch < 0) {
+                    firstMismatch = log.cycle(r);
+                }
+            }
+            cycles++;
+        }
+    }
+
+    private void setGamepad(FlightLog log, int record) {
+        for (int i = 0; i < log.axisNames.length; i++) {
+            float value = (float) log.axis(record, i);
+            String name = log.axisNames[i];
+            if (name.equals("lefty")) {
+                gamepad1.left_stick_y = value;
+            } else if (name.equals("leftx")) {
+                gamepad1.left_stick_x = value;
+            } else if (name.equals("righty")) {
+                gamepad1.right_stick_y = value;
+            } else if (name.equals("rightx")) {
+                gamepad1.right_stick_x = value;
+            }
+        }
+    }
+
+    public String report() {
+        return String.format("%d cycles, %d mismatched (first at cycle %d), max power error %.4f %.4f %.4f %.4f%n"
+                        + "step p50 %.1f p99 %.1f max %.1f us",
+                cycles, mismatches, firstMismatch, maxPowerError[0], maxPowerError[1], maxPowerError[2],
+                maxPowerError[3], stepNanos.percentile(50) / 1e3, stepNanos.percentile(99) / 1e3,
+                stepNanos.max() / 1e3);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ReplayHarness teleop flight-N.bin [speed]");
+            System.err.println("       ReplayHarness auto routine.txt flight-N.bin [speed]");
+            System.exit(2);
+        }
+        boolean auto = args[0].equals("auto");
+        int logArg = auto ? 2 : 1;
+        FlightLog log = FlightLog.read(new File(args[logArg]));
+        double speed = args.length > logArg + 1 ? Double.parseDouble(args[logArg + 1]) : 0;
+
+        ReplayHarness harness = new ReplayHarness();
+        long start = System.nanoTime();
+        if (auto) {
+            Reader routine = new FileReader(args[1]);
+            try {
+                harness.replayAutonomous(log, routine, speed);
+            } finally {
+                routine.close();
+            }
+        } else {
+            harness.replayTeleOp(log, speed);
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        double logSeconds = log.count > 0 ? (log.nanos(log.count - 1) - log.nanos(0)) / 1e9 : 0;
+        System.out.println(harness.report());
+        System.out.println(String.format("%.2f s of match in %.2f s (%.0fx)", logSeconds, wallSeconds,
+                logSeconds / Math.max(wallSeconds, 1e-9)));
+        System.exit(harness.mismatches > 0 ? 1 : 0);
+    }
+}
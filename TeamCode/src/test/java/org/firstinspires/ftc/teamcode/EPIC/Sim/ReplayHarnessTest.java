@@ -0,0 +1,107 @@
+package org.firstinspires.ftc.teamcode.EPIC.Sim;
+
+import org.firstinspires.ftc.teamcode.EPIC.Hardware.EncoderFrame;
+import org.firstinspires.ftc.teamcode.EPIC.Motion.Mecanum_Wheels;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.Autonomous;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.TeleOp;
+import org.firstinspires.ftc.teamcode.EPIC.OpModes.TeleOpControl;
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightLog;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FlightRecorder;
+import org.firstinspires.ftc.teamcode.EPIC.Util.LoopProfiler;
+import org.firstinspires.ftc.teamcode.EPIC.Util.SetpointMailbox;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records runs the way the op modes do and replays them; unchanged code has to command the
+ * recorded powers on every cycle.
+ */
+public class ReplayHarnessTest {
+    // an encoder drive (RUN_TO_POSITION, ends on isBusy()) followed by a followed path
+    private static final String ROUTINE = "start 0 0 0\n"
+            + "limits 40 40 scurve\n"
+            + "drive 0.5 12 12 12 12 3\n"
+            + "line 30 6\n";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("flight").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private FlightLog onlyLog() throws IOException {
+        String[] names = directory.list();
+        assertEquals(1, names.length);
+        return FlightLog.read(new File(directory, names[0]));
+    }
+
+    @Test
+    public void simulatedAutonomousReplaysWithoutMismatch() throws IOException {
+        MecanumSimulator sim = new MecanumSimulator();
+        sim.recorder = new FlightRecorder(directory, 100000, 3, Autonomous.AXES, Autonomous.STAGES);
+        sim.recorder.open();
+        MecanumSimulator.Result result = sim.runAutonomous(sim.compile(new StringReader(ROUTINE)), 10);
+        sim.recorder.close();
+        assertTrue(result.finished);
+
+        FlightLog log = onlyLog();
+        assertEquals(result.cycles, log.count);
+        ReplayHarness harness = new ReplayHarness();
+        harness.replayAutonomous(log, new StringReader(ROUTINE), 0);
+        assertEquals(log.count, harness.cycles);
+        // the drive segment only lasts as long as the replayed isBusy() says it does
+        assertEquals(harness.report(), 0, harness.mismatches);
+    }
+
+    @Test
+    public void teleOpReplaysWithoutMismatch() throws IOException {
+        ReplayHarness robot = new ReplayHarness();
+        Mecanum_Wheels wheels = new Mecanum_Wheels(robot.hardwareMap, robot.clock);
+        TeleOp.setUpWheels(wheels);
+        FlightRecorder recorder = new FlightRecorder(directory, 100000, 3, TeleOpControl.AXES,
+                TeleOpControl.STAGES);
+        recorder.open();
+        SetpointMailbox sticks = new SetpointMailbox(4);
+        TeleOpControl control = new TeleOpControl(wheels, new LoopProfiler(Clock.SYSTEM, TeleOpControl.STAGES),
+                sticks, recorder);
+        for (int i = 0; i < 2000; i++) {
+            robot.clock.advance(5_000_000);
+            // a battery sagging from 13 to 11 volts
+            robot.voltageSensor.voltage = 13 - i * 0.001;
+            robot.frontLeft.position += i % 50;
+            robot.frontRight.position += 3;
+            // every 50 ms the back left wheel jumps to 400 ticks/s the way it is driven, a slip
+            robot.backLeft.velocity = i / 10 % 2 == 0 ? 0
+                    : 400 * Math.signum(wheels.appliedPower(EncoderFrame.BACK_LEFT));
+            sticks.publish((float) Math.sin(i * 0.01), 0, (float) (Math.cos(i * 0.013) * 0.5), 0.2f);
+            control.step(robot.clock.nanoTime());
+        }
+        recorder.close();
+        assertTrue(wheels.traction.slipCycles > 0);
+
+        FlightLog log = onlyLog();
+        ReplayHarness harness = new ReplayHarness();
+        harness.replayTeleOp(log, 0);
+        assertEquals(2000, harness.cycles);
+        assertEquals(harness.report(), 0, harness.mismatches);
+    }
+}
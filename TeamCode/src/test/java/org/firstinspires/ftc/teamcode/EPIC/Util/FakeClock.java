@@ -0,0 +1,33 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+/**
+ * Clock that only moves when told to.
+ */
+public class FakeClock implements Clock {
+    private long now;
+
+    public FakeClock() {
+        this(0);
+    }
+
+    public FakeClock(long startNanos) {
+        now = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    public void advance(long nanos) {
+        now += nanos;
+    }
+
+    public void advanceMillis(double millis) {
+        now += (long) (millis * 1e6);
+    }
+
+    public void set(long nanos) {
+        now = nanos;
+    }
+}
@@ -0,0 +1,112 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private static final long TOP = (1L << 36) - 1;
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.bucketIndex(value));
+            assertEquals(value, LatencyHistogram.bucketTop((int) value));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        // every bucket starts one past the top of the one before it
+        int last = LatencyHistogram.bucketIndex(TOP);
+        for (int i = 0; i < last; i++) {
+            long top = LatencyHistogram.bucketTop(i);
+            assertEquals("top of " + i, i, LatencyHistogram.bucketIndex(top));
+            assertEquals("after " + i, i + 1, LatencyHistogram.bucketIndex(top + 1));
+        }
+        assertEquals(TOP, LatencyHistogram.bucketTop(last));
+    }
+
+    @Test
+    public void powersOfTwoStartABucket() {
+        for (int bit = 6; bit < 36; bit++) {
+            long value = 1L << bit;
+            assertEquals(LatencyHistogram.bucketIndex(value - 1) + 1, LatencyHistogram.bucketIndex(value));
+        }
+    }
+
+    @Test
+    public void bucketsAreWithinThreePercent() {
+        for (long value = 64; value < TOP; value = value * 3 / 2 + 7) {
+            long top = LatencyHistogram.bucketTop(LatencyHistogram.bucketIndex(value));
+            assertTrue(top >= value);
+            assertTrue("at " + value, (top - value) / (double) value <= 1.0 / 32);
+        }
+    }
+
+    @Test
+    public void percentilesOfAUniformSpread() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..1000 microseconds, backwards since order doesn't matter
+        for (int i = 1000; i >= 1; i--) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.min());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500, histogram.mean(), 1e-6);
+        assertEquals(500_000, histogram.percentile(50), 500_000 / 32.0);
+        assertEquals(990_000, histogram.percentile(99), 990_000 / 32.0);
+        assertEquals(histogram.max(), histogram.percentile(100));
+        // never below the value it stands for
+        assertTrue(histogram.percentile(50) >= 500_000);
+    }
+
+    @Test
+    public void percentileNeverPassesMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+        assertEquals(1_000_001, histogram.percentile(50));
+        assertEquals(1_000_001, histogram.percentile(100));
+    }
+
+    @Test
+    public void jitterIsTheStandardDeviation() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2);
+        assertEquals(0, histogram.jitter(), 0);
+        histogram.record(4);
+        histogram.record(4);
+        histogram.record(4);
+        histogram.record(5);
+        histogram.record(5);
+        histogram.record(7);
+        histogram.record(9);
+        assertEquals(5, histogram.mean(), 1e-9);
+        assertEquals(Math.sqrt(32 / 7.0), histogram.jitter(), 1e-9);
+    }
+
+    @Test
+    public void emptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.min());
+        histogram.record(12345);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test
+    public void outOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.min());
+        histogram.record(Long.MAX_VALUE / 2);
+        // the bucket is clamped, max still says what really happened
+        assertEquals(Long.MAX_VALUE / 2, histogram.max());
+        assertEquals(TOP, histogram.percentile(99));
+    }
+}
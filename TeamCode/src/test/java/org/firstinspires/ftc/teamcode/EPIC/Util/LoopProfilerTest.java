@@ -0,0 +1,75 @@
+package org.firstinspires.ftc.teamcode.EPIC.Util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LoopProfilerTest {
+    private FakeClock clock;
+    private LoopProfiler profiler;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        profiler = new LoopProfiler(clock, "read", "compute", "write");
+    }
+
+    // one cycle of a 5 ms loop: 2 ms read, 1 ms compute, 0.5 ms write, the rest idle
+    private void cycle(long readNanos) {
+        profiler.beginCycle();
+        clock.advance(readNanos);
+        profiler.endStage(0);
+        clock.advance(1_000_000);
+        profiler.endStage(1);
+        clock.advance(500_000);
+        profiler.endStage(2);
+        clock.advance(5_000_000 - readNanos - 1_500_000);
+    }
+
+    @Test
+    public void stagesTimeFromThePreviousMark() {
+        cycle(2_000_000);
+        assertEquals(2_000_000, profiler.lastStageNanos(0));
+        assertEquals(1_000_000, profiler.lastStageNanos(1));
+        assertEquals(500_000, profiler.lastStageNanos(2));
+        assertEquals(1, profiler.stage(1).count());
+    }
+
+    @Test
+    public void cycleCoversEverythingBetweenBegins() {
+        for (int i = 0; i < 10; i++) {
+            cycle(2_000_000);
+        }
+        // the first begin only starts the clock
+        assertEquals(9, profiler.cycles());
+        assertEquals(5_000_000, profiler.cycle().min());
+        assertEquals(5_000_000, profiler.cycle().max());
+        assertEquals(0, profiler.cycle().jitter(), 0);
+    }
+
+    @Test
+    public void slowStageShowsInItsTail() {
+        for (int i = 0; i < 100; i++) {
+            cycle(i == 50 ? 4_000_000 : 1_000_000);
+        }
+        LatencyHistogram read = profiler.stage(0);
+        assertEquals(1_000_000, read.percentile(50), 1_000_000 / 32.0);
+        assertEquals(4_000_000, read.max());
+        assertEquals(4_000_000, read.percentile(100));
+        assertEquals(1_000_000, profiler.stage(1).max());
+    }
+
+    @Test
+    public void resetStartsOver() {
+        cycle(2_000_000);
+        cycle(2_000_000);
+        profiler.reset();
+        assertEquals(0, profiler.cycles());
+        assertEquals(0, profiler.stage(0).count());
+        cycle(2_000_000);
+        assertEquals(0, profiler.cycles());
+        assertEquals("compute", profiler.stageName(1));
+        assertEquals(3, profiler.stageCount());
+    }
+}
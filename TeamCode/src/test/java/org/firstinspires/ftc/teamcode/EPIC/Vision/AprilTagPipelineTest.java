@@ -0,0 +1,146 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.firstinspires.ftc.teamcode.EPIC.Util.Clock;
+import org.firstinspires.ftc.teamcode.EPIC.Util.FakeClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives AprilTagPipeline from a replayed detection sequence: a 30 fps camera whose results
+ * arrive 40 ms after capture, recorded on another clock than the one the replay runs on.
+ */
+public class AprilTagPipelineTest {
+    private static final long FRAME_NANOS = 33_333_333;
+    private static final long LATENCY_NANOS = 40_000_000;
+    private static final long RECORDED_START = 987_000_000_000L;
+
+    private FakeClock clock;
+    private ReplayDetectionSource source;
+    private AprilTagPipeline pipeline;
+
+    // frame n sees tag 5 at a range that closes by an inch a frame, and tag 7 on odd frames
+    private static TagSnapshot frame(int n) {
+        long captured = RECORDED_START + n * FRAME_NANOS;
+        boolean both = n % 2 == 1;
+        int[] ids = both ? new int[] {5, 7} : new int[] {5};
+        double[] ranges = both ? new double[] {60 - n, 80} : new double[] {60 - n};
+        double[] margins = both ? new double[] {50, 30} : new double[] {50};
+        double[] zeros = new double[ids.length];
+        return new TagSnapshot(n, captured, captured + LATENCY_NANOS, ids, ranges, zeros, zeros, zeros,
+                zeros, margins, zeros, zeros);
+    }
+
+    private static TagSnapshot[] recording(int frames) {
+        TagSnapshot[] recording = new TagSnapshot[frames];
+        for (int n = 0; n < frames; n++) {
+            recording[n] = frame(n + 1);
+        }
+        return recording;
+    }
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(5_000_000_000L);
+        source = new ReplayDetectionSource(recording(10));
+        pipeline = new AprilTagPipeline(source, clock, 100);
+    }
+
+    @Test
+    public void startsEmpty() {
+        assertSame(TagSnapshot.EMPTY, pipeline.latest());
+        assertEquals(0, pipeline.latest().sequence);
+        assertEquals(-1, pipeline.latest().find(5));
+    }
+
+    @Test
+    public void firstPollPublishesTheFirstFrameOnOurClock() {
+        assertTrue(pipeline.pollOnce());
+        TagSnapshot snapshot = pipeline.latest();
+        assertEquals(1, snapshot.sequence);
+        assertEquals(clock.nanoTime(), snapshot.publishedNanos);
+        assertEquals(LATENCY_NANOS, snapshot.latencyNanos());
+        assertEquals(LATENCY_NANOS, snapshot.ageNanos(clock.nanoTime()));
+        assertEquals(59, snapshot.range(snapshot.find(5)), 0);
+        assertEquals(80, snapshot.range(snapshot.find(7)), 0);
+    }
+
+    @Test
+    public void nothingNewKeepsTheLastFrame() {
+        pipeline.pollOnce();
+        TagSnapshot first = pipeline.latest();
+        clock.advanceMillis(10);
+        assertFalse(pipeline.pollOnce());
+        assertSame(first, pipeline.latest());
+        assertEquals(1, pipeline.frames);
+    }
+
+    @Test
+    public void newestFrameWins() {
+        pipeline.pollOnce();
+        // the control loop stalled for 100 ms, three frames came in meanwhile
+        clock.advance(3 * FRAME_NANOS);
+        assertTrue(pipeline.pollOnce());
+        assertEquals(4, pipeline.latest().sequence);
+        assertEquals(2, source.skipped);
+        assertEquals(2, pipeline.frames);
+        assertEquals(-1, pipeline.latest().find(7));
+    }
+
+    @Test
+    public void followsEveryFrameWhenPolledFastEnough() {
+        long sequence = 0;
+        while (!source.finished()) {
+            if (pipeline.pollOnce()) {
+                assertEquals(sequence + 1, pipeline.latest().sequence);
+                sequence = pipeline.latest().sequence;
+            }
+            clock.advanceMillis(10);
+        }
+        assertEquals(10, sequence);
+        assertEquals(0, source.skipped);
+        assertEquals(LATENCY_NANOS, pipeline.maxLatencyNanos);
+    }
+
+    @Test
+    public void emptyRecordingNeverPublishes() {
+        AprilTagPipeline empty = new AprilTagPipeline(new ReplayDetectionSource(), clock, 100);
+        assertFalse(empty.pollOnce());
+        assertNull(new ReplayDetectionSource().poll(0));
+        assertSame(TagSnapshot.EMPTY, empty.latest());
+    }
+
+    @Test
+    public void backgroundThreadPublishes() throws InterruptedException {
+        ReplayDetectionSource replay = new ReplayDetectionSource(recording(3));
+        AprilTagPipeline threaded = new AprilTagPipeline(replay, Clock.SYSTEM, 1000);
+        threaded.start();
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (threaded.latest().sequence < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        threaded.stop();
+        assertEquals(3, threaded.latest().sequence);
+        assertTrue(replay.finished());
+    }
+
+    // the SDK interrupts the op mode thread on stop; stop() must still wait for the poller
+    @Test
+    public void stopWaitsThroughInterrupt() {
+        AprilTagPipeline threaded = new AprilTagPipeline(new ReplayDetectionSource(recording(3)), Clock.SYSTEM, 1000);
+        threaded.start();
+        Thread.currentThread().interrupt();
+        threaded.stop();
+        assertTrue(Thread.interrupted());
+        long frames = threaded.frames;
+        LockSupport.parkNanos(20_000_000);
+        assertEquals(frames, threaded.frames);
+    }
+}
@@ -0,0 +1,74 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+/**
+ * Plays back recorded snapshots, for running vision code off the robot.
+ * Snapshots must be in publish order. Times are shifted so the first poll() lines up with
+ * the first recorded publish time. Like the real processor, if several frames came in since
+ * the last poll only the newest is returned.
+ */
+public class ReplayDetectionSource implements DetectionSource {
+    private final TagSnapshot[] recording;
+    private int next = 0;
+    private long offset;
+    private boolean started = false;
+
+    public int skipped = 0;
+
+    public ReplayDetectionSource(TagSnapshot... recording) {
+        this.recording = recording;
+    }
+
+    @Override
+    public TagSnapshot poll(long nowNanos) {
+        if (recording.length == 0) {
+            return null;
+        }
+        if (!started) {
+            offset = nowNanos - recording[0].publishedNanos;
+            started = true;
+        }
+        long recordedNow = nowNanos - offset;
+        TagSnapshot newest = null;
+        while (next < recording.length && recording[next].publishedNanos <= recordedNow) {
+            if (newest != null) {
+                skipped++;
+            }
+            newest = recording[next++];
+        }
+        if (newest == null) {
+            return null;
+        }
+        return shifted(newest);
+    }
+
+    public boolean finished() {
+        return next >= recording.length;
+    }
+
+    private TagSnapshot shifted(TagSnapshot s) {
+        int n = s.count();
+        int[] ids = new int[n];
+        double[] ranges = new double[n];
+        double[] bearings = new double[n];
+        double[] yaws = new double[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] margins = new double[n];
+        double[] centerXs = new double[n];
+        double[] centerYs = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = s.id(i);
+            ranges[i] = s.range(i);
+            bearings[i] = s.bearing(i);
+            yaws[i] = s.yaw(i);
+            xs[i] = s.x(i);
+            ys[i] = s.y(i);
+            margins[i] = s.decisionMargin(i);
+            centerXs[i] = s.centerX(i);
+            centerYs[i] = s.centerY(i);
+        }
+        return new TagSnapshot(s.sequence, s.frameNanos + offset, s.publishedNanos + offset,
+                ids, ranges, bearings, yaws, xs, ys, margins,
+                centerXs, centerYs);
+    }
+}
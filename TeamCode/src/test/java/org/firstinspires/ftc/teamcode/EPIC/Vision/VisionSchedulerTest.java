@@ -0,0 +1,157 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraName;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.CameraControl;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two cameras at 30 fps: the front one runs AprilTags (10 ms a frame, 0.3 of a core) and a
+ * color processor (3 ms, 0.09), the rear one AprilTags (8 ms, 0.24). The budget is 0.4.
+ */
+public class VisionSchedulerTest {
+    // counts what the scheduler sends; only the calls VisionScheduler makes do anything
+    private static class StubPortal extends VisionPortal {
+        float fps = 30;
+        int enableCalls = 0;
+        int stops = 0;
+        int resumes = 0;
+
+        @Override public void setProcessorEnabled(VisionProcessor processor, boolean enabled) { enableCalls++; }
+        @Override public boolean getProcessorEnabled(VisionProcessor processor) { return true; }
+        @Override public CameraState getCameraState() { return CameraState.STREAMING; }
+        @Override public void saveNextFrameRaw(String filename) { }
+        @Override public void stopLiveView() { }
+        @Override public void resumeLiveView() { }
+        @Override public float getFps() { return fps; }
+        @Override public <T extends CameraControl> T getCameraControl(Class<T> controlType) { return null; }
+        @Override public void setActiveCamera(WebcamName webcamName) { }
+        @Override public CameraName getActiveCamera() { return null; }
+        @Override public void stopStreaming() { stops++; }
+        @Override public void resumeStreaming() { resumes++; }
+        @Override public void close() { }
+    }
+
+    // the scheduler only hands processors back to the portal, any instance will do
+    private static VisionProcessor processor() {
+        return (VisionProcessor) Proxy.newProxyInstance(VisionProcessor.class.getClassLoader(),
+                new Class<?>[] {VisionProcessor.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return method.getName().equals("hashCode") ? System.identityHashCode(proxy) : null;
+                    }
+                });
+    }
+
+    private StubPortal frontPortal;
+    private StubPortal rearPortal;
+    private VisionScheduler vision;
+    private int front;
+    private int rear;
+    private int frontTags;
+    private int frontColor;
+    private int rearTags;
+
+    @Before
+    public void setUp() {
+        frontPortal = new StubPortal();
+        rearPortal = new StubPortal();
+        vision = new VisionScheduler(0.4);
+        front = vision.addCamera("front", frontPortal);
+        rear = vision.addCamera("rear", rearPortal);
+        frontTags = vision.addProcessor(front, processor(), 10);
+        frontColor = vision.addProcessor(front, processor(), 3);
+        rearTags = vision.addProcessor(rear, processor(), 8);
+        vision.plan("score", frontTags, rearTags, frontColor);
+        vision.plan("intake", rearTags, frontColor);
+    }
+
+    @Test
+    public void processorsPastTheBudgetAreCut() {
+        vision.setPhase("score");
+        assertTrue(vision.isEnabled(frontTags));
+        // 0.3 + 0.24 is over 0.4, but the cheaper color processor after it still fits
+        assertFalse(vision.isEnabled(rearTags));
+        assertTrue(vision.isEnabled(frontColor));
+        assertEquals(0.39, vision.load(), 1e-9);
+    }
+
+    @Test
+    public void onlyChangesAreSent() {
+        vision.setPhase("score");
+        // everything starts enabled, so only the cut rear processor is touched
+        assertEquals(0, frontPortal.enableCalls);
+        assertEquals(1, rearPortal.enableCalls);
+        vision.setPhase("score");
+        assertEquals(0, frontPortal.enableCalls);
+        assertEquals(1, rearPortal.enableCalls);
+        vision.setPhase("intake");
+        assertEquals(1, frontPortal.enableCalls);
+        assertEquals(2, rearPortal.enableCalls);
+        assertFalse(vision.isEnabled(frontTags));
+    }
+
+    @Test
+    public void idleCamerasStopAndResumeStreaming() {
+        vision.setPhase("score");
+        assertEquals(1, rearPortal.stops);
+        assertEquals(0, frontPortal.stops);
+        vision.setPhase("score");
+        assertEquals(1, rearPortal.stops);
+        vision.setPhase("intake");
+        assertEquals(1, rearPortal.resumes);
+        assertEquals(0, frontPortal.stops);
+    }
+
+    @Test
+    public void idleCamerasKeepStreamingWhenAskedTo() {
+        vision.stopIdleCameras = false;
+        vision.setPhase("score");
+        assertEquals(0, rearPortal.stops);
+    }
+
+    @Test
+    public void sampledFrameRatesChangeTheLoad() {
+        frontPortal.fps = 15;
+        vision.sample();
+        assertEquals(15, vision.fps(front), 0);
+        vision.setPhase("score");
+        // front tags now cost 0.15, leaving room for the rear tags at 0.24 but not the color
+        assertTrue(vision.isEnabled(rearTags));
+        assertFalse(vision.isEnabled(frontColor));
+        assertEquals(0.39, vision.load(), 1e-9);
+    }
+
+    @Test
+    public void stoppedCamerasReportNoFrameRate() {
+        vision.setPhase("score");
+        vision.sample();
+        assertEquals(30, vision.fps(front), 0);
+        assertEquals(0, vision.fps(rear), 0);
+    }
+
+    @Test
+    public void recordedFramesFeedTheStats() {
+        vision.recordFrame(front, 20_000_000);
+        vision.recordFrame(front, 40_000_000);
+        assertEquals(2, vision.frames(front));
+        assertEquals(0, vision.frames(rear));
+        assertEquals(40_000_000, vision.pipeline(front).max());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPhaseThrows() {
+        vision.setPhase("park");
+    }
+}
@@ -0,0 +1,178 @@
+package org.firstinspires.ftc.teamcode.EPIC.Vision;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays TagSnapshot traces into a VisionTuner and checks what it asks a recording set of
+ * knobs to do. Defaults: decimation 2 of {1, 2, 3}, 5 frames to agree, 15 to call tags lost,
+ * 40 ms budget, near under 24 in, far over 60 in, blurry under a margin of 20.
+ */
+public class VisionTunerTest {
+    private static final long FAST = 10_000_000;
+    private static final long SLOW = 50_000_000;
+
+    private static class RecordingKnobs implements VisionKnobs {
+        final List<Float> decimations = new ArrayList<>();
+        final List<long[]> exposures = new ArrayList<>();
+        int applies = 0;
+
+        @Override
+        public void setDecimation(float decimation) {
+            decimations.add(decimation);
+        }
+
+        @Override
+        public void setExposure(long exposureMs, int gain) {
+            exposures.add(new long[] {exposureMs, gain});
+        }
+
+        @Override
+        public void apply() {
+            applies++;
+        }
+
+        float lastDecimation() {
+            return decimations.get(decimations.size() - 1);
+        }
+
+        long[] lastExposure() {
+            return exposures.get(exposures.size() - 1);
+        }
+    }
+
+    private RecordingKnobs knobs;
+    private VisionTuner tuner;
+    private long sequence;
+
+    @Before
+    public void setUp() {
+        knobs = new RecordingKnobs();
+        tuner = new VisionTuner(knobs);
+        tuner.start();
+        sequence = 0;
+    }
+
+    private static TagSnapshot snapshot(long sequence, double range, double margin) {
+        double[] zero = {0};
+        return new TagSnapshot(sequence, 0, 0, new int[] {5}, new double[] {range}, zero, zero, zero, zero,
+                new double[] {margin}, zero, zero);
+    }
+
+    private static TagSnapshot lost(long sequence) {
+        double[] none = new double[0];
+        return new TagSnapshot(sequence, 0, 0, new int[0], none, none, none, none, none, none, none, none);
+    }
+
+    private void feed(int frames, double range, double margin, long processingNanos) {
+        for (int i = 0; i < frames; i++) {
+            tuner.update(snapshot(++sequence, range, margin), processingNanos);
+        }
+    }
+
+    private void feedLost(int frames, long processingNanos) {
+        for (int i = 0; i < frames; i++) {
+            tuner.update(lost(++sequence), processingNanos);
+        }
+    }
+
+    @Test
+    public void startSendsTheDefaults() {
+        assertEquals(1, knobs.decimations.size());
+        assertEquals(2f, knobs.lastDecimation(), 0);
+        assertEquals(15, knobs.lastExposure()[0]);
+        assertEquals(100, knobs.lastExposure()[1]);
+    }
+
+    @Test
+    public void nearTagsRaiseDecimationOnlyOnceFramesAgree() {
+        feed(4, 12, 50, FAST);
+        assertEquals(1, knobs.decimations.size());
+        feed(1, 12, 50, FAST);
+        assertEquals(2, knobs.decimations.size());
+        assertEquals(3f, knobs.lastDecimation(), 0);
+        // already at the top, more near frames change nothing
+        feed(10, 12, 50, FAST);
+        assertEquals(2, knobs.decimations.size());
+    }
+
+    @Test
+    public void oneMidRangeFrameRestartsTheCount() {
+        for (int i = 0; i < 5; i++) {
+            feed(4, 12, 50, FAST);
+            feed(1, 40, 50, FAST);
+        }
+        assertEquals(1, knobs.decimations.size());
+        assertEquals(2f, tuner.decimation(), 0);
+    }
+
+    @Test
+    public void farTagsLowerDecimationWhenThereIsTime() {
+        feed(5, 80, 50, FAST);
+        assertEquals(1f, knobs.lastDecimation(), 0);
+        assertEquals(2, knobs.decimations.size());
+    }
+
+    @Test
+    public void farTagsKeepDecimationWhenFramesAreNearlyOverBudget() {
+        // 35 ms is under budget but over the 70% needed to slow down
+        feed(10, 80, 50, 35_000_000);
+        assertEquals(1, knobs.decimations.size());
+    }
+
+    @Test
+    public void overBudgetRaisesDecimationAndWaitsForFreshFrames() {
+        feed(5, 40, 50, SLOW);
+        assertEquals(3f, knobs.lastDecimation(), 0);
+        assertEquals(2, knobs.decimations.size());
+        // over budget and far: the far vote needs room to slow down, so nothing changes
+        feed(10, 80, 50, SLOW);
+        assertEquals(2, knobs.decimations.size());
+    }
+
+    @Test
+    public void blurHalvesExposureDownToTheMinimum() {
+        feed(4, 40, 10, FAST);
+        assertEquals(1, knobs.exposures.size());
+        feed(1, 40, 10, FAST);
+        assertEquals(7, knobs.lastExposure()[0]);
+        assertEquals(200, knobs.lastExposure()[1]);
+        feed(5, 40, 10, FAST);
+        assertEquals(4, knobs.lastExposure()[0]);
+        assertEquals(255, knobs.lastExposure()[1]);
+        feed(10, 40, 10, FAST);
+        assertEquals(3, knobs.exposures.size());
+    }
+
+    @Test
+    public void lostTagsRestoreExposureAndWidenRange() {
+        feed(5, 40, 10, FAST);
+        assertEquals(7, tuner.exposureMs());
+        feedLost(14, FAST);
+        assertEquals(7, tuner.exposureMs());
+        assertEquals(2f, tuner.decimation(), 0);
+        feedLost(1, FAST);
+        assertEquals(15, knobs.lastExposure()[0]);
+        assertEquals(100, knobs.lastExposure()[1]);
+        assertEquals(1f, knobs.lastDecimation(), 0);
+        // the lost count starts over, so it takes another 15 frames to act again
+        int decimations = knobs.decimations.size();
+        feedLost(14, FAST);
+        assertEquals(decimations, knobs.decimations.size());
+    }
+
+    @Test
+    public void repeatsOfAFrameAreIgnored() {
+        TagSnapshot near = snapshot(1, 12, 50);
+        for (int i = 0; i < 10; i++) {
+            tuner.update(near, FAST);
+        }
+        assertEquals(1, knobs.applies);
+        assertEquals(1, knobs.decimations.size());
+    }
+}